@@ -8,7 +8,148 @@ import lombok.Getter;
 public enum RpcConfigEnum {
 
     RPC_CONFIG_PATH("rpc.properties"),
-    ZK_ADDRESS("rpc.zookeeper.address");
+    ZK_ADDRESS("rpc.zookeeper.address"),
+    /**
+     * netty transport: auto(epoll if available, otherwise nio), epoll, nio
+     */
+    NETTY_TRANSPORT("rpc.netty.transport"),
+    /**
+     * bind several acceptors on the same port with SO_REUSEPORT (epoll only)
+     */
+    NETTY_REUSE_PORT("rpc.netty.reuse-port"),
+    NETTY_ACCEPTORS("rpc.netty.acceptors"),
+    NETTY_EPOLL_EDGE_TRIGGERED("rpc.netty.epoll.edge-triggered"),
+    NETTY_EPOLL_TCP_QUICKACK("rpc.netty.epoll.tcp-quickack"),
+    /**
+     * SO_BUSY_POLL in microseconds, 0 means disabled
+     */
+    NETTY_EPOLL_BUSY_POLL("rpc.netty.epoll.busy-poll"),
+    /**
+     * max messages written by one drain of the write queue before a flush
+     */
+    NETTY_WRITE_MAX_BATCH("rpc.netty.write.max-batch"),
+    /**
+     * server side: bytes of pending outbound data at which a connection stops being writable (and stops being read),
+     * and below which it becomes writable again
+     */
+    NETTY_WRITE_BUFFER_HIGH_WATER_MARK("rpc.netty.write-buffer.high-water-mark"),
+    NETTY_WRITE_BUFFER_LOW_WATER_MARK("rpc.netty.write-buffer.low-water-mark"),
+    /**
+     * server side: also listen on a unix domain socket (epoll only), registered next to the tcp address
+     */
+    NETTY_UDS_ENABLED("rpc.netty.uds.enabled"),
+    NETTY_UDS_PATH("rpc.netty.uds.path"),
+    /**
+     * client side: use the unix domain socket of providers on the same host
+     */
+    NETTY_UDS_PREFER("rpc.netty.uds.prefer"),
+    /**
+     * server side: max in-flight requests per connection (request credits granted to the client)
+     */
+    FLOW_WINDOW("rpc.flow.window"),
+    /**
+     * client side: what to do when a connection runs out of credits: block, queue, fail
+     */
+    FLOW_MODE("rpc.flow.mode"),
+    FLOW_BLOCK_TIMEOUT_MS("rpc.flow.block-timeout-ms"),
+    FLOW_MAX_QUEUED("rpc.flow.max-queued"),
+    /**
+     * client side: resolve and connect all the @RpcReference providers when the spring context is refreshed
+     */
+    CLIENT_WARMUP_ENABLED("rpc.client.warmup.enabled"),
+    CLIENT_WARMUP_TIMEOUT_MS("rpc.client.warmup.timeout-ms"),
+    /**
+     * warm-up round trips per connection (heartbeats) and local codec passes per service, 0 means connect only
+     */
+    CLIENT_WARMUP_CALLS("rpc.client.warmup.calls"),
+    /**
+     * client side: interval of the timestamped pings used to measure rtt
+     */
+    HEARTBEAT_INTERVAL_MS("rpc.heartbeat.interval-ms"),
+    /**
+     * client side: a connection is unhealthy after this many pings in a row are not answered
+     */
+    HEARTBEAT_MAX_MISSED("rpc.heartbeat.max-missed"),
+    /**
+     * client side: load balance used by service discovery: loadBalance (consistent hash), leastRtt
+     */
+    CLIENT_LOAD_BALANCE("rpc.client.load-balance"),
+    /**
+     * client side: transport used by @RpcReference proxies: netty, socket, injvm
+     */
+    CLIENT_TRANSPORT("rpc.client.transport"),
+    /**
+     * injvm transport: transport used when the service is not published in this jvm
+     */
+    INJVM_DELEGATE("rpc.injvm.delegate"),
+    /**
+     * injvm transport: deep copy parameters and results so caller and provider never share mutable objects
+     */
+    INJVM_COPY("rpc.injvm.copy"),
+    /**
+     * server side: also serve requests through shared memory ring buffers in rpc.shm.dir
+     */
+    SHM_ENABLED("rpc.shm.enabled"),
+    /**
+     * directory (under /dev/shm) where the server and same-host clients exchange ring buffer files
+     */
+    SHM_DIR("rpc.shm.dir"),
+    /**
+     * bytes of each ring buffer, rounded up to a power of two
+     */
+    SHM_RING_SIZE("rpc.shm.ring-size"),
+    /**
+     * shm transport: transport used when no shm server is running in rpc.shm.dir
+     */
+    SHM_DELEGATE("rpc.shm.delegate"),
+    /**
+     * server side: run every service invocation on its own virtual thread (JDK 21+, ignored on older JDKs)
+     */
+    SERVER_VIRTUAL_THREADS("rpc.server.virtual-threads"),
+    /**
+     * max service invocations running at the same time on virtual threads
+     */
+    SERVER_VIRTUAL_THREADS_MAX_CONCURRENCY("rpc.server.virtual-threads.max-concurrency"),
+    /**
+     * server side: threads and queue capacity of the default bulkhead and of the @RpcService bulkheads without explicit sizes
+     */
+    SERVER_BULKHEAD_THREADS("rpc.server.bulkhead.threads"),
+    SERVER_BULKHEAD_QUEUE_CAPACITY("rpc.server.bulkhead.queue-capacity"),
+    /**
+     * server side: run @RpcInline methods on the netty I/O thread
+     */
+    SERVER_INLINE_ENABLED("rpc.server.inline.enabled"),
+    /**
+     * an @RpcInline method exceeding its time budget this many times in a row is moved back to the bulkhead
+     */
+    SERVER_INLINE_MAX_OVERRUNS("rpc.server.inline.max-overruns"),
+    /**
+     * server side: adaptive concurrency limit per service, requests over the limit are rejected as overloaded
+     */
+    SERVER_LIMITER_ENABLED("rpc.server.limiter.enabled"),
+    SERVER_LIMITER_INITIAL_LIMIT("rpc.server.limiter.initial-limit"),
+    SERVER_LIMITER_MIN_LIMIT("rpc.server.limiter.min-limit"),
+    SERVER_LIMITER_MAX_LIMIT("rpc.server.limiter.max-limit"),
+    /**
+     * server side: bytes of request frames being read or handled, over all connections; reading pauses when it is used up
+     */
+    SERVER_INBOUND_MAX_BYTES("rpc.server.inbound.max-bytes"),
+    /**
+     * server side: the same budget per connection, also the largest request frame accepted
+     */
+    SERVER_INBOUND_CONNECTION_MAX_BYTES("rpc.server.inbound.connection-max-bytes"),
+    /**
+     * server side: cache the results of @RpcCacheable methods
+     */
+    SERVER_CACHE_ENABLED("rpc.server.cache.enabled"),
+    /**
+     * client side: hedge the calls of @RpcIdempotent methods (send a duplicate to another provider when the call is slow)
+     */
+    CLIENT_HEDGE_ENABLED("rpc.client.hedge.enabled"),
+    /**
+     * max hedged requests in percent of the calls of a method
+     */
+    CLIENT_HEDGE_BUDGET_PERCENT("rpc.client.hedge.budget-percent");
 
     private final String propertyValue;
 
@@ -16,7 +16,11 @@ public enum RpcErrorMessageEnum {
     SERVICE_INVOCATION_FAILURE("服务调用失败"),
     SERVICE_CAN_NOT_BE_FOUND("没有找到指定的服务"),
     SERVICE_NOT_IMPLEMENT_ANY_INTERFACE("注册的服务没有实现任何接口"),
-    REQUEST_NOT_MATCH_RESPONSE("返回结果错误！请求和返回的相应不匹配");
+    REQUEST_NOT_MATCH_RESPONSE("返回结果错误！请求和返回的相应不匹配"),
+    REQUEST_WINDOW_EXHAUSTED("没有可用的请求额度，服务端处理不过来"),
+    SHARED_MEMORY_FAILURE("共享内存通信失败"),
+    SERVICE_INVOCATION_TIMEOUT("服务调用超时"),
+    SERVICE_OVERLOADED("服务端过载，请求没有执行");
 
     private final String message;
 
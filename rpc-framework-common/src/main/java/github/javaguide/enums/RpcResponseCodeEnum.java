@@ -14,7 +14,11 @@ import lombok.ToString;
 public enum RpcResponseCodeEnum {
 
     SUCCESS(200, "The remote call is successful"),
-    FAIL(500, "The remote call is fail");
+    FAIL(500, "The remote call is fail"),
+    /**
+     * rejected before execution, the request can be retried on another server
+     */
+    OVERLOADED(503, "The server is overloaded");
     private final int code;
 
     private final String message;
@@ -0,0 +1,14 @@
+package github.javaguide.exception;
+
+import github.javaguide.enums.RpcErrorMessageEnum;
+
+/**
+ * 服务端过载，请求在执行前被拒绝，可以安全地在其他服务端上重试
+ *
+ * @createTime 2026年10月19日 21:30:00
+ */
+public class RpcOverloadedException extends RpcException {
+    public RpcOverloadedException(String detail) {
+        super(RpcErrorMessageEnum.SERVICE_OVERLOADED, detail);
+    }
+}
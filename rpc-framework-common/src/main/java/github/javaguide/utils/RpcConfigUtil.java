@@ -0,0 +1,73 @@
+package github.javaguide.utils;
+
+import github.javaguide.enums.RpcConfigEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Properties;
+
+/**
+ * 读取 rpc.properties 中的配置项，配置文件只加载一次，未配置或配置非法时返回默认值
+ *
+ * @createTime 2026年10月19日 10:12:00
+ */
+@Slf4j
+public final class RpcConfigUtil {
+
+    private static volatile Properties properties;
+
+    private RpcConfigUtil() {
+    }
+
+    public static String getString(RpcConfigEnum rpcConfigEnum, String defaultValue) {
+        String value = getProperties().getProperty(rpcConfigEnum.getPropertyValue());
+        return StringUtil.isBlank(value) ? defaultValue : value.trim();
+    }
+
+    public static int getInt(RpcConfigEnum rpcConfigEnum, int defaultValue) {
+        String value = getString(rpcConfigEnum, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warn("illegal value [{}] of [{}], use default value [{}]", value, rpcConfigEnum.getPropertyValue(), defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(RpcConfigEnum rpcConfigEnum, long defaultValue) {
+        String value = getString(rpcConfigEnum, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn("illegal value [{}] of [{}], use default value [{}]", value, rpcConfigEnum.getPropertyValue(), defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(RpcConfigEnum rpcConfigEnum, boolean defaultValue) {
+        String value = getString(rpcConfigEnum, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static Properties getProperties() {
+        Properties result = properties;
+        if (result == null) {
+            synchronized (RpcConfigUtil.class) {
+                result = properties;
+                if (result == null) {
+                    result = PropertiesFileUtil.readPropertiesFile(RpcConfigEnum.RPC_CONFIG_PATH.getPropertyValue());
+                    if (result == null) {
+                        result = new Properties();
+                    }
+                    properties = result;
+                }
+            }
+        }
+        return result;
+    }
+}
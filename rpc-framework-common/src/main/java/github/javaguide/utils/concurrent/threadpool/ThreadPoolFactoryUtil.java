@@ -61,6 +61,42 @@ public final class ThreadPoolFactoryUtil {
         return threadPool;
     }
 
+    /**
+     * 在 JDK 21+ 上创建每个任务一个虚拟线程的线程池（同名的线程池只创建一次），更早的 JDK 返回 null。
+     * 项目按 JDK 8 编译，所以通过反射调用 Thread.ofVirtual() 和 Executors.newThreadPerTaskExecutor()
+     *
+     * @param threadNamePrefix 作为虚拟线程名字的前缀
+     * @return 虚拟线程池，当前 JDK 不支持时返回 null
+     */
+    public static ExecutorService createVirtualThreadPoolIfSupported(String threadNamePrefix) {
+        if (!isVirtualThreadSupported()) {
+            return null;
+        }
+        return THREAD_POOLS.computeIfAbsent(threadNamePrefix, k -> {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix + "-", 0L);
+                ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                        .invoke(null, threadFactory);
+            } catch (ReflectiveOperationException e) {
+                // JDK 19/20 only have virtual threads as a preview feature
+                log.warn("virtual threads are not available, fall back to platform threads", e);
+                return null;
+            }
+        });
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     /**
      * shutDown 所有线程池
      */
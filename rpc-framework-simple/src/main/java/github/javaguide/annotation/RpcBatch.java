@@ -0,0 +1,40 @@
+package github.javaguide.annotation;
+
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a single-argument method of a service interface whose calls are collapsed by the client stub: calls arriving
+ * within {@link #windowMillis()} (or until {@link #maxSize()} calls) are sent as one invocation of the bulk method
+ * {@link #method()} of the same interface, and its result is split back to the callers.
+ * <p>
+ * 例如 {@code @RpcBatch(method = "getUsers") User getUser(Long id)} 和 {@code List<User> getUsers(List<Long> ids)}：
+ * 批量方法的参数是这些调用的参数组成的 List，返回 List 时第 i 个结果对应第 i 个参数，返回 Map 时按参数取结果
+ *
+ * @createTime 2026年10月19日 23:55:00
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcBatch {
+
+    /**
+     * Name of the bulk method, it takes a {@link java.util.List} of the arguments
+     */
+    String method();
+
+    /**
+     * Max milliseconds a call waits for other calls to join its batch
+     */
+    long windowMillis() default 2;
+
+    /**
+     * A batch is sent as soon as it has this many calls
+     */
+    int maxSize() default 64;
+
+}
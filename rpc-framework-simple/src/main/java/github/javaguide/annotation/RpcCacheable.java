@@ -0,0 +1,34 @@
+package github.javaguide.annotation;
+
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an idempotent, read-only service method whose results are cached on the server, keyed by the method and its arguments.
+ * A cache hit answers the request with the result bytes serialized when it was cached, the method is not invoked.
+ * Can be put on the method of the service interface or of the implementation class.
+ * <p>
+ * 参数需要正确实现 equals/hashCode；数据变化时通过 {@code ResultCacheRegistry#invalidate} 让缓存失效
+ *
+ * @createTime 2026年10月19日 22:40:00
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcCacheable {
+
+    /**
+     * Time to live of a cached result in milliseconds, counted from the invocation
+     */
+    long ttlMillis() default 60000;
+
+    /**
+     * Maximum number of cached results of the method, the least recently used ones are evicted first
+     */
+    long maximumSize() default 1000;
+
+}
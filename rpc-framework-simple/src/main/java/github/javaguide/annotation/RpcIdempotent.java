@@ -0,0 +1,35 @@
+package github.javaguide.annotation;
+
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of the service interface as idempotent: executing a call more than once has the same effect as once,
+ * so the client stub may hedge it, i.e. send a duplicate to another provider when the call is slow.
+ * <p>
+ * 调用在 hedgeDelayMillis 内没有完成时，向负载均衡选出的另一个服务端发送相同的请求，先到的成功响应作为结果，
+ * 另一个请求被取消。hedgeDelayMillis 为 0 时使用这个方法最近调用延迟的 hedgePercentile 分位数（样本足够之前不对冲）。
+ * 额外的请求受 rpc.client.hedge.budget-percent 限制
+ *
+ * @createTime 2026年10月20日 01:00:00
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcIdempotent {
+
+    /**
+     * Delay before the duplicate is sent, 0 means the hedgePercentile of the observed latency
+     */
+    long hedgeDelayMillis() default 0;
+
+    /**
+     * Percentile (0 - 100) of the observed latency used as the delay
+     */
+    double hedgePercentile() default 95;
+
+}
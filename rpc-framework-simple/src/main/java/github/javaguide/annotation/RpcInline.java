@@ -0,0 +1,30 @@
+package github.javaguide.annotation;
+
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a non-blocking and cheap service method (e.g. an in-memory lookup), its requests are executed
+ * directly on the netty I/O thread instead of being handed to a bulkhead.
+ * Can be put on the method of the service interface or of the implementation class.
+ * <p>
+ * 在 I/O 线程上执行的方法会挡住同一个 I/O 线程上所有连接的读写，连续 rpc.server.inline.max-overruns 次
+ * 执行时间超过 budgetMicros 后，该方法降级为普通方法，由舱壁执行
+ *
+ * @createTime 2026年10月19日 21:05:00
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcInline {
+
+    /**
+     * Time budget of one invocation in microseconds
+     */
+    long budgetMicros() default 200;
+
+}
@@ -0,0 +1,23 @@
+package github.javaguide.annotation;
+
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a void method of the service interface as one-way (fire-and-forget): the stub returns as soon as
+ * the request is handed to the transport, and the server sends no response.
+ * <p>
+ * 适合上报、通知这类不需要结果的调用：netty 传输不登记等待响应的 future，服务端执行后不序列化、不写出响应，
+ * 执行失败或服务端过载时只在服务端记录日志，调用方无法感知。其他传输仍按普通请求发送，忽略响应
+ *
+ * @createTime 2026年10月20日 00:40:00
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcOneWay {
+}
@@ -30,4 +30,24 @@ public @interface RpcReference {
      */
     String group() default "";
 
+    /**
+     * Max milliseconds to wait for the response, 0 means waiting until the response arrives
+     */
+    long timeout() default 0;
+
+    /**
+     * Methods whose results are cached by the client (serialized, off-heap), identical concurrent calls of them share one request
+     */
+    String[] cachedMethods() default {};
+
+    /**
+     * Time to live of a cached result in milliseconds
+     */
+    long cacheTtlMillis() default 60000;
+
+    /**
+     * Maximum serialized size of the cached results of this reference
+     */
+    long cacheMaxBytes() default 16 * 1024 * 1024;
+
 }
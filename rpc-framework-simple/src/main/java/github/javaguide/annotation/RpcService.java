@@ -30,4 +30,25 @@ public @interface RpcService {
      */
     String group() default "";
 
+    /**
+     * Bulkhead (thread pool) running the invocations of this service, services naming the same bulkhead share it.
+     * Empty: the default bulkhead shared by all the other services
+     */
+    String bulkhead() default "";
+
+    /**
+     * Threads of the bulkhead, 0 means rpc.server.bulkhead.threads
+     */
+    int bulkheadThreads() default 0;
+
+    /**
+     * Requests waiting for a thread of the bulkhead, more are rejected. 0 means rpc.server.bulkhead.queue-capacity
+     */
+    int bulkheadQueueCapacity() default 0;
+
+    /**
+     * Methods running on a bulkhead of their own (same sizes), so that a slow method can not exhaust the threads of the others
+     */
+    String[] isolatedMethods() default {};
+
 }
@@ -0,0 +1,31 @@
+package github.javaguide.annotation;
+
+
+import github.javaguide.remoting.handler.SingleFlightKey;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Identical concurrent invocations of the annotated service method share one execution: the first one runs the method,
+ * the others arriving before it completes wait for its result, and every request gets its own response.
+ * Can be put on the method of the service interface or of the implementation class.
+ * <p>
+ * 适合读取同一个热点 key 的昂贵方法（例如缓存未命中时查询数据库），结果对象会被多个响应共享，服务不应再修改它
+ *
+ * @createTime 2026年10月19日 23:40:00
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcSingleFlight {
+
+    /**
+     * Computes the key of an invocation, invocations with equal keys are identical. Defaults to all arguments being equal
+     */
+    Class<? extends SingleFlightKey> key() default SingleFlightKey.Arguments.class;
+
+}
@@ -32,6 +32,28 @@ public class RpcServiceConfig {
      */
     private Object service;
 
+    /**
+     * client side: max milliseconds to wait for a response, 0 means no timeout
+     */
+    private long timeout;
+    /**
+     * client side: methods whose results are cached by the stub, see {@link github.javaguide.annotation.RpcReference#cachedMethods()}
+     */
+    private String[] cachedMethods;
+    private long cacheTtlMillis;
+    private long cacheMaxBytes;
+
+    /**
+     * server side: bulkhead of the service and its sizes, see {@link github.javaguide.annotation.RpcService#bulkhead()}
+     */
+    private String bulkhead;
+    private int bulkheadThreads;
+    private int bulkheadQueueCapacity;
+    /**
+     * server side: methods running on a bulkhead of their own
+     */
+    private String[] isolatedMethods;
+
     /**
      * 获取RPC服务名字=服务Class对象实现的第一个接口全名字+组名+版本名
      * @param
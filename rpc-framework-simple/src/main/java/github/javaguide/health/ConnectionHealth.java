@@ -0,0 +1,86 @@
+package github.javaguide.health;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个服务提供者连接的健康状况：由心跳 ping/pong 估算的 RTT、抖动以及连续未收到 pong 的次数
+ * <p>
+ * RTT 估算参考 RFC 6298：第一个样本 srtt = R，rttvar = R/2；之后
+ * rttvar = 3/4 * rttvar + 1/4 * |srtt - R|，srtt = 7/8 * srtt + 1/8 * R
+ *
+ * @createTime 2026年10月19日 16:05:00
+ */
+public final class ConnectionHealth {
+
+    private final String address;
+    private final int maxMissedPongs;
+    /**
+     * 已发送但还没有收到 pong 的 ping 数量，收到任意一个 pong 时清零
+     */
+    private final AtomicInteger outstandingPings = new AtomicInteger();
+    private long srttNanos = -1;
+    private long rttvarNanos;
+
+    public ConnectionHealth(String address, int maxMissedPongs) {
+        this.address = address;
+        this.maxMissedPongs = Math.max(1, maxMissedPongs);
+    }
+
+    public void onPingSent() {
+        outstandingPings.incrementAndGet();
+    }
+
+    /**
+     * @param rttNanos 这次 ping 到 pong 的往返时间
+     */
+    public void onPong(long rttNanos) {
+        outstandingPings.set(0);
+        if (rttNanos < 0) {
+            return;
+        }
+        synchronized (this) {
+            if (srttNanos < 0) {
+                srttNanos = rttNanos;
+                rttvarNanos = rttNanos / 2;
+            } else {
+                rttvarNanos += (Math.abs(srttNanos - rttNanos) - rttvarNanos) / 4;
+                srttNanos += (rttNanos - srttNanos) / 8;
+            }
+        }
+    }
+
+    /**
+     * 上一次 ping 之前发出的 ping 都没有收到 pong 的次数
+     */
+    public int missedPongs() {
+        return Math.max(0, outstandingPings.get() - 1);
+    }
+
+    public boolean isHealthy() {
+        return missedPongs() < maxMissedPongs;
+    }
+
+    /**
+     * @return 平滑后的 RTT，还没有样本时返回 -1
+     */
+    public synchronized long srttNanos() {
+        return srttNanos;
+    }
+
+    /**
+     * @return RTT 的平均偏差（抖动），还没有样本时返回 0
+     */
+    public synchronized long rttvarNanos() {
+        return rttvarNanos;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionHealth{address=" + address + ", srttNanos=" + srttNanos() + ", rttvarNanos=" + rttvarNanos()
+                + ", missedPongs=" + missedPongs() + "}";
+    }
+}
@@ -0,0 +1,79 @@
+package github.javaguide.health;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.utils.RpcConfigUtil;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按服务地址（ip:port，和注册中心里的地址格式一致）保存连接的健康状况，供负载均衡和健康检查使用
+ *
+ * @createTime 2026年10月19日 16:15:00
+ */
+public final class ConnectionHealthRegistry {
+
+    private static final int MAX_MISSED_PONGS = RpcConfigUtil.getInt(RpcConfigEnum.HEARTBEAT_MAX_MISSED, 3);
+    private static final Map<String, ConnectionHealth> HEALTH_MAP = new ConcurrentHashMap<>();
+
+    private ConnectionHealthRegistry() {
+    }
+
+    public static String toAddress(InetSocketAddress inetSocketAddress) {
+        return inetSocketAddress.getAddress().getHostAddress() + ":" + inetSocketAddress.getPort();
+    }
+
+    /**
+     * 获取地址对应的健康状况，不存在则创建
+     */
+    public static ConnectionHealth register(String address) {
+        return HEALTH_MAP.computeIfAbsent(address, key -> {
+            ConnectionHealth health = new ConnectionHealth(key, MAX_MISSED_PONGS);
+            RpcMetrics.gauge("rpc.client.rtt.srtt-us[" + key + "]", () -> TimeUnit.NANOSECONDS.toMicros(health.srttNanos()));
+            RpcMetrics.gauge("rpc.client.rtt.jitter-us[" + key + "]", () -> TimeUnit.NANOSECONDS.toMicros(health.rttvarNanos()));
+            RpcMetrics.gauge("rpc.client.heartbeat.missed[" + key + "]", health::missedPongs);
+            return health;
+        });
+    }
+
+    /**
+     * 连接关闭时移除，重新连接后重新开始估算
+     */
+    public static void remove(String address) {
+        if (HEALTH_MAP.remove(address) != null) {
+            RpcMetrics.removeGauge("rpc.client.rtt.srtt-us[" + address + "]");
+            RpcMetrics.removeGauge("rpc.client.rtt.jitter-us[" + address + "]");
+            RpcMetrics.removeGauge("rpc.client.heartbeat.missed[" + address + "]");
+        }
+    }
+
+    /**
+     * @return 地址对应的健康状况，还没有建立过连接时返回 null
+     */
+    public static ConnectionHealth get(String address) {
+        return HEALTH_MAP.get(address);
+    }
+
+    public static boolean isHealthy(String address) {
+        ConnectionHealth health = HEALTH_MAP.get(address);
+        return health == null || health.isHealthy();
+    }
+
+    /**
+     * 过滤掉不健康的地址；全部健康或全部不健康时返回原列表（一致性哈希按列表内容缓存哈希环，过滤后的列表内容不变时不会重建）
+     */
+    public static List<String> filterHealthy(List<String> serviceAddresses) {
+        List<String> healthy = new ArrayList<>(serviceAddresses.size());
+        for (String serviceAddress : serviceAddresses) {
+            if (isHealthy(serviceAddress)) {
+                healthy.add(serviceAddress);
+            }
+        }
+        return healthy.isEmpty() || healthy.size() == serviceAddresses.size() ? serviceAddresses : healthy;
+    }
+}
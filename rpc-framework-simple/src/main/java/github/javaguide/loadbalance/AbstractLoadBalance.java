@@ -1,5 +1,6 @@
 package github.javaguide.loadbalance;
 
+import github.javaguide.health.ConnectionHealthRegistry;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.utils.CollectionUtil;
 
@@ -20,7 +21,12 @@ public abstract class AbstractLoadBalance implements LoadBalance {
         if (serviceAddresses.size() == 1) {
             return serviceAddresses.get(0);
         }
-        return doSelect(serviceAddresses, rpcRequest);
+        // skip providers whose connection stopped answering heartbeats
+        List<String> healthyAddresses = ConnectionHealthRegistry.filterHealthy(serviceAddresses);
+        if (healthyAddresses.size() == 1) {
+            return healthyAddresses.get(0);
+        }
+        return doSelect(healthyAddresses, rpcRequest);
     }
 
     protected abstract String doSelect(List<String> serviceAddresses, RpcRequest rpcRequest);
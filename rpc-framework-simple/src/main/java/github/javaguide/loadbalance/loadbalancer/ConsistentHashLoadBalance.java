@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -24,7 +25,7 @@ public class ConsistentHashLoadBalance extends AbstractLoadBalance {
     private final ConcurrentHashMap<String, ConsistentHashSelector> selectors = new ConcurrentHashMap<>();//保存RPC服务的一致性hash选择器
 
     /**
-     * 1.获取serviceAddresses地址列表的hashcode
+     * 1.获取serviceAddresses地址列表的hashcode（按内容计算，健康过滤每次返回新的列表对象，内容不变时沿用原来的哈希环）
      * 2.若该RPC服务没有一致性hash选择器或者地址列表有更新（包括新增、删除、修改），创建ConsistentHashSelector对象
      * 3.ConsistentHashSelector对象指定了每个真实节点（服务地址）有160个副本（虚拟节点）
      * 4.对RPC服务名+请求方法参数做同样的hash处理得到hashCode，选择离该hashCode最近的虚拟节点对应的地址
@@ -36,35 +37,40 @@ public class ConsistentHashLoadBalance extends AbstractLoadBalance {
      */
     @Override
     protected String doSelect(List<String> serviceAddresses, RpcRequest rpcRequest) {
-        //无论给定的x对象是否覆盖了hashCode()方法，都会调用默认的hashCode()方法返回hashCode,如果x == null, 返回0。
-        int identityHashCode = System.identityHashCode(serviceAddresses);
+        int addressesHashCode = serviceAddresses.hashCode();
         // build rpc service name by rpcRequest
         String rpcServiceName = rpcRequest.getRpcServiceName();
         ConsistentHashSelector selector = selectors.get(rpcServiceName);
         // check for updates
-        if (selector == null || selector.identityHashCode != identityHashCode) {
-            selectors.put(rpcServiceName, new ConsistentHashSelector(serviceAddresses, 160, identityHashCode));
+        if (selector == null || selector.addressesHashCode != addressesHashCode || !selector.addresses.equals(serviceAddresses)) {
+            selectors.put(rpcServiceName, new ConsistentHashSelector(serviceAddresses, 160, addressesHashCode));
             selector = selectors.get(rpcServiceName);
         }
-        return selector.select(rpcServiceName + Arrays.stream(rpcRequest.getParameters()));
+        return selector.select(rpcServiceName + Arrays.toString(rpcRequest.getParameters()));
+    }
+
+    ConsistentHashSelector selector(String rpcServiceName) {
+        return selectors.get(rpcServiceName);
     }
 
     static class ConsistentHashSelector {
         private final TreeMap<Long, String> virtualInvokers;//对key（虚拟节点的hashCode）排序的Map
 
-        private final int identityHashCode;
+        private final List<String> addresses;
+        private final int addressesHashCode;
         /**
          *
          * @param invokers 服务地址列表
          * @param replicaNumber 每个主节点对应的虚拟节点数量（主节点+虚拟节点）
-         * @param identityHashCode 服务地址列表对应的hashcode
+         * @param addressesHashCode 服务地址列表对应的hashcode
          * @return:
          * @author: gefeng
          * @date: 2022/9/21 15:25
          */
-        ConsistentHashSelector(List<String> invokers, int replicaNumber, int identityHashCode) {
+        ConsistentHashSelector(List<String> invokers, int replicaNumber, int addressesHashCode) {
             this.virtualInvokers = new TreeMap<>();
-            this.identityHashCode = identityHashCode;
+            this.addresses = new ArrayList<>(invokers);
+            this.addressesHashCode = addressesHashCode;
 
             for (String invoker : invokers) {
                 for (int i = 0; i < replicaNumber / 4; i++) {
@@ -0,0 +1,36 @@
+package github.javaguide.loadbalance.loadbalancer;
+
+import github.javaguide.health.ConnectionHealth;
+import github.javaguide.health.ConnectionHealthRegistry;
+import github.javaguide.loadbalance.AbstractLoadBalance;
+import github.javaguide.remoting.dto.RpcRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最小 RTT 负载均衡：随机选两个地址，选心跳测得的平滑 RTT 较小的一个（power of two choices），
+ * 避免所有请求都压到当前最快的节点上；还没有 RTT 样本的地址优先，以便尽快测得它的 RTT
+ *
+ * @createTime 2026年10月19日 16:30:00
+ */
+public class LeastRttLoadBalance extends AbstractLoadBalance {
+    @Override
+    protected String doSelect(List<String> serviceAddresses, RpcRequest rpcRequest) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = serviceAddresses.size();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        String a = serviceAddresses.get(first);
+        String b = serviceAddresses.get(second);
+        return srttNanos(b) < srttNanos(a) ? b : a;
+    }
+
+    private static long srttNanos(String address) {
+        ConnectionHealth health = ConnectionHealthRegistry.get(address);
+        return health == null ? -1 : health.srttNanos();
+    }
+}
@@ -0,0 +1,46 @@
+package github.javaguide.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 进程内的指标注册表
+ * <p>
+ * gauge：读取时才计算的瞬时值（如等待响应的请求数、可用的请求额度）；counter：只增不减的累计值（如拒绝次数）。
+ * {@link #snapshot()} 返回所有指标的当前值，可以由日志、JMX 或 HTTP 端点导出
+ *
+ * @createTime 2026年10月19日 14:02:00
+ */
+public final class RpcMetrics {
+
+    private static final Map<String, Supplier<? extends Number>> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    private RpcMetrics() {
+    }
+
+    public static void gauge(String name, Supplier<? extends Number> supplier) {
+        GAUGES.put(name, supplier);
+    }
+
+    public static void removeGauge(String name) {
+        GAUGES.remove(name);
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * @return 按名字排序的所有指标当前值
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new TreeMap<>();
+        GAUGES.forEach((name, supplier) -> snapshot.put(name, supplier.get()));
+        COUNTERS.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+}
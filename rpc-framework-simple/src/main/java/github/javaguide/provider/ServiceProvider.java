@@ -1,6 +1,9 @@
 package github.javaguide.provider;
 
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.remoting.handler.MethodInvoker;
+
+import java.util.Set;
 
 /**
  * store and provide service object.
@@ -21,6 +24,25 @@ public interface ServiceProvider {
      */
     Object getService(String rpcServiceName);
 
+    /**
+     * @param rpcServiceName rpc service name
+     * @param methodName     method name
+     * @param paramTypes     parameter types of the method
+     * @return the invoker built when the service was added, null if the service has no such method
+     */
+    MethodInvoker getMethodInvoker(String rpcServiceName, String methodName, Class<?>[] paramTypes);
+
+    /**
+     * @param rpcServiceName rpc service name
+     * @return whether the service has been added in this jvm
+     */
+    boolean hasService(String rpcServiceName);
+
+    /**
+     * @return names of the services added in this jvm
+     */
+    Set<String> getRpcServiceNames();
+
     /**
      * @param rpcServiceConfig rpc service related attributes
      */
@@ -4,14 +4,26 @@ import github.javaguide.config.RpcServiceConfig;
 import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.registry.ServiceRegistry;
+import github.javaguide.remoting.handler.BulkheadRegistry;
+import github.javaguide.remoting.handler.ConcurrencyLimiterRegistry;
+import github.javaguide.remoting.handler.InlineWatchdog;
+import github.javaguide.remoting.handler.MethodInvoker;
+import github.javaguide.remoting.handler.ResultCacheRegistry;
+import github.javaguide.remoting.handler.SingleFlight;
 import github.javaguide.remoting.transport.netty.server.NettyRpcServer;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,11 +42,17 @@ public class ZkServiceProviderImpl implements ServiceProvider {
      */
     private final Map<String, Object> serviceMap;//已注册的<rpc服务名，rpc服务>集合
     private final Set<String> registeredService;//已注册的rpc服务名集合
+    /**
+     * key: rpc service name
+     * value: 方法名 -> 同名方法（重载）的调用器，服务添加时一次性创建
+     */
+    private final Map<String, Map<String, MethodInvoker[]>> invokerMap;
     private final ServiceRegistry serviceRegistry;//
 
     public ZkServiceProviderImpl() {
         serviceMap = new ConcurrentHashMap<>();
         registeredService = ConcurrentHashMap.newKeySet();
+        invokerMap = new ConcurrentHashMap<>();
         // 获取ServiceRegistry.class的一个实例（尝试从cachedInstances中获取）
         // 之前已创建过，则直接从缓存中获取；没有创建过则先加载该类（根据缩写名zk尝试从cachedClasses中获取）
         // 没有加载过则使用ExtensionLoader类的加载器加载ServiceRegistry.class为名的文件中所有列出的类，后放入<Class缩写名-Class对象>cachedClasses缓存中
@@ -58,6 +76,9 @@ public class ZkServiceProviderImpl implements ServiceProvider {
             return;
         }
         registeredService.add(rpcServiceName);
+        invokerMap.put(rpcServiceName, createInvokers(rpcServiceName, rpcServiceConfig.getService()));
+        SingletonFactory.getInstance(BulkheadRegistry.class).register(rpcServiceConfig);
+        SingletonFactory.getInstance(ConcurrencyLimiterRegistry.class).register(rpcServiceName);
         serviceMap.put(rpcServiceName, rpcServiceConfig.getService());
         log.info("Add service: {} and interfaces:{}", rpcServiceName, rpcServiceConfig.getService().getClass().getInterfaces());
     }
@@ -78,6 +99,68 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         return service;
     }
 
+    /**
+     * 为服务实现的所有接口中的方法创建调用器，调用时只需要按方法名查表，再比较参数类型
+     */
+    private static Map<String, MethodInvoker[]> createInvokers(String rpcServiceName, Object service) {
+        Map<String, List<MethodInvoker>> invokers = new HashMap<>();
+        InlineWatchdog inlineWatchdog = SingletonFactory.getInstance(InlineWatchdog.class);
+        ResultCacheRegistry resultCacheRegistry = SingletonFactory.getInstance(ResultCacheRegistry.class);
+        for (Class<?> serviceInterface : service.getClass().getInterfaces()) {
+            for (Method method : serviceInterface.getMethods()) {
+                MethodInvoker invoker;
+                try {
+                    invoker = MethodInvoker.of(method);
+                } catch (IllegalAccessException e) {
+                    throw new RpcException(e.getMessage(), e);
+                }
+                // @RpcInline methods run on the I/O thread
+                inlineWatchdog.configure(invoker, service.getClass());
+                // @RpcCacheable methods answer repeated calls from the result cache
+                resultCacheRegistry.configure(rpcServiceName, invoker, service.getClass());
+                // @RpcSingleFlight methods run identical concurrent calls once
+                SingleFlight.configure(rpcServiceName, invoker, service.getClass());
+                invokers.computeIfAbsent(method.getName(), k -> new ArrayList<>()).add(invoker);
+            }
+        }
+        Map<String, MethodInvoker[]> invokerTable = new HashMap<>();
+        invokers.forEach((methodName, overloads) -> invokerTable.put(methodName, overloads.toArray(new MethodInvoker[0])));
+        return invokerTable;
+    }
+
+    @Override
+    public MethodInvoker getMethodInvoker(String rpcServiceName, String methodName, Class<?>[] paramTypes) {
+        Map<String, MethodInvoker[]> invokerTable = invokerMap.get(rpcServiceName);
+        if (invokerTable == null) {
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND);
+        }
+        MethodInvoker[] overloads = invokerTable.get(methodName);
+        if (overloads != null) {
+            for (MethodInvoker invoker : overloads) {
+                if (invoker.matches(paramTypes)) {
+                    return invoker;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 本进程中是否已添加指定RPC服务名的服务，in-jvm 调用据此判断能否直接调用本地服务
+     */
+    @Override
+    public boolean hasService(String rpcServiceName) {
+        return serviceMap.containsKey(rpcServiceName);
+    }
+
+    /**
+     * 本进程中已添加的RPC服务名，共享内存服务端把它们写入目录，客户端据此判断服务是否由本机的服务端提供
+     */
+    @Override
+    public Set<String> getRpcServiceNames() {
+        return Collections.unmodifiableSet(serviceMap.keySet());
+    }
+
     /**
      * 发布服务
      * 1.创建1个InetSocketAddress对象封装ip和NettyRpcServer端口（9998）用于通信
@@ -93,7 +176,8 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         try {
             String host = InetAddress.getLocalHost().getHostAddress();
             this.addService(rpcServiceConfig);
-            serviceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), new InetSocketAddress(host, NettyRpcServer.PORT));
+            serviceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), new InetSocketAddress(host, NettyRpcServer.PORT),
+                    NettyRpcServer.domainSocketPath());
         } catch (UnknownHostException e) {
             log.error("occur exception when getHostAddress", e);
         }
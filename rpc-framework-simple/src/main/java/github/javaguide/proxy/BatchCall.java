@@ -0,0 +1,176 @@
+package github.javaguide.proxy;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.RpcRequestTransport;
+import io.netty.util.Timeout;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 显式的批量调用：先收集多个（可以属于不同服务的）方法调用，{@link #execute()} 时一起发送。
+ * netty 传输把发给同一个服务端的调用放进一个帧，一次往返完成；其他传输逐个发送。
+ * 服务端默认并行执行这些调用，{@link #ordered()} 时按加入的顺序一个接一个执行（只对同一个服务端上的调用有效）。
+ * 每个调用有自己的 future 和超时（{@link RpcServiceConfig#getTimeout()}），一个调用失败不影响其他调用
+ * <pre>
+ * BatchCall batch = new BatchCall(rpcRequestTransport);
+ * CompletableFuture&lt;String&gt; hello = batch.add(rpcServiceConfig, HelloService.class, "hello", new Hello("111", "222"));
+ * CompletableFuture&lt;Integer&gt; count = batch.add(rpcServiceConfig, CounterService.class, "count", "key");
+ * BatchCall.Result result = batch.execute().join();
+ * </pre>
+ *
+ * @createTime 2026年10月20日 00:20:00
+ */
+public class BatchCall {
+
+    private final RpcRequestTransport rpcRequestTransport;
+    private final List<RpcRequest> rpcRequests = new ArrayList<>();
+    private final List<Long> timeouts = new ArrayList<>();
+    private final List<CompletableFuture<Object>> results = new ArrayList<>();
+    private boolean ordered;
+    private boolean executed;
+
+    public BatchCall(RpcRequestTransport rpcRequestTransport) {
+        this.rpcRequestTransport = rpcRequestTransport;
+    }
+
+    /**
+     * 服务端按加入的顺序执行调用，前一个调用完成（成功或失败）后才执行下一个
+     */
+    public BatchCall ordered() {
+        this.ordered = true;
+        return this;
+    }
+
+    /**
+     * 加入一次调用，方法按名称和参数个数查找，有重载时使用 {@link #add(RpcServiceConfig, Method, Object...)}
+     *
+     * @return 调用结果的 future，{@link #execute()} 之后才会完成
+     */
+    public <T> CompletableFuture<T> add(RpcServiceConfig rpcServiceConfig, Class<?> serviceInterface, String methodName, Object... args) {
+        Method found = null;
+        for (Method method : serviceInterface.getMethods()) {
+            if (method.getName().equals(methodName) && method.getParameterCount() == args.length) {
+                if (found != null) {
+                    throw new IllegalArgumentException("ambiguous method " + methodName + " in " + serviceInterface.getName());
+                }
+                found = method;
+            }
+        }
+        if (found == null) {
+            throw new IllegalArgumentException("no method " + methodName + " with " + args.length + " arguments in " + serviceInterface.getName());
+        }
+        return add(rpcServiceConfig, found, args);
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized <T> CompletableFuture<T> add(RpcServiceConfig rpcServiceConfig, Method method, Object... args) {
+        if (executed) {
+            throw new IllegalStateException("the batch has been executed");
+        }
+        rpcRequests.add(new RpcRequest(RpcClientProxy.nextRequestId(), method.getDeclaringClass().getName(), method.getName(),
+                args, method.getParameterTypes(), rpcServiceConfig.getVersion(), rpcServiceConfig.getGroup()));
+        timeouts.add(rpcServiceConfig.getTimeout());
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        results.add(result);
+        return (CompletableFuture<T>) result;
+    }
+
+    /**
+     * 发送所有调用，只能执行一次
+     *
+     * @return 所有调用都完成（成功、失败或超时）后完成的 future
+     */
+    public synchronized CompletableFuture<Result> execute() {
+        if (executed) {
+            throw new IllegalStateException("the batch has been executed");
+        }
+        executed = true;
+        List<CompletableFuture<RpcResponse<Object>>> responses = rpcRequestTransport.sendBatch(rpcRequests, ordered);
+        for (int i = 0; i < rpcRequests.size(); i++) {
+            complete(rpcRequests.get(i), withTimeout(responses.get(i), rpcRequests.get(i), timeouts.get(i)), results.get(i));
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).handle((ignored, e) -> new Result(results));
+    }
+
+    private static CompletableFuture<RpcResponse<Object>> withTimeout(CompletableFuture<RpcResponse<Object>> response,
+                                                                      RpcRequest rpcRequest, long timeoutMillis) {
+        if (timeoutMillis > 0 && !response.isDone()) {
+            // completing the future exceptionally lets the transport forget the request
+            Timeout timeout = RpcClientProxy.ASYNC_TIMEOUT_TIMER.newTimeout(t -> response.completeExceptionally(
+                    new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_TIMEOUT, rpcRequest.getInterfaceName()
+                            + "#" + rpcRequest.getMethodName() + " after " + timeoutMillis + "ms")),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            response.whenComplete((rpcResponse, e) -> timeout.cancel());
+        }
+        return response;
+    }
+
+    private static void complete(RpcRequest rpcRequest, CompletableFuture<RpcResponse<Object>> response,
+                                 CompletableFuture<Object> result) {
+        response.whenComplete((rpcResponse, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                return;
+            }
+            try {
+                RpcClientProxy.check(rpcResponse, rpcRequest);
+                result.complete(RpcClientProxy.resultOf(rpcResponse));
+            } catch (RuntimeException checkFailure) {
+                result.completeExceptionally(checkFailure);
+            }
+        });
+    }
+
+    /**
+     * 批量调用的结果，下标是调用加入的顺序
+     */
+    public static final class Result {
+        private final List<CompletableFuture<Object>> results;
+
+        private Result(List<CompletableFuture<Object>> results) {
+            this.results = Collections.unmodifiableList(results);
+        }
+
+        public int size() {
+            return results.size();
+        }
+
+        public boolean isSuccess(int index) {
+            return !results.get(index).isCompletedExceptionally();
+        }
+
+        /**
+         * @return 调用的结果，调用失败时抛出它的异常
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(int index) {
+            try {
+                return (T) results.get(index).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        /**
+         * @return 调用失败的原因，成功时为 null
+         */
+        public Throwable getError(int index) {
+            try {
+                results.get(index).join();
+                return null;
+            } catch (CompletionException e) {
+                return e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package github.javaguide.proxy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.remoting.dto.SerializedResult;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 客户端一个服务引用（@RpcReference）的结果缓存
+ * <p>
+ * 结果序列化后保存在堆外（netty 池化的 direct buffer），总字节数不超过 maxBytes，超过时淘汰最近最少使用的结果，
+ * 写入 ttlMillis 后过期；命中时把字节拷贝出来反序列化，每个调用方拿到自己的结果对象。
+ * 同一个调用（方法 + 参数）同时只有一个请求在路上，其他调用等待这个请求的结果
+ *
+ * @createTime 2026年10月19日 23:10:00
+ */
+final class ClientResultCache {
+
+    private static final AtomicLong OFF_HEAP_BYTES = new AtomicLong();
+    private static final LongAdder HITS = RpcMetrics.counter("rpc.client.cache.hits");
+    private static final LongAdder MISSES = RpcMetrics.counter("rpc.client.cache.misses");
+    private static final LongAdder COALESCED = RpcMetrics.counter("rpc.client.cache.coalesced");
+
+    static {
+        RpcMetrics.gauge("rpc.client.cache.off-heap-bytes", OFF_HEAP_BYTES::get);
+    }
+
+    private final Cache<CallKey, OffHeapResult> cache;
+    /**
+     * 正在请求的调用，请求完成（放入缓存）后移除
+     */
+    private final Map<CallKey, CompletableFuture<SerializedResult>> inFlight = new ConcurrentHashMap<>();
+
+    ClientResultCache(long ttlMillis, long maxBytes) {
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .maximumWeight(maxBytes)
+                .weigher((CallKey key, OffHeapResult value) -> value.length)
+                .removalListener((RemovalListener<CallKey, OffHeapResult>) notification -> notification.getValue().free())
+                .build();
+    }
+
+    /**
+     * @param methodKey 区分方法的对象（stub 中的方法回调）
+     * @param fetch     发送请求，返回序列化好的结果
+     * @return 缓存的结果，或者同一个调用正在进行（或新发出）的请求的结果
+     */
+    CompletableFuture<SerializedResult> get(Object methodKey, Object[] args, Supplier<CompletableFuture<SerializedResult>> fetch) {
+        CallKey key = new CallKey(methodKey, args);
+        OffHeapResult offHeapResult = cache.getIfPresent(key);
+        SerializedResult cached = offHeapResult == null ? null : offHeapResult.read();
+        if (cached != null) {
+            HITS.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<SerializedResult> shared = new CompletableFuture<>();
+        CompletableFuture<SerializedResult> outstanding = inFlight.putIfAbsent(key, shared);
+        if (outstanding != null) {
+            COALESCED.increment();
+            return outstanding;
+        }
+        MISSES.increment();
+        try {
+            fetch.get().whenComplete((serializedResult, e) -> {
+                if (e == null) {
+                    put(key, serializedResult);
+                }
+                // cached first: a call arriving now finds either the request or the result
+                inFlight.remove(key, shared);
+                if (e == null) {
+                    shared.complete(serializedResult);
+                } else {
+                    shared.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+        }
+        return shared;
+    }
+
+    private void put(CallKey key, SerializedResult serializedResult) {
+        byte[] bytes = serializedResult.getBytes();
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length);
+        buf.writeBytes(bytes);
+        cache.put(key, new OffHeapResult(serializedResult.getCodec(), buf));
+    }
+
+    /**
+     * @return 序列化好的结果：服务端缓存的结果直接使用，其他结果在这里用 hessian 序列化
+     */
+    static SerializedResult serialize(Object data) {
+        return data instanceof SerializedResult ? (SerializedResult) data : SerializedResult.of(data, SerializationTypeEnum.HESSIAN);
+    }
+
+    /**
+     * 一个保存在堆外的结果，读取和释放互斥，淘汰时正在读取的调用不会读到已经释放的内存
+     */
+    private static final class OffHeapResult {
+        private final byte codec;
+        private final int length;
+        private ByteBuf buf;
+
+        OffHeapResult(byte codec, ByteBuf buf) {
+            this.codec = codec;
+            this.buf = buf;
+            this.length = buf.readableBytes();
+            OFF_HEAP_BYTES.addAndGet(length);
+        }
+
+        /**
+         * @return 结果的副本，已经被淘汰时返回 null
+         */
+        synchronized SerializedResult read() {
+            if (buf == null) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buf.getBytes(buf.readerIndex(), bytes);
+            return new SerializedResult(codec, bytes);
+        }
+
+        synchronized void free() {
+            if (buf != null) {
+                buf.release();
+                buf = null;
+                OFF_HEAP_BYTES.addAndGet(-length);
+            }
+        }
+    }
+
+    private static final class CallKey {
+        private final Object methodKey;
+        private final Object[] args;
+        private final int hash;
+
+        CallKey(Object methodKey, Object[] args) {
+            this.methodKey = methodKey;
+            // the caller may reuse the array
+            this.args = args == null ? new Object[0] : args.clone();
+            this.hash = 31 * methodKey.hashCode() + Arrays.deepHashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CallKey)) {
+                return false;
+            }
+            CallKey callKey = (CallKey) o;
+            return hash == callKey.hash && methodKey == callKey.methodKey && Arrays.deepEquals(args, callKey.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
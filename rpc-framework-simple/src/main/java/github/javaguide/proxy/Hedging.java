@@ -0,0 +1,259 @@
+package github.javaguide.proxy;
+
+import github.javaguide.annotation.RpcIdempotent;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.concurrent.threadpool.CustomThreadPoolConfig;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个幂等方法（{@link RpcIdempotent}）的对冲请求（hedged requests）：
+ * 调用在 delay 内没有完成时，向负载均衡选出的另一个服务端发送一份相同的请求（新的 requestId），
+ * 先到的成功响应作为调用的结果，另一个请求被取消（客户端不再等待，服务端照常执行完）；两个请求都失败时返回后失败的那个。
+ * <p>
+ * delay 是注解中的固定值，或者最近 {@link #SAMPLES} 次调用延迟的分位数。额外请求受预算限制：每次调用积累
+ * rpc.client.hedge.budget-percent / 100 个令牌（最多 {@link #MAX_TOKENS}），每个对冲请求消耗一个
+ *
+ * @createTime 2026年10月20日 01:00:00
+ */
+@Slf4j
+final class Hedging {
+
+    private static final int BUDGET_PERCENT = Math.max(0, RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_HEDGE_BUDGET_PERCENT, 10));
+    /**
+     * 令牌以千分之一为单位计数
+     */
+    private static final long TOKEN = 1000;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+    private static final int SAMPLES = 128;
+    /**
+     * 样本达到这个数量后开始对冲，之后每记录这么多样本重新计算一次分位数
+     */
+    private static final int MIN_SAMPLES = 16;
+    private static final LongAdder SENT = RpcMetrics.counter("rpc.client.hedge.sent");
+    private static final LongAdder WON = RpcMetrics.counter("rpc.client.hedge.won");
+    private static final LongAdder THROTTLED = RpcMetrics.counter("rpc.client.hedge.throttled");
+    /**
+     * 对冲请求在这里发送，挑选服务端和建立连接可能阻塞，不能占用超时定时器的线程
+     */
+    private static final ExecutorService HEDGE_EXECUTOR = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent(
+            new CustomThreadPoolConfig(), "rpc-hedge", true);
+
+    private final RpcRequestTransport rpcRequestTransport;
+    /**
+     * 到达 delay 时触发对冲，对冲请求在 hedgeExecutor 上发送
+     */
+    private final Timer timer;
+    private final Executor hedgeExecutor;
+    /**
+     * 固定的 delay，0 表示使用分位数
+     */
+    private final long fixedDelayNanos;
+    private final double percentile;
+    private final long[] samples = new long[SAMPLES];
+    private int recorded;
+    /**
+     * 分位数 delay，样本不足时为 -1
+     */
+    private volatile long percentileDelayNanos = -1;
+    private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+
+    Hedging(RpcRequestTransport rpcRequestTransport, RpcIdempotent idempotent) {
+        this(rpcRequestTransport, idempotent, RpcClientProxy.ASYNC_TIMEOUT_TIMER, HEDGE_EXECUTOR);
+    }
+
+    Hedging(RpcRequestTransport rpcRequestTransport, RpcIdempotent idempotent, Timer timer, Executor hedgeExecutor) {
+        this.rpcRequestTransport = rpcRequestTransport;
+        this.timer = timer;
+        this.hedgeExecutor = hedgeExecutor;
+        this.fixedDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, idempotent.hedgeDelayMillis()));
+        this.percentile = Math.min(100, Math.max(0, idempotent.hedgePercentile()));
+    }
+
+    /**
+     * @return 调用的响应，响应的 requestId 总是 rpcRequest 的 requestId
+     */
+    CompletableFuture<RpcResponse<Object>> send(RpcRequest rpcRequest) {
+        deposit();
+        long start = System.nanoTime();
+        Set<InetSocketAddress> triedProviders = ConcurrentHashMap.newKeySet();
+        CompletableFuture<RpcResponse<Object>> primary = toFuture(rpcRequestTransport.sendRpcRequest(rpcRequest, triedProviders));
+        long delayNanos = fixedDelayNanos > 0 ? fixedDelayNanos : percentileDelayNanos;
+        CompletableFuture<RpcResponse<Object>> result = new CompletableFuture<>();
+        if (delayNanos < 0 || triedProviders.isEmpty() || primary.isDone()) {
+            // not enough samples yet, or the transport does not choose providers
+            primary.whenComplete((rpcResponse, e) -> complete(result, rpcRequest, rpcResponse, e, start));
+            result.whenComplete((rpcResponse, e) -> primary.completeExceptionally(e != null ? e : new HedgeLostException()));
+            return result;
+        }
+        List<CompletableFuture<RpcResponse<Object>>> attempts = new CopyOnWriteArrayList<>();
+        attempts.add(primary);
+        AtomicInteger pending = new AtomicInteger(1);
+        primary.whenComplete((rpcResponse, e) -> onAttempt(result, pending, rpcRequest, rpcResponse, e, start, false));
+        Timeout timeout = timer.newTimeout(t -> {
+            try {
+                hedgeExecutor.execute(() -> hedge(rpcRequest, triedProviders, result, attempts, pending, start));
+            } catch (RejectedExecutionException e) {
+                THROTTLED.increment();
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        // the winner (or the caller timing out) cancels the hedge timer and the other request
+        result.whenComplete((rpcResponse, e) -> {
+            timeout.cancel();
+            attempts.forEach(attempt -> attempt.completeExceptionally(new HedgeLostException()));
+        });
+        return result;
+    }
+
+    private void hedge(RpcRequest rpcRequest, Set<InetSocketAddress> triedProviders, CompletableFuture<RpcResponse<Object>> result,
+                       List<CompletableFuture<RpcResponse<Object>>> attempts, AtomicInteger pending, long start) {
+        if (result.isDone()) {
+            return;
+        }
+        if (!withdraw()) {
+            THROTTLED.increment();
+            return;
+        }
+        RpcRequest duplicate = new RpcRequest(RpcClientProxy.nextRequestId(), rpcRequest.getInterfaceName(), rpcRequest.getMethodName(),
+                rpcRequest.getParameters(), rpcRequest.getParamTypes(), rpcRequest.getVersion(), rpcRequest.getGroup());
+        pending.incrementAndGet();
+        CompletableFuture<RpcResponse<Object>> hedged;
+        try {
+            Object sent = rpcRequestTransport.sendRpcRequest(duplicate, triedProviders);
+            hedged = sent == null ? null : toFuture(sent);
+        } catch (Exception e) {
+            // e.g. the other provider cannot be connected, the first request goes on
+            log.warn("hedge request [{}] failed", rpcRequest.getRequestId(), e);
+            hedged = null;
+        }
+        if (hedged == null) {
+            // no other provider (or it failed), give the token back
+            tokens.addAndGet(TOKEN);
+            if (pending.decrementAndGet() == 0) {
+                // the first request failed meanwhile and left the result to this one
+                attempts.get(0).whenComplete((rpcResponse, e) -> complete(result, rpcRequest, rpcResponse, e, start));
+            }
+            return;
+        }
+        SENT.increment();
+        log.debug("hedge request [{}] of [{}#{}] with [{}]", rpcRequest.getRequestId(), rpcRequest.getInterfaceName(),
+                rpcRequest.getMethodName(), duplicate.getRequestId());
+        attempts.add(hedged);
+        hedged.whenComplete((rpcResponse, e) -> onAttempt(result, pending, rpcRequest, rpcResponse, e, start, true));
+        if (result.isDone()) {
+            hedged.completeExceptionally(new HedgeLostException());
+        }
+    }
+
+    /**
+     * 一个请求完成：成功时它就是结果；失败时只有在没有其他请求未完成时才作为结果
+     */
+    private void onAttempt(CompletableFuture<RpcResponse<Object>> result, AtomicInteger pending, RpcRequest rpcRequest,
+                           RpcResponse<Object> rpcResponse, Throwable e, long start, boolean hedged) {
+        if (e instanceof HedgeLostException) {
+            return;
+        }
+        boolean success = e == null && rpcResponse != null && rpcResponse.getCode() != null
+                && rpcResponse.getCode() == RpcResponseCodeEnum.SUCCESS.getCode();
+        if (pending.decrementAndGet() == 0 || success) {
+            if (complete(result, rpcRequest, rpcResponse, e, start) && success && hedged) {
+                WON.increment();
+            }
+        }
+    }
+
+    private boolean complete(CompletableFuture<RpcResponse<Object>> result, RpcRequest rpcRequest,
+                             RpcResponse<Object> rpcResponse, Throwable e, long start) {
+        if (e != null) {
+            return result.completeExceptionally(e);
+        }
+        if (rpcResponse != null) {
+            // the response of the duplicate answers the original request
+            rpcResponse.setRequestId(rpcRequest.getRequestId());
+            if (rpcResponse.getCode() != null && rpcResponse.getCode() == RpcResponseCodeEnum.SUCCESS.getCode()) {
+                record(System.nanoTime() - start);
+            }
+        }
+        return result.complete(rpcResponse);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<RpcResponse<Object>> toFuture(Object sent) {
+        return sent instanceof CompletableFuture
+                ? (CompletableFuture<RpcResponse<Object>>) sent
+                : CompletableFuture.completedFuture((RpcResponse<Object>) sent);
+    }
+
+    private void deposit() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= MAX_TOKENS) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + BUDGET_PERCENT * TOKEN / 100)));
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private void record(long latencyNanos) {
+        if (fixedDelayNanos > 0) {
+            return;
+        }
+        long[] sorted;
+        synchronized (samples) {
+            samples[recorded % SAMPLES] = latencyNanos;
+            recorded++;
+            if (recorded % MIN_SAMPLES != 0) {
+                return;
+            }
+            sorted = Arrays.copyOf(samples, Math.min(recorded, SAMPLES));
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        percentileDelayNanos = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * 结束输掉的请求，让传输层忘记它
+     */
+    private static final class HedgeLostException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        HedgeLostException() {
+            super("hedged request lost", null, false, false);
+        }
+    }
+}
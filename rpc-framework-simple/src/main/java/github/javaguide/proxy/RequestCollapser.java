@@ -0,0 +1,137 @@
+package github.javaguide.proxy;
+
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 把一个 @RpcBatch 方法的调用攒成一批：第一个调用到达后等待 windowMillis，或者攒够 maxSize 个调用，
+ * 用这些调用的参数调用一次批量方法，再把批量方法的结果（List 按位置，Map 按参数）分给每个调用的 future
+ *
+ * @createTime 2026年10月20日 00:05:00
+ */
+final class RequestCollapser {
+
+    private static final ScheduledExecutorService FLUSH_SCHEDULER = new ScheduledThreadPoolExecutor(1,
+            ThreadPoolFactoryUtil.createThreadFactory("rpc-collapser", true));
+    private static final LongAdder BATCHES = RpcMetrics.counter("rpc.client.collapser.batches");
+    private static final LongAdder COLLAPSED = RpcMetrics.counter("rpc.client.collapser.calls");
+
+    private final long windowMillis;
+    private final int maxSize;
+    /**
+     * 调用批量方法：参数列表 -> 批量方法的结果
+     */
+    private final Function<List<Object>, CompletableFuture<Object>> bulkInvocation;
+    private List<Object> args;
+    private List<CompletableFuture<Object>> futures;
+    private ScheduledFuture<?> scheduledFlush;
+
+    RequestCollapser(long windowMillis, int maxSize, Function<List<Object>, CompletableFuture<Object>> bulkInvocation) {
+        this.windowMillis = windowMillis;
+        this.maxSize = Math.max(1, maxSize);
+        this.bulkInvocation = bulkInvocation;
+    }
+
+    /**
+     * @return 这次调用的结果，批量方法返回后完成
+     */
+    CompletableFuture<Object> submit(Object arg) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        List<Object> batchArgs = null;
+        List<CompletableFuture<Object>> batchFutures = null;
+        synchronized (this) {
+            if (args == null) {
+                args = new ArrayList<>();
+                futures = new ArrayList<>();
+                if (maxSize > 1) {
+                    List<Object> window = args;
+                    scheduledFlush = FLUSH_SCHEDULER.schedule(() -> flush(window), windowMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            args.add(arg);
+            futures.add(future);
+            if (args.size() >= maxSize) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                }
+                batchArgs = args;
+                batchFutures = futures;
+                args = null;
+                futures = null;
+            }
+        }
+        if (batchArgs != null) {
+            send(batchArgs, batchFutures);
+        }
+        return future;
+    }
+
+    /**
+     * 窗口结束，发送这个窗口的调用（已经因为攒够 maxSize 发送过时什么都不做）
+     */
+    private void flush(List<Object> window) {
+        List<CompletableFuture<Object>> batchFutures;
+        synchronized (this) {
+            if (args != window) {
+                return;
+            }
+            batchFutures = futures;
+            args = null;
+            futures = null;
+        }
+        send(window, batchFutures);
+    }
+
+    private void send(List<Object> batchArgs, List<CompletableFuture<Object>> batchFutures) {
+        BATCHES.increment();
+        COLLAPSED.add(batchArgs.size());
+        CompletableFuture<Object> result;
+        try {
+            result = bulkInvocation.apply(batchArgs);
+        } catch (RuntimeException e) {
+            batchFutures.forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        result.whenComplete((bulkResult, e) -> {
+            if (e != null) {
+                batchFutures.forEach(future -> future.completeExceptionally(e));
+            } else {
+                split(batchArgs, batchFutures, bulkResult);
+            }
+        });
+    }
+
+    private static void split(List<Object> batchArgs, List<CompletableFuture<Object>> batchFutures, Object bulkResult) {
+        if (bulkResult instanceof Map) {
+            Map<?, ?> results = (Map<?, ?>) bulkResult;
+            for (int i = 0; i < batchArgs.size(); i++) {
+                batchFutures.get(i).complete(results.get(batchArgs.get(i)));
+            }
+            return;
+        }
+        if (bulkResult instanceof List && ((List<?>) bulkResult).size() == batchArgs.size()) {
+            List<?> results = (List<?>) bulkResult;
+            for (int i = 0; i < batchArgs.size(); i++) {
+                batchFutures.get(i).complete(results.get(i));
+            }
+            return;
+        }
+        RpcException mismatch = new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE,
+                "bulk method returned " + (bulkResult instanceof List ? ((List<?>) bulkResult).size() + " results" : bulkResult)
+                        + " for " + batchArgs.size() + " calls");
+        batchFutures.forEach(future -> future.completeExceptionally(mismatch));
+    }
+}
@@ -1,95 +1,359 @@
 package github.javaguide.proxy;
 
+import github.javaguide.annotation.RpcBatch;
+import github.javaguide.annotation.RpcIdempotent;
+import github.javaguide.annotation.RpcOneWay;
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.enums.RpcResponseCodeEnum;
 import github.javaguide.exception.RpcException;
+import github.javaguide.exception.RpcOverloadedException;
 import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.handler.MethodInvoker;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.dto.SerializedResult;
 import github.javaguide.remoting.transport.RpcRequestTransport;
-import github.javaguide.remoting.transport.netty.client.NettyRpcClient;
-import github.javaguide.remoting.transport.socket.SocketRpcClient;
-import lombok.SneakyThrows;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cglib.proxy.Callback;
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.Factory;
+import org.springframework.cglib.proxy.InvocationHandler;
+import org.springframework.cglib.proxy.NoOp;
 
-import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
- * Dynamic proxy class.
- * When a dynamic proxy object calls a method, it actually calls the following invoke method.
- * It is precisely because of the dynamic proxy that the remote method called by the client is like calling the local method (the intermediate process is shielded)
- * JDK动态代理
+ * Client stub factory.
+ * When a stub object calls a method, it actually calls {@link RemoteMethod#invoke}.
+ * It is precisely because of the stub that the remote method called by the client is like calling the local method (the intermediate process is shielded)
+ * <p>
+ * 每个服务接口第一次使用时用 CGLIB（Spring 内置的版本）生成一个实现类，接口的每个方法对应一个 {@link RemoteMethod} 回调，
+ * 方法名、参数类型、服务名、超时时间在创建 stub 时算好，调用时只需要收集参数并交给传输层发送。
+ * Object 的方法（toString/equals/hashCode）在本地执行，不会发给服务端。
+ * 返回 CompletionStage / CompletableFuture 的方法不等待响应，直接返回一个在响应到达时完成的 future。
+ * {@link RpcServiceConfig#getCachedMethods()} 中的方法的结果由 {@link ClientResultCache} 缓存，
+ * {@link RpcBatch} 方法的调用由 {@link RequestCollapser} 合并成批量方法的调用，{@link RpcOneWay} 方法发送后立即返回，不等待响应，
+ * {@link RpcIdempotent} 方法的慢调用由 {@link Hedging} 对冲到另一个服务端
  * @author shuang.kou
  * @createTime 2020年05月10日 19:01:00
  */
 @Slf4j
-public class RpcClientProxy implements InvocationHandler {
+public class RpcClientProxy {
 
     private static final String INTERFACE_NAME = "interfaceName";
+    /**
+     * 生成的 stub 类（以一个实例的形式缓存，通过 {@link Factory#newInstance(Callback[])} 创建新的 stub）
+     */
+    private static final Map<Class<?>, StubTemplate> STUB_TEMPLATES = new ConcurrentHashMap<>();
+    /**
+     * requestId = 进程内唯一的前缀 + 递增序号，不需要每次调用都生成 UUID（SecureRandom）
+     */
+    private static final String REQUEST_ID_PREFIX = UUID.randomUUID().toString() + "-";
+    private static final AtomicLong REQUEST_ID_SEQUENCE = new AtomicLong();
+    private static final long DEFAULT_CACHE_TTL_MILLIS = 60000;
+    private static final long DEFAULT_CACHE_MAX_BYTES = 16 * 1024 * 1024;
+    private static final boolean HEDGE_ENABLED = RpcConfigUtil.getBoolean(RpcConfigEnum.CLIENT_HEDGE_ENABLED, true);
+    /**
+     * 异步方法的超时，同步方法在调用线程上等待超时
+     */
+    static final Timer ASYNC_TIMEOUT_TIMER = new HashedWheelTimer(
+            ThreadPoolFactoryUtil.createThreadFactory("rpc-async-timeout", true), 10, TimeUnit.MILLISECONDS);
 
     /**
-     * Used to send requests to the server.And there are two implementations: socket and netty
+     * Used to send requests to the server.And there are four implementations: socket, netty, injvm and shm
      */
     private final RpcRequestTransport rpcRequestTransport;
     private final RpcServiceConfig rpcServiceConfig;
+    /**
+     * 结果缓存，没有需要缓存的方法时为 null
+     */
+    private final ClientResultCache resultCache;
+    private final Set<String> cachedMethods;
 
     public RpcClientProxy(RpcRequestTransport rpcRequestTransport, RpcServiceConfig rpcServiceConfig) {
         this.rpcRequestTransport = rpcRequestTransport;
         this.rpcServiceConfig = rpcServiceConfig;
+        String[] methods = rpcServiceConfig.getCachedMethods();
+        this.cachedMethods = methods == null ? Collections.emptySet() : new HashSet<>(Arrays.asList(methods));
+        this.resultCache = cachedMethods.isEmpty() ? null : new ClientResultCache(
+                rpcServiceConfig.getCacheTtlMillis() > 0 ? rpcServiceConfig.getCacheTtlMillis() : DEFAULT_CACHE_TTL_MILLIS,
+                rpcServiceConfig.getCacheMaxBytes() > 0 ? rpcServiceConfig.getCacheMaxBytes() : DEFAULT_CACHE_MAX_BYTES);
     }
 
 
     public RpcClientProxy(RpcRequestTransport rpcRequestTransport) {
-        this.rpcRequestTransport = rpcRequestTransport;
-        this.rpcServiceConfig = new RpcServiceConfig();
+        this(rpcRequestTransport, new RpcServiceConfig());
     }
 
     /**
-     * get the proxy object-获取指定类的代理类对象
+     * get the stub object-获取指定接口的 stub 对象
      */
     @SuppressWarnings("unchecked")
     public <T> T getProxy(Class<T> clazz) {
-        return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, this);
+        StubTemplate template = STUB_TEMPLATES.computeIfAbsent(clazz, StubTemplate::new);
+        Callback[] callbacks = new Callback[template.methods.length + 1];
+        callbacks[0] = NoOp.INSTANCE;
+        for (int i = 0; i < template.methods.length; i++) {
+            callbacks[i + 1] = new RemoteMethod(template.methods[i]);
+        }
+        return (T) template.newInstance(callbacks);
+    }
+
+    static String nextRequestId() {
+        return REQUEST_ID_PREFIX + REQUEST_ID_SEQUENCE.incrementAndGet();
     }
 
     /**
-     * This method is actually called when you use a proxy object to call a method.
-     * The proxy object is the object you get through the getProxy method.
-     * 通过代理对象调用方法时，该方法将被调用
-     * 1.构建RpcRequest对象，对象的方法名，参数等属性从method和args获取；接口实现类的版本，接口实现类的组从rpcServiceConfig中获取
-     * 2.根据客户端类型选择相应通信方式发送RPC请求得到响应，转化为RpcResponse<Object>类型对象
-     * 3.校验响应消息，若失败，抛出相应异常；成功，返回结果
+     * 一个服务接口生成的 stub 类：回调 0 是 NoOp（Object 的方法），回调 i + 1 对应 methods[i]
      */
-    @SneakyThrows
-    @SuppressWarnings("unchecked")
-    @Override
-    public Object invoke(Object proxy, Method method, Object[] args) {
-        log.info("invoked method: [{}]", method.getName());
-        RpcRequest rpcRequest = RpcRequest.builder().methodName(method.getName())
-                .parameters(args)
-                .interfaceName(method.getDeclaringClass().getName())
-                .paramTypes(method.getParameterTypes())
-                .requestId(UUID.randomUUID().toString())
-                .group(rpcServiceConfig.getGroup())
-                .version(rpcServiceConfig.getVersion())
-                .build();
-        RpcResponse<Object> rpcResponse = null;
-        if (rpcRequestTransport instanceof NettyRpcClient) {//netty通信- NIO形式
-            CompletableFuture<RpcResponse<Object>> completableFuture = (CompletableFuture<RpcResponse<Object>>) rpcRequestTransport.sendRpcRequest(rpcRequest);
-            rpcResponse = completableFuture.get();
-        }
-        if (rpcRequestTransport instanceof SocketRpcClient) {//socket通信-阻塞IO形式
-            rpcResponse = (RpcResponse<Object>) rpcRequestTransport.sendRpcRequest(rpcRequest);
-        }
-        this.check(rpcResponse, rpcRequest);
-        return rpcResponse.getData();
+    private static final class StubTemplate implements CallbackFilter {
+        private final Method[] methods;
+        private final Map<Method, Integer> callbackIndexes = new HashMap<>();
+        private volatile Factory prototype;
+        private final Class<?> serviceInterface;
+
+        StubTemplate(Class<?> serviceInterface) {
+            this.serviceInterface = serviceInterface;
+            this.methods = serviceInterface.getMethods();
+            for (int i = 0; i < methods.length; i++) {
+                callbackIndexes.put(methods[i], i + 1);
+            }
+        }
+
+        @Override
+        public int accept(Method method) {
+            return callbackIndexes.getOrDefault(method, 0);
+        }
+
+        synchronized Object newInstance(Callback[] callbacks) {
+            if (prototype == null) {
+                Enhancer enhancer = new Enhancer();
+                enhancer.setClassLoader(serviceInterface.getClassLoader());
+                enhancer.setInterfaces(new Class<?>[]{serviceInterface});
+                enhancer.setCallbackFilter(this);
+                enhancer.setCallbacks(callbacks);
+                // the class is cached here, the enhancer cache would key it on this filter anyway
+                enhancer.setUseCache(false);
+                prototype = (Factory) enhancer.create();
+                return prototype;
+            }
+            return prototype.newInstance(callbacks);
+        }
+    }
+
+    /**
+     * 一个远程方法：请求中除了参数和 requestId 以外的内容都在创建 stub 时确定
+     */
+    private final class RemoteMethod implements InvocationHandler {
+        private final String interfaceName;
+        private final String methodName;
+        private final Class<?>[] paramTypes;
+        private final String group;
+        private final String version;
+        private final long timeoutMillis;
+        private final boolean async;
+        private final boolean cached;
+        private final boolean oneWay;
+        /**
+         * @RpcIdempotent 方法的对冲请求，其他方法为 null
+         */
+        private final Hedging hedging;
+        /**
+         * @RpcBatch 方法的调用合并器，其他方法为 null
+         */
+        private final RequestCollapser collapser;
+
+        RemoteMethod(Method method) {
+            this.interfaceName = method.getDeclaringClass().getName();
+            this.methodName = method.getName();
+            this.paramTypes = method.getParameterTypes();
+            this.group = rpcServiceConfig.getGroup();
+            this.version = rpcServiceConfig.getVersion();
+            this.timeoutMillis = rpcServiceConfig.getTimeout();
+            this.async = MethodInvoker.isAsync(method);
+            this.cached = resultCache != null && cachedMethods.contains(methodName);
+            this.oneWay = method.isAnnotationPresent(RpcOneWay.class);
+            RpcIdempotent idempotent = method.getAnnotation(RpcIdempotent.class);
+            this.hedging = idempotent == null || !HEDGE_ENABLED ? null : new Hedging(rpcRequestTransport, idempotent);
+            if (oneWay && method.getReturnType() != void.class) {
+                throw new IllegalArgumentException("@RpcOneWay method " + interfaceName + "#" + methodName + " must return void");
+            }
+            RpcBatch rpcBatch = method.getAnnotation(RpcBatch.class);
+            this.collapser = rpcBatch == null ? null : collapser(method, rpcBatch);
+        }
+
+        /**
+         * @return 把调用合并成一次批量方法调用的合并器，批量方法是同一个接口中参数为 List 的 rpcBatch.method()
+         */
+        private RequestCollapser collapser(Method method, RpcBatch rpcBatch) {
+            if (method.getParameterCount() != 1) {
+                throw new IllegalArgumentException("@RpcBatch method " + interfaceName + "#" + methodName + " must take one argument");
+            }
+            Method bulkMethod;
+            try {
+                bulkMethod = method.getDeclaringClass().getMethod(rpcBatch.method(), List.class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("no bulk method " + rpcBatch.method() + "(List) in " + interfaceName, e);
+            }
+            RemoteMethod bulk = new RemoteMethod(bulkMethod);
+            Function<List<Object>, CompletableFuture<Object>> bulkInvocation = batchArgs -> bulk.sendAsync(new Object[]{batchArgs});
+            return new RequestCollapser(rpcBatch.windowMillis(), rpcBatch.maxSize(), bulkInvocation);
+        }
+
+        /**
+         * 1.用 stub 中预先算好的方法名、参数类型、服务名和本次调用的参数构建RpcRequest对象
+         * 2.交给传输层发送RPC请求得到响应，转化为RpcResponse<Object>类型对象
+         * 3.校验响应消息，若失败，抛出相应异常；成功，返回结果
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (oneWay) {
+                // fire-and-forget: nothing to wait for
+                rpcRequestTransport.sendOneWay(new RpcRequest(nextRequestId(), interfaceName, methodName, args, paramTypes, version, group));
+                return null;
+            }
+            if (cached) {
+                return invokeCached(args);
+            }
+            if (collapser != null) {
+                return complete(collapser.submit(args[0]));
+            }
+            RpcRequest rpcRequest = new RpcRequest(nextRequestId(), interfaceName, methodName, args, paramTypes, version, group);
+            Object result = send(rpcRequest);
+            if (async) {
+                return completeAsync(result, rpcRequest);
+            }
+            RpcResponse<Object> rpcResponse;
+            if (result instanceof CompletableFuture) {
+                // netty、socket、injvm 等传输返回 CompletableFuture
+                rpcResponse = await((CompletableFuture<RpcResponse<Object>>) result, rpcRequest);
+            } else {
+                rpcResponse = (RpcResponse<Object>) result;
+            }
+            check(rpcResponse, rpcRequest);
+            return resultOf(rpcResponse);
+        }
+
+        /**
+         * 缓存的方法：命中时不发送请求；同一个调用正在请求时等待它的结果，否则发送请求并缓存序列化好的结果
+         */
+        private Object invokeCached(Object[] args) throws Throwable {
+            CompletableFuture<Object> result = resultCache.get(this, args, () -> {
+                if (collapser != null) {
+                    return collapser.submit(args[0]).thenApply(ClientResultCache::serialize);
+                }
+                RpcRequest rpcRequest = new RpcRequest(nextRequestId(), interfaceName, methodName, args, paramTypes, version, group);
+                // the request is shared by the calls waiting for it, it times out on its own
+                return withTimeout(send(rpcRequest)).thenApply(rpcResponse -> {
+                    check(rpcResponse, rpcRequest);
+                    return ClientResultCache.serialize(rpcResponse.getData());
+                });
+            }).thenApply(SerializedResult::deserialize);
+            return complete(result);
+        }
+
+        /**
+         * @return 异步方法直接返回 future，同步方法等待结果（future 由超时定时器保证完成）
+         */
+        private Object complete(CompletableFuture<Object> result) throws Throwable {
+            if (async) {
+                return result;
+            }
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException ? e.getCause() : e;
+            }
+        }
+
+        /**
+         * @return 传输层返回的 future 或响应，幂等方法的慢调用会被对冲到另一个服务端
+         */
+        private Object send(RpcRequest rpcRequest) {
+            return hedging != null ? hedging.send(rpcRequest) : rpcRequestTransport.sendRpcRequest(rpcRequest);
+        }
+
+        CompletableFuture<Object> sendAsync(Object[] args) {
+            RpcRequest rpcRequest = new RpcRequest(nextRequestId(), interfaceName, methodName, args, paramTypes, version, group);
+            return completeAsync(send(rpcRequest), rpcRequest);
+        }
+
+        private CompletableFuture<Object> completeAsync(Object result, RpcRequest rpcRequest) {
+            return withTimeout(result).thenApply(rpcResponse -> {
+                check(rpcResponse, rpcRequest);
+                return resultOf(rpcResponse);
+            });
+        }
+
+        /**
+         * @param result 传输层返回的 future 或响应
+         * @return 超时后异常完成的 future
+         */
+        @SuppressWarnings("unchecked")
+        private CompletableFuture<RpcResponse<Object>> withTimeout(Object result) {
+            CompletableFuture<RpcResponse<Object>> future = result instanceof CompletableFuture
+                    ? (CompletableFuture<RpcResponse<Object>>) result
+                    : CompletableFuture.completedFuture((RpcResponse<Object>) result);
+            if (timeoutMillis > 0 && !future.isDone()) {
+                // completing the future exceptionally lets the transport forget the request
+                Timeout timeout = ASYNC_TIMEOUT_TIMER.newTimeout(t -> future.completeExceptionally(timeoutException()),
+                        timeoutMillis, TimeUnit.MILLISECONDS);
+                future.whenComplete((rpcResponse, e) -> timeout.cancel());
+            }
+            return future;
+        }
+
+        private RpcException timeoutException() {
+            return new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_TIMEOUT,
+                    INTERFACE_NAME + ":" + interfaceName + "#" + methodName + " after " + timeoutMillis + "ms");
+        }
+
+        private RpcResponse<Object> await(CompletableFuture<RpcResponse<Object>> future, RpcRequest rpcRequest) throws Throwable {
+            try {
+                return timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+            } catch (TimeoutException e) {
+                RpcException timeout = timeoutException();
+                // lets the transport forget the request
+                future.completeExceptionally(timeout);
+                throw timeout;
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException ? e.getCause() : e;
+            }
+        }
+    }
+
+    /**
+     * 服务端缓存的结果是序列化好的字节（{@link SerializedResult}），在这里反序列化
+     */
+    static Object resultOf(RpcResponse<Object> rpcResponse) {
+        Object data = rpcResponse.getData();
+        return data instanceof SerializedResult ? ((SerializedResult) data).deserialize() : data;
     }
 
-    private void check(RpcResponse<Object> rpcResponse, RpcRequest rpcRequest) {
+    static void check(RpcResponse<Object> rpcResponse, RpcRequest rpcRequest) {
         //服务调用失败
         if (rpcResponse == null) {
             throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE, INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
@@ -98,6 +362,10 @@ public class RpcClientProxy implements InvocationHandler {
         if (!rpcRequest.getRequestId().equals(rpcResponse.getRequestId())) {
             throw new RpcException(RpcErrorMessageEnum.REQUEST_NOT_MATCH_RESPONSE, INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
         }
+        //服务端过载，请求没有执行，调用方可以换一个服务端重试
+        if (rpcResponse.getCode() != null && rpcResponse.getCode() == RpcResponseCodeEnum.OVERLOADED.getCode()) {
+            throw new RpcOverloadedException(INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
+        }
         //服务调用失败
         if (rpcResponse.getCode() == null || !rpcResponse.getCode().equals(RpcResponseCodeEnum.SUCCESS.getCode())) {
             throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE, INTERFACE_NAME + ":" + rpcRequest.getInterfaceName());
@@ -4,6 +4,8 @@ import github.javaguide.extension.SPI;
 import github.javaguide.remoting.dto.RpcRequest;
 
 import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * service discovery
@@ -20,4 +22,34 @@ public interface ServiceDiscovery {
      * @return service address
      */
     InetSocketAddress lookupService(RpcRequest rpcRequest);
+
+    /**
+     * lookup service by rpcServiceName, skipping the given providers (used to send a hedged request to another provider)
+     *
+     * @param rpcRequest rpc service pojo
+     * @param excluded   addresses that must not be chosen
+     * @return service address chosen by the load balance among the others, null if there is no other provider
+     */
+    default InetSocketAddress lookupService(RpcRequest rpcRequest, Collection<InetSocketAddress> excluded) {
+        return excluded.isEmpty() ? lookupService(rpcRequest) : null;
+    }
+
+    /**
+     * lookup all the addresses of a service, used to warm up connections before the first call
+     *
+     * @param rpcServiceName rpc service name (interface name + group + version)
+     * @return all the service addresses, empty if no provider is found
+     */
+    List<InetSocketAddress> lookupServiceAddresses(String rpcServiceName);
+
+    /**
+     * lookup the unix domain socket a provider listens on besides its tcp address
+     *
+     * @param rpcServiceName rpc service name
+     * @param serviceAddress tcp address of the provider
+     * @return unix domain socket path, null if the provider did not register one
+     */
+    default String lookupDomainSocket(String rpcServiceName, InetSocketAddress serviceAddress) {
+        return null;
+    }
 }
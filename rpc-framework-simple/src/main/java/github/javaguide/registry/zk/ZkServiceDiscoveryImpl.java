@@ -1,5 +1,6 @@
 package github.javaguide.registry.zk;
 
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
@@ -8,10 +9,13 @@ import github.javaguide.registry.ServiceDiscovery;
 import github.javaguide.registry.zk.util.CuratorUtils;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.utils.CollectionUtil;
+import github.javaguide.utils.RpcConfigUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -25,7 +29,18 @@ public class ZkServiceDiscoveryImpl implements ServiceDiscovery {
     private final LoadBalance loadBalance;
 
     public ZkServiceDiscoveryImpl() {
-        this.loadBalance = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension("loadBalance");
+        this(RpcConfigUtil.getString(RpcConfigEnum.CLIENT_LOAD_BALANCE, "loadBalance"));
+    }
+
+    /**
+     * @param loadBalanceName extension name of the load balance, rpc.client.load-balance by default
+     */
+    ZkServiceDiscoveryImpl(String loadBalanceName) {
+        this.loadBalance = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(loadBalanceName);
+    }
+
+    LoadBalance getLoadBalance() {
+        return loadBalance;
     }
 
     /**
@@ -48,7 +63,52 @@ public class ZkServiceDiscoveryImpl implements ServiceDiscovery {
         // load balancing
         String targetServiceUrl = loadBalance.selectServiceAddress(serviceUrlList, rpcRequest);
         log.info("Successfully found the service address:[{}]", targetServiceUrl);
-        String[] socketAddressArray = targetServiceUrl.split(":");
+        return toSocketAddress(targetServiceUrl);
+    }
+
+    @Override
+    public InetSocketAddress lookupService(RpcRequest rpcRequest, Collection<InetSocketAddress> excluded) {
+        if (excluded.isEmpty()) {
+            return lookupService(rpcRequest);
+        }
+        List<String> allServiceUrls = CuratorUtils.getChildrenNodes(CuratorUtils.getZkClient(), rpcRequest.getRpcServiceName());
+        if (CollectionUtil.isEmpty(allServiceUrls)) {
+            return null;
+        }
+        List<String> serviceUrlList = new ArrayList<>();
+        for (String serviceUrl : allServiceUrls) {
+            if (!excluded.contains(toSocketAddress(serviceUrl))) {
+                serviceUrlList.add(serviceUrl);
+            }
+        }
+        if (serviceUrlList.isEmpty()) {
+            return null;
+        }
+        return toSocketAddress(loadBalance.selectServiceAddress(serviceUrlList, rpcRequest));
+    }
+
+    @Override
+    public List<InetSocketAddress> lookupServiceAddresses(String rpcServiceName) {
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        List<String> serviceUrlList = CuratorUtils.getChildrenNodes(zkClient, rpcServiceName);
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        if (CollectionUtil.isEmpty(serviceUrlList)) {
+            return addresses;
+        }
+        for (String serviceUrl : serviceUrlList) {
+            addresses.add(toSocketAddress(serviceUrl));
+        }
+        return addresses;
+    }
+
+    @Override
+    public String lookupDomainSocket(String rpcServiceName, InetSocketAddress serviceAddress) {
+        String serviceUrl = serviceAddress.getAddress().getHostAddress() + ":" + serviceAddress.getPort();
+        return CuratorUtils.getNodeData(CuratorUtils.getZkClient(), rpcServiceName, serviceUrl);
+    }
+
+    private static InetSocketAddress toSocketAddress(String serviceUrl) {
+        String[] socketAddressArray = serviceUrl.split(":");
         String host = socketAddressArray[0];
         int port = Integer.parseInt(socketAddressArray[1]);
         return new InetSocketAddress(host, port);
@@ -32,4 +32,14 @@ public class ZkServiceRegistryImpl implements ServiceRegistry {
         CuratorFramework zkClient = CuratorUtils.getZkClient();
         CuratorUtils.createPersistentNode(zkClient, servicePath);
     }
+
+    /**
+     * 节点数据保存服务端监听的 unix domain socket 路径，同一台机器上的客户端优先使用它
+     */
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, String domainSocketPath) {
+        String servicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + inetSocketAddress.toString();
+        CuratorFramework zkClient = CuratorUtils.getZkClient();
+        CuratorUtils.createPersistentNode(zkClient, servicePath, domainSocketPath);
+    }
 }
@@ -13,8 +13,11 @@ import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,6 +36,10 @@ public final class CuratorUtils {
     private static final int MAX_RETRIES = 3;
     public static final String ZK_REGISTER_ROOT_PATH = "/my-rpc";
     private static final Map<String, List<String>> SERVICE_ADDRESS_MAP = new ConcurrentHashMap<>();
+    /**
+     * 服务地址节点路径 -> 节点数据（unix domain socket 路径），服务的子节点变化时清空
+     */
+    private static final Map<String, Optional<String>> NODE_DATA_MAP = new ConcurrentHashMap<>();
     private static final Set<String> REGISTERED_PATH_SET = ConcurrentHashMap.newKeySet();//zookeeper上已注册节点路径集合
     private static CuratorFramework zkClient;
     private static final String DEFAULT_ZOOKEEPER_ADDRESS = "127.0.0.1:2181";
@@ -46,12 +53,27 @@ public final class CuratorUtils {
      * @param path node path
      */
     public static void createPersistentNode(CuratorFramework zkClient, String path) {
+        createPersistentNode(zkClient, path, null);
+    }
+
+    /**
+     * Create persistent nodes with data, the data of an existing node is replaced
+     *
+     * @param path node path
+     * @param data node data, null means no data
+     */
+    public static void createPersistentNode(CuratorFramework zkClient, String path, String data) {
+        byte[] bytes = data == null ? new byte[0] : data.getBytes(StandardCharsets.UTF_8);
         try {
             if (REGISTERED_PATH_SET.contains(path) || zkClient.checkExists().forPath(path) != null) {
                 log.info("The node already exists. The node is:[{}]", path);
+                // the provider may have been restarted with a different configuration
+                if (!Arrays.equals(bytes, zkClient.getData().forPath(path))) {
+                    zkClient.setData().forPath(path, bytes);
+                }
             } else {
                 //eg: /my-rpc/github.javaguide.HelloService/127.0.0.1:9999
-                zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path);
+                zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path, bytes);
                 log.info("The node was created successfully. The node is:[{}]", path);
             }
             REGISTERED_PATH_SET.add(path);
@@ -60,6 +82,26 @@ public final class CuratorUtils {
         }
     }
 
+    /**
+     * Gets the data of a service address node, cached until the children of the service change
+     *
+     * @param rpcServiceName rpc service name
+     * @param serviceAddress service address eg:127.0.0.1:9998
+     * @return node data, null if the node has no data
+     */
+    public static String getNodeData(CuratorFramework zkClient, String rpcServiceName, String serviceAddress) {
+        String path = ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + "/" + serviceAddress;
+        return NODE_DATA_MAP.computeIfAbsent(path, key -> {
+            try {
+                byte[] bytes = zkClient.getData().forPath(key);
+                return bytes == null || bytes.length == 0 ? Optional.empty() : Optional.of(new String(bytes, StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                log.error("get data for path [{}] fail", key);
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
     /**
      * Gets the children under a node
      *
@@ -137,6 +179,7 @@ public final class CuratorUtils {
         PathChildrenCacheListener pathChildrenCacheListener = (curatorFramework, pathChildrenCacheEvent) -> {
             List<String> serviceAddresses = curatorFramework.getChildren().forPath(servicePath);
             SERVICE_ADDRESS_MAP.put(rpcServiceName, serviceAddresses);
+            NODE_DATA_MAP.keySet().removeIf(path -> path.startsWith(servicePath + "/"));
         };
         pathChildrenCache.getListenable().addListener(pathChildrenCacheListener);
         pathChildrenCache.start();
@@ -24,9 +24,22 @@ public class RpcConstants {
     public static final byte HEARTBEAT_REQUEST_TYPE = 3;
     //pong
     public static final byte HEARTBEAT_RESPONSE_TYPE = 4;
+    //flow control: server grants request credits to the client, body is a 4B credit increment
+    public static final byte CREDIT_TYPE = 5;
+    //several requests in one frame, body is an RpcBatchRequest, answered by one BATCH_RESPONSE_TYPE frame
+    public static final byte BATCH_REQUEST_TYPE = 6;
+    public static final byte BATCH_RESPONSE_TYPE = 7;
+    //one-way request, body is an RpcRequest, the server sends no response
+    public static final byte ONEWAY_TYPE = 8;
     public static final int HEAD_LENGTH = 16;
+    //ping/pong body: 8B System.nanoTime() of the client when the ping was sent
+    public static final int HEARTBEAT_BODY_LENGTH = 8;
     public static final String PING = "ping";
     public static final String PONG = "pong";
     public static final int MAX_FRAME_LENGTH = 8 * 1024 * 1024;
+    /**
+     * Request credits a client owns on a new connection before the server grants more
+     */
+    public static final int INITIAL_REQUEST_WINDOW = 256;
 
 }
@@ -0,0 +1,27 @@
+package github.javaguide.remoting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 一次发送给同一个服务端的多个请求（一个帧），服务端并行或按顺序执行，所有请求完成后用一个 {@link RpcBatchResponse} 响应
+ *
+ * @createTime 2026年10月20日 00:20:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+public class RpcBatchRequest implements Serializable {
+    private static final long serialVersionUID = -6391505784254721130L;
+    private List<RpcRequest> requests;
+    /**
+     * true: 一个请求完成（成功或失败）后才执行下一个；false: 各个请求同时提交执行
+     */
+    private boolean ordered;
+}
@@ -0,0 +1,23 @@
+package github.javaguide.remoting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * {@link RpcBatchRequest} 的响应，每个请求一个 {@link RpcResponse}，通过 requestId 对应到请求
+ *
+ * @createTime 2026年10月20日 00:20:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+public class RpcBatchResponse implements Serializable {
+    private static final long serialVersionUID = 2816436870262364715L;
+    private List<RpcResponse<Object>> responses;
+}
@@ -40,5 +40,9 @@ public class RpcMessage {
      * request data
      */
     private Object data;
+    /**
+     * server side: bytes of the request frame admitted against the {@code InboundBudget}, released once the request is handled
+     */
+    private int inboundBytes;
 
 }
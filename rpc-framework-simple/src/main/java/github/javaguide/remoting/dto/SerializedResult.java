@@ -0,0 +1,39 @@
+package github.javaguide.remoting.dto;
+
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.serialize.Serializer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 已经序列化好的方法结果，作为 {@link RpcResponse#getData()} 发送，服务端不再序列化结果对象本身，
+ * 客户端 stub 收到后再反序列化成结果
+ *
+ * @createTime 2026年10月19日 22:45:00
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+public class SerializedResult implements Serializable {
+    private static final long serialVersionUID = 3630262429383502187L;
+    /**
+     * serialization type of the bytes, see {@link SerializationTypeEnum}
+     */
+    private byte codec;
+    private byte[] bytes;
+
+    public static SerializedResult of(Object result, SerializationTypeEnum serializationType) {
+        Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serializationType.getName());
+        return new SerializedResult(serializationType.getCode(), serializer.serialize(result));
+    }
+
+    public Object deserialize() {
+        Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
+                .getExtension(SerializationTypeEnum.getName(codec));
+        return serializer.deserialize(bytes, Object.class);
+    }
+}
@@ -0,0 +1,34 @@
+package github.javaguide.remoting.handler;
+
+import java.util.Arrays;
+
+/**
+ * 用参数列表作为 key（结果缓存、合并相同的调用），数组参数按内容比较
+ *
+ * @createTime 2026年10月19日 23:30:00
+ */
+public final class ArgumentsKey {
+
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    private final Object[] args;
+    private final int hash;
+
+    /**
+     * @param args 不会被复制，作为 key 长期保存时由调用方复制
+     */
+    public ArgumentsKey(Object[] args) {
+        this.args = args == null ? EMPTY_ARGS : args;
+        this.hash = Arrays.deepHashCode(this.args);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ArgumentsKey && hash == ((ArgumentsKey) o).hash && Arrays.deepEquals(args, ((ArgumentsKey) o).args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
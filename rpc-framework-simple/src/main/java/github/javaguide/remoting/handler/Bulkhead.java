@@ -0,0 +1,58 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.utils.concurrent.threadpool.CustomThreadPoolConfig;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 舱壁：执行一组服务（或一个方法）调用的固定大小线程池
+ * <p>
+ * 所有线程共享一个有界队列，空闲的线程取下一个请求执行，同一个连接上的请求不会绑定到某一个线程，
+ * 一个慢请求只占用一个线程，不会挡住同一连接后面的请求。队列满时 {@link #execute(Runnable)} 抛出
+ * {@link RejectedExecutionException}，由调用方（I/O 线程）立即返回失败响应，而不是在 I/O 线程上执行
+ *
+ * @createTime 2026年10月19日 20:40:00
+ */
+public final class Bulkhead implements Executor {
+
+    private final String name;
+    private final ThreadPoolExecutor threadPool;
+    private final LongAdder rejected;
+
+    Bulkhead(String name, int threads, int queueCapacity) {
+        this.name = name;
+        CustomThreadPoolConfig customThreadPoolConfig = new CustomThreadPoolConfig();
+        customThreadPoolConfig.setCorePoolSize(threads);
+        customThreadPoolConfig.setMaximumPoolSize(threads);
+        customThreadPoolConfig.setWorkQueue(new ArrayBlockingQueue<>(queueCapacity));
+        // registered in ThreadPoolFactoryUtil, so it is shut down by the shutdown hook with the other pools
+        this.threadPool = (ThreadPoolExecutor) ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent(
+                customThreadPoolConfig, "rpc-bulkhead-" + name, false);
+        this.rejected = RpcMetrics.counter("rpc.server.bulkhead.rejected[" + name + "]");
+        RpcMetrics.gauge("rpc.server.bulkhead.queue-depth[" + name + "]", () -> threadPool.getQueue().size());
+        RpcMetrics.gauge("rpc.server.bulkhead.active[" + name + "]", threadPool::getActiveCount);
+    }
+
+    /**
+     * @throws RejectedExecutionException 线程都在忙且队列已满
+     */
+    @Override
+    public void execute(Runnable task) {
+        try {
+            threadPool.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+}
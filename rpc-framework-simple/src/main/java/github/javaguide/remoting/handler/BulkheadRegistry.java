@@ -0,0 +1,99 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.RuntimeUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 服务调用的执行器路由：按 rpc服务名 和 方法名 选择 {@link Bulkhead}
+ * <p>
+ * 服务发布时根据 @RpcService 的 bulkhead / isolatedMethods 配置创建舱壁，没有配置的服务使用各个服务端自己的默认执行器。
+ * 查找顺序：方法的舱壁 -> 服务的舱壁 -> 默认执行器
+ *
+ * @createTime 2026年10月19日 20:45:00
+ */
+@Slf4j
+public final class BulkheadRegistry {
+
+    public static final String DEFAULT_BULKHEAD = "default";
+
+    /**
+     * key: bulkhead name
+     */
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    /**
+     * key: rpc service name
+     */
+    private final Map<String, Bulkhead> serviceBulkheads = new ConcurrentHashMap<>();
+    /**
+     * key: rpc service name, value: method name -> bulkhead
+     */
+    private final Map<String, Map<String, Bulkhead>> methodBulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * 为服务及其隔离的方法创建舱壁，服务添加时调用
+     */
+    public void register(RpcServiceConfig rpcServiceConfig) {
+        String bulkhead = rpcServiceConfig.getBulkhead();
+        String[] isolatedMethods = rpcServiceConfig.getIsolatedMethods();
+        boolean hasBulkhead = bulkhead != null && !bulkhead.isEmpty();
+        if (!hasBulkhead && (isolatedMethods == null || isolatedMethods.length == 0)) {
+            return;
+        }
+        String rpcServiceName = rpcServiceConfig.getRpcServiceName();
+        int threads = rpcServiceConfig.getBulkheadThreads();
+        int queueCapacity = rpcServiceConfig.getBulkheadQueueCapacity();
+        if (hasBulkhead) {
+            serviceBulkheads.put(rpcServiceName, getOrCreate(bulkhead, threads, queueCapacity));
+        }
+        if (isolatedMethods != null) {
+            String prefix = hasBulkhead ? bulkhead : rpcServiceConfig.getServiceName();
+            for (String methodName : isolatedMethods) {
+                methodBulkheads.computeIfAbsent(rpcServiceName, k -> new ConcurrentHashMap<>())
+                        .put(methodName, getOrCreate(prefix + "#" + methodName, threads, queueCapacity));
+            }
+        }
+    }
+
+    /**
+     * @param defaultExecutor 没有为请求的服务或方法配置舱壁时使用的执行器
+     * @return 执行该请求的执行器
+     */
+    public Executor select(RpcRequest rpcRequest, Executor defaultExecutor) {
+        if (serviceBulkheads.isEmpty() && methodBulkheads.isEmpty()) {
+            return defaultExecutor;
+        }
+        String rpcServiceName = rpcRequest.getRpcServiceName();
+        Map<String, Bulkhead> methods = methodBulkheads.get(rpcServiceName);
+        if (methods != null) {
+            Bulkhead bulkhead = methods.get(rpcRequest.getMethodName());
+            if (bulkhead != null) {
+                return bulkhead;
+            }
+        }
+        Bulkhead bulkhead = serviceBulkheads.get(rpcServiceName);
+        return bulkhead != null ? bulkhead : defaultExecutor;
+    }
+
+    /**
+     * 同名的舱壁只创建一次，以第一次创建时的大小为准
+     *
+     * @param threads       0 表示 rpc.server.bulkhead.threads（默认 cpu核心数*2）
+     * @param queueCapacity 0 表示 rpc.server.bulkhead.queue-capacity（默认 1000）
+     */
+    public Bulkhead getOrCreate(String name, int threads, int queueCapacity) {
+        return bulkheads.computeIfAbsent(name, k -> {
+            int poolSize = threads > 0 ? threads : RpcConfigUtil.getInt(RpcConfigEnum.SERVER_BULKHEAD_THREADS, RuntimeUtil.cpus() * 2);
+            int capacity = queueCapacity > 0 ? queueCapacity : RpcConfigUtil.getInt(RpcConfigEnum.SERVER_BULKHEAD_QUEUE_CAPACITY, 1000);
+            log.info("create bulkhead [{}] with [{}] threads and queue capacity [{}]", name, poolSize, capacity);
+            return new Bulkhead(name, Math.max(1, poolSize), Math.max(1, capacity));
+        });
+    }
+}
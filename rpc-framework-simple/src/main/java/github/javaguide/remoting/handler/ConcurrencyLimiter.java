@@ -0,0 +1,114 @@
+package github.javaguide.remoting.handler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个服务的自适应并发限制（gradient 算法）
+ * <p>
+ * 记录请求从进入服务端到执行完成的耗时（包括在舱壁队列中的等待），每个采样窗口用长期平均耗时和窗口平均耗时的比值（gradient）调整限制：
+ * 耗时没有变长时限制逐步增加（每个窗口约 sqrt(limit) / 5）；排队使耗时变长时按比例减小。同时执行的请求达到限制后，新的请求在进入队列前被拒绝，
+ * 服务端过载时不再接收注定会超时的请求
+ *
+ * @createTime 2026年10月19日 21:35:00
+ */
+public final class ConcurrencyLimiter {
+
+    /**
+     * 本次耗时不超过长期平均耗时的 TOLERANCE 倍时不减小限制
+     */
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    /**
+     * 每 SAMPLE_WINDOW 个请求调整一次限制，用这些请求的平均耗时作为本次耗时
+     */
+    static final int SAMPLE_WINDOW = 20;
+    /**
+     * 长期平均耗时的窗口（SAMPLE_WINDOW 的个数）
+     */
+    private static final int LONG_WINDOW = 20;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRttNanos;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return false 表示达到限制，请求应当被拒绝
+     */
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > (int) limit) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 请求执行完成
+     *
+     * @param rttNanos 从 {@link #tryAcquire()} 到执行完成的耗时
+     */
+    public void release(long rttNanos) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        if (rttNanos > 0) {
+            update(rttNanos, inFlightAtRelease);
+        }
+    }
+
+    /**
+     * 请求没有执行（例如舱壁已满），不作为耗时样本
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtRelease) {
+        windowRttSum += rttNanos;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtRelease);
+        if (++windowSamples < SAMPLE_WINDOW) {
+            return;
+        }
+        double shortRttNanos = (double) windowRttSum / windowSamples;
+        int maxInFlight = windowMaxInFlight;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        if (longRttNanos == 0) {
+            longRttNanos = shortRttNanos;
+        } else {
+            longRttNanos += (shortRttNanos - longRttNanos) / LONG_WINDOW;
+        }
+        // after a long period of high latency, let the baseline come down faster
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        double currentLimit = limit;
+        // far below the limit: the latency says nothing about the limit, do not grow it
+        if (maxInFlight < currentLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+        double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        newLimit = currentLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
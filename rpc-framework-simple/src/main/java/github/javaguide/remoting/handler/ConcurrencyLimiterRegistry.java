@@ -0,0 +1,56 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 每个服务一个 {@link ConcurrencyLimiter}，服务添加时创建（rpc.server.limiter.enabled=true 时）
+ *
+ * @createTime 2026年10月19日 21:40:00
+ */
+@Slf4j
+public final class ConcurrencyLimiterRegistry {
+
+    private static final boolean ENABLED = RpcConfigUtil.getBoolean(RpcConfigEnum.SERVER_LIMITER_ENABLED, false);
+
+    /**
+     * key: rpc service name
+     */
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public void register(String rpcServiceName) {
+        if (!ENABLED) {
+            return;
+        }
+        limiters.computeIfAbsent(rpcServiceName, k -> {
+            int minLimit = Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.SERVER_LIMITER_MIN_LIMIT, 4));
+            int maxLimit = Math.max(minLimit, RpcConfigUtil.getInt(RpcConfigEnum.SERVER_LIMITER_MAX_LIMIT, 1000));
+            int initialLimit = RpcConfigUtil.getInt(RpcConfigEnum.SERVER_LIMITER_INITIAL_LIMIT, 20);
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(initialLimit, minLimit, maxLimit);
+            RpcMetrics.gauge("rpc.server.limiter.limit[" + rpcServiceName + "]", limiter::getLimit);
+            RpcMetrics.gauge("rpc.server.limiter.in-flight[" + rpcServiceName + "]", limiter::getInFlight);
+            log.info("adaptive concurrency limit of [{}] starts at [{}], min [{}], max [{}]",
+                    rpcServiceName, limiter.getLimit(), minLimit, maxLimit);
+            return limiter;
+        });
+    }
+
+    /**
+     * @return 服务的限制器，没有开启或服务不存在时返回 null
+     */
+    public ConcurrencyLimiter get(String rpcServiceName) {
+        return limiters.isEmpty() ? null : limiters.get(rpcServiceName);
+    }
+
+    /**
+     * 记录一次因为超过限制被拒绝的请求
+     */
+    public void rejected(String rpcServiceName) {
+        RpcMetrics.counter("rpc.server.limiter.rejected[" + rpcServiceName + "]").increment();
+    }
+}
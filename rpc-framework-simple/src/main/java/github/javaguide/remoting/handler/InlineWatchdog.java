@@ -0,0 +1,72 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.annotation.RpcInline;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link RpcInline} 方法的看门狗
+ * <p>
+ * 服务发布时为标注了 @RpcInline 的方法开启 I/O 线程执行；每次在 I/O 线程上执行后检查耗时，超出预算时打印警告，
+ * 连续超出的次数达到 rpc.server.inline.max-overruns 后把方法降级，之后的请求交给舱壁执行
+ *
+ * @createTime 2026年10月19日 21:10:00
+ */
+@Slf4j
+public final class InlineWatchdog {
+
+    private static final boolean ENABLED = RpcConfigUtil.getBoolean(RpcConfigEnum.SERVER_INLINE_ENABLED, true);
+    private static final int MAX_OVERRUNS = Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.SERVER_INLINE_MAX_OVERRUNS, 3));
+
+    private final LongAdder overruns = RpcMetrics.counter("rpc.server.inline.overruns");
+    private final LongAdder demoted = RpcMetrics.counter("rpc.server.inline.demoted");
+
+    /**
+     * 接口方法或实现类中对应的方法上有 @RpcInline 时开启 I/O 线程执行
+     *
+     * @param serviceClass 服务实现类
+     */
+    public void configure(MethodInvoker invoker, Class<?> serviceClass) {
+        if (!ENABLED) {
+            return;
+        }
+        Method method = invoker.getMethod();
+        RpcInline rpcInline = invoker.getAnnotation(RpcInline.class, serviceClass);
+        if (rpcInline != null && rpcInline.budgetMicros() > 0) {
+            invoker.setInlineBudgetNanos(TimeUnit.MICROSECONDS.toNanos(rpcInline.budgetMicros()));
+            log.info("[{}#{}] runs on the I/O thread, budget [{}]us", serviceClass.getName(), method.getName(), rpcInline.budgetMicros());
+        }
+    }
+
+    /**
+     * @param elapsedNanos 本次在 I/O 线程上执行的耗时
+     */
+    public void record(MethodInvoker invoker, long elapsedNanos) {
+        long budgetNanos = invoker.getInlineBudgetNanos();
+        if (budgetNanos <= 0) {
+            return;
+        }
+        if (elapsedNanos <= budgetNanos) {
+            // a single slow call (jit warm-up, gc pause) must not demote the method
+            invoker.inlineWithinBudget();
+            return;
+        }
+        overruns.increment();
+        Method method = invoker.getMethod();
+        int count = invoker.inlineOverrun();
+        log.warn("inline method [{}#{}] took [{}]us on the I/O thread, budget [{}]us ({}/{})",
+                method.getDeclaringClass().getName(), method.getName(),
+                TimeUnit.NANOSECONDS.toMicros(elapsedNanos), TimeUnit.NANOSECONDS.toMicros(budgetNanos), count, MAX_OVERRUNS);
+        if (count >= MAX_OVERRUNS && invoker.isInline()) {
+            invoker.setInlineBudgetNanos(0);
+            demoted.increment();
+            log.warn("inline method [{}#{}] is moved back to the bulkhead", method.getDeclaringClass().getName(), method.getName());
+        }
+    }
+}
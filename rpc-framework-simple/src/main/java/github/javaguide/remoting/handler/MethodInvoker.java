@@ -0,0 +1,168 @@
+package github.javaguide.remoting.handler;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 服务方法的调用器，在服务发布时为接口的每个方法创建一次
+ * <p>
+ * 把方法转换成类型为 (Object service, Object[] args)Object 的 MethodHandle，调用时不再查找方法，
+ * 也不经过 Method.invoke 的访问检查和参数数组拷贝。通过接口方法（invokeinterface）调用，
+ * 服务实现类不是 public 时也可以访问
+ *
+ * @createTime 2026年10月19日 20:10:00
+ */
+public final class MethodInvoker {
+
+    private static final Object[] EMPTY_ARGS = new Object[0];
+    private static final Class<?>[] EMPTY_TYPES = new Class<?>[0];
+
+    private final Method method;
+    private final Class<?>[] parameterTypes;
+    private final MethodHandle methodHandle;
+    /**
+     * 返回 CompletionStage / CompletableFuture 的异步方法，响应在 future 完成时写出
+     */
+    private final boolean async;
+    /**
+     * 在 I/O 线程上执行（@RpcInline）的时间预算，0 表示不在 I/O 线程上执行
+     */
+    private volatile long inlineBudgetNanos;
+    private final AtomicInteger inlineOverruns = new AtomicInteger();
+    /**
+     * @RpcCacheable 方法的结果缓存，服务发布时设置，其他方法为 null
+     */
+    private ResultCache resultCache;
+    /**
+     * @RpcSingleFlight 方法正在执行的调用，其他方法为 null
+     */
+    private SingleFlight singleFlight;
+
+    private MethodInvoker(Method method, MethodHandle methodHandle) {
+        this.method = method;
+        // Method.getParameterTypes() clones the array on every call
+        this.parameterTypes = method.getParameterTypes();
+        this.methodHandle = methodHandle;
+        this.async = isAsync(method);
+    }
+
+    /**
+     * @return 方法的返回类型是 CompletionStage 或 CompletableFuture（客户端 stub 也按这个规则返回 future）
+     */
+    public static boolean isAsync(Method method) {
+        Class<?> returnType = method.getReturnType();
+        return returnType == CompletionStage.class || returnType == CompletableFuture.class;
+    }
+
+    /**
+     * @param method 服务接口中声明的方法
+     */
+    public static MethodInvoker of(Method method) throws IllegalAccessException {
+        MethodHandle methodHandle;
+        try {
+            methodHandle = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // non-public service interface
+            method.setAccessible(true);
+            methodHandle = MethodHandles.lookup().unreflect(method);
+        }
+        int parameterCount = method.getParameterCount();
+        // box primitives and erase types: (Object, Object...)Object
+        methodHandle = methodHandle.asType(MethodType.genericMethodType(parameterCount + 1))
+                .asSpreader(Object[].class, parameterCount);
+        return new MethodInvoker(method, methodHandle);
+    }
+
+    /**
+     * @return 方法的返回值，抛出的是服务方法本身抛出的异常
+     */
+    public Object invoke(Object service, Object[] args) throws Throwable {
+        // invokeExact needs the exact static types (Object, Object[])Object at the call site
+        Object[] arguments = args == null ? EMPTY_ARGS : args;
+        return (Object) methodHandle.invokeExact(service, arguments);
+    }
+
+    public boolean matches(Class<?>[] paramTypes) {
+        return Arrays.equals(parameterTypes, paramTypes == null ? EMPTY_TYPES : paramTypes);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @param serviceClass 服务实现类
+     * @return 接口方法上的注解，没有时返回实现类中对应方法上的注解
+     */
+    public <A extends Annotation> A getAnnotation(Class<A> annotationType, Class<?> serviceClass) {
+        A annotation = method.getAnnotation(annotationType);
+        if (annotation != null) {
+            return annotation;
+        }
+        try {
+            return serviceClass.getMethod(method.getName(), parameterTypes).getAnnotation(annotationType);
+        } catch (NoSuchMethodException e) {
+            // every interface method is implemented, public by definition
+            return null;
+        }
+    }
+
+    /**
+     * @return 响应在 future 完成时写出：异步方法，或者可能等待另一个相同调用的 @RpcSingleFlight 方法
+     */
+    public boolean completesAsync() {
+        return async || singleFlight != null;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    void setSingleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public boolean isInline() {
+        return inlineBudgetNanos > 0;
+    }
+
+    public long getInlineBudgetNanos() {
+        return inlineBudgetNanos;
+    }
+
+    void setInlineBudgetNanos(long inlineBudgetNanos) {
+        this.inlineBudgetNanos = inlineBudgetNanos;
+    }
+
+    /**
+     * @return 连续超出时间预算的次数
+     */
+    int inlineOverrun() {
+        return inlineOverruns.incrementAndGet();
+    }
+
+    void inlineWithinBudget() {
+        if (inlineOverruns.get() != 0) {
+            inlineOverruns.set(0);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package github.javaguide.remoting.handler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.remoting.dto.SerializedResult;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 @RpcCacheable 方法的结果缓存：key 是参数列表，value 是序列化好的结果
+ * <p>
+ * 结果在放入缓存时按响应的序列化方式（hessian）序列化一次，之后的命中直接把这些字节放进响应，不再调用方法，也不再序列化结果。
+ * 用 Guava Cache 实现，按 TTL（写入后）过期，超过最大数量时淘汰最近最少使用的结果
+ *
+ * @createTime 2026年10月19日 22:50:00
+ */
+public final class ResultCache {
+
+    /**
+     * the servers answer every request with hessian
+     */
+    private static final SerializationTypeEnum SERIALIZATION_TYPE = SerializationTypeEnum.HESSIAN;
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    private final Cache<ArgumentsKey, SerializedResult> cache;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * @param name 方法名（rpcServiceName#methodName），用于指标
+     */
+    ResultCache(String name, long ttlMillis, long maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .maximumSize(maximumSize)
+                .build();
+        this.hits = RpcMetrics.counter("rpc.server.cache.hits[" + name + "]");
+        this.misses = RpcMetrics.counter("rpc.server.cache.misses[" + name + "]");
+        RpcMetrics.gauge("rpc.server.cache.size[" + name + "]", cache::size);
+    }
+
+    /**
+     * @return 缓存的结果，没有时返回 null
+     */
+    public SerializedResult get(Object[] args) {
+        SerializedResult serializedResult = cache.getIfPresent(new ArgumentsKey(args));
+        if (serializedResult == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return serializedResult;
+    }
+
+    /**
+     * 序列化方法的结果并放入缓存
+     *
+     * @return 序列化好的结果，直接作为响应的数据
+     */
+    public SerializedResult put(Object[] args, Object result) {
+        SerializedResult serializedResult = SerializedResult.of(result, SERIALIZATION_TYPE);
+        // the request may be reused by the service, keep a copy of the arguments
+        cache.put(new ArgumentsKey(args == null ? EMPTY_ARGS : args.clone()), serializedResult);
+        return serializedResult;
+    }
+
+    public void invalidate(Object[] args) {
+        cache.invalidate(new ArgumentsKey(args));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
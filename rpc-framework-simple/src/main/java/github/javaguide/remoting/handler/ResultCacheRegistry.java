@@ -0,0 +1,84 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.annotation.RpcCacheable;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link RpcCacheable} 方法的结果缓存，服务发布时创建，也是让缓存失效的入口：
+ * <pre>
+ *     SingletonFactory.getInstance(ResultCacheRegistry.class).invalidate(rpcServiceName, "getUser", userId);
+ * </pre>
+ *
+ * @createTime 2026年10月19日 22:55:00
+ */
+@Slf4j
+public final class ResultCacheRegistry {
+
+    private static final boolean ENABLED = RpcConfigUtil.getBoolean(RpcConfigEnum.SERVER_CACHE_ENABLED, true);
+
+    /**
+     * key: rpcServiceName#methodName, value: 同名方法（重载）的缓存
+     */
+    private final Map<String, List<ResultCache>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 接口方法或实现类中对应的方法上有 @RpcCacheable 时为方法创建缓存
+     *
+     * @param serviceClass 服务实现类
+     */
+    public void configure(String rpcServiceName, MethodInvoker invoker, Class<?> serviceClass) {
+        if (!ENABLED) {
+            return;
+        }
+        Method method = invoker.getMethod();
+        RpcCacheable rpcCacheable = invoker.getAnnotation(RpcCacheable.class, serviceClass);
+        if (rpcCacheable == null || rpcCacheable.ttlMillis() <= 0 || rpcCacheable.maximumSize() <= 0) {
+            return;
+        }
+        String name = rpcServiceName + "#" + method.getName();
+        ResultCache resultCache = new ResultCache(name, rpcCacheable.ttlMillis(), rpcCacheable.maximumSize());
+        invoker.setResultCache(resultCache);
+        caches.computeIfAbsent(name, k -> new CopyOnWriteArrayList<>()).add(resultCache);
+        log.info("results of [{}] are cached for [{}]ms, at most [{}]", name, rpcCacheable.ttlMillis(), rpcCacheable.maximumSize());
+    }
+
+    /**
+     * 让一次调用的缓存结果失效，方法有重载时所有同名方法的对应结果都失效
+     */
+    public void invalidate(String rpcServiceName, String methodName, Object... args) {
+        List<ResultCache> methodCaches = caches.get(rpcServiceName + "#" + methodName);
+        if (methodCaches != null) {
+            methodCaches.forEach(resultCache -> resultCache.invalidate(args));
+        }
+    }
+
+    /**
+     * 让一个方法的所有缓存结果失效
+     */
+    public void invalidateAll(String rpcServiceName, String methodName) {
+        List<ResultCache> methodCaches = caches.get(rpcServiceName + "#" + methodName);
+        if (methodCaches != null) {
+            methodCaches.forEach(ResultCache::invalidateAll);
+        }
+    }
+
+    /**
+     * 让一个服务的所有缓存结果失效
+     */
+    public void invalidateAll(String rpcServiceName) {
+        String prefix = rpcServiceName + "#";
+        caches.forEach((name, methodCaches) -> {
+            if (name.startsWith(prefix)) {
+                methodCaches.forEach(ResultCache::invalidateAll);
+            }
+        });
+    }
+}
@@ -1,14 +1,18 @@
 package github.javaguide.remoting.handler;
 
+import github.javaguide.enums.RpcErrorMessageEnum;
 import github.javaguide.exception.RpcException;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
 import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.SerializedResult;
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 /**
  * RpcRequest processor
@@ -26,28 +30,109 @@ public class RpcRequestHandler {
 
     /**
      * Processing rpcRequest: call the corresponding method, and then return the method
-     * 通过反射调用对应服务实现类的对应的方法
+     * 通过服务发布时创建的调用器调用对应服务实现类的对应的方法
      */
     public Object handle(RpcRequest rpcRequest) {
+        MethodInvoker invoker = serviceProvider.getMethodInvoker(rpcRequest.getRpcServiceName(),
+                rpcRequest.getMethodName(), rpcRequest.getParamTypes());
+        return handle(rpcRequest, invoker);
+    }
+
+    /**
+     * 异步方法（返回 CompletionStage）在这里等待 future 完成，供在调用线程上写响应的传输使用。
+     * 有结果缓存的方法返回序列化好的结果（{@link SerializedResult}）
+     *
+     * @param invoker invoker found by {@link #findMethodInvoker(RpcRequest)} before, null if there was none
+     */
+    public Object handle(RpcRequest rpcRequest, MethodInvoker invoker) {
+        if (invoker != null && invoker.completesAsync()) {
+            try {
+                return handleAsync(rpcRequest, invoker).toCompletableFuture().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RpcException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RpcException ? (RpcException) cause : new RpcException(cause.getMessage(), cause);
+            }
+        }
+        ResultCache resultCache = invoker == null ? null : invoker.getResultCache();
+        if (resultCache != null) {
+            SerializedResult cached = resultCache.get(rpcRequest.getParameters());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Object result = invoke(rpcRequest, invoker);
+        return resultCache == null ? result : resultCache.put(rpcRequest.getParameters(), result);
+    }
+
+    /**
+     * 处理响应在 future 完成时写出的请求（{@link MethodInvoker#completesAsync()}），不等待异步方法返回的 future 完成，
+     * 也不等待正在执行的相同调用（@RpcSingleFlight），调用线程可以立即处理下一个请求
+     *
+     * @return 方法结果的 future，异步方法返回 null 时是一个以 null 完成的 future
+     */
+    public CompletionStage<?> handleAsync(RpcRequest rpcRequest, MethodInvoker invoker) {
+        ResultCache resultCache = invoker.getResultCache();
+        if (resultCache != null) {
+            SerializedResult cached = resultCache.get(rpcRequest.getParameters());
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        Supplier<CompletionStage<?>> execution = () -> {
+            CompletionStage<?> future = invokeAsync(rpcRequest, invoker);
+            // serialized once, shared by the coalesced calls
+            return resultCache == null ? future : future.thenApply(value -> resultCache.put(rpcRequest.getParameters(), value));
+        };
+        SingleFlight singleFlight = invoker.getSingleFlight();
+        return singleFlight == null ? execution.get() : singleFlight.execute(rpcRequest.getParameters(), execution);
+    }
+
+    private CompletionStage<?> invokeAsync(RpcRequest rpcRequest, MethodInvoker invoker) {
+        Object result = invoke(rpcRequest, invoker);
+        if (!invoker.isAsync()) {
+            return CompletableFuture.completedFuture(result);
+        }
+        return result == null ? CompletableFuture.completedFuture(null) : (CompletionStage<?>) result;
+    }
+
+    private Object invoke(RpcRequest rpcRequest, MethodInvoker invoker) {
         Object service = serviceProvider.getService(rpcRequest.getRpcServiceName());
-        return invokeTargetMethod(rpcRequest, service);
+        if (invoker == null) {
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE,
+                    "no method [" + rpcRequest.getMethodName() + "] in " + rpcRequest.getInterfaceName());
+        }
+        return invokeTargetMethod(rpcRequest, service, invoker);
+    }
+
+    /**
+     * @return 请求的方法的调用器，服务或方法不存在时返回 null（调用 {@link #handle} 时才报错）
+     */
+    public MethodInvoker findMethodInvoker(RpcRequest rpcRequest) {
+        String rpcServiceName = rpcRequest.getRpcServiceName();
+        if (!serviceProvider.hasService(rpcServiceName)) {
+            return null;
+        }
+        return serviceProvider.getMethodInvoker(rpcServiceName, rpcRequest.getMethodName(), rpcRequest.getParamTypes());
     }
 
     /**
      * get method execution results
-     * 通过反射执行指定方法和参数类型的方法，传入rpcRequest消息中送的参数
+     * 执行指定方法，传入rpcRequest消息中送的参数
      *
      * @param rpcRequest client request
      * @param service    service object
+     * @param invoker    invoker of the target method
      * @return the result of the target method execution
      */
-    private Object invokeTargetMethod(RpcRequest rpcRequest, Object service) {
+    private Object invokeTargetMethod(RpcRequest rpcRequest, Object service, MethodInvoker invoker) {
         Object result;
         try {
-            Method method = service.getClass().getMethod(rpcRequest.getMethodName(), rpcRequest.getParamTypes());
-            result = method.invoke(service, rpcRequest.getParameters());
-            log.info("service:[{}] successful invoke method:[{}]", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
-        } catch (NoSuchMethodException | IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
+            result = invoker.invoke(service, rpcRequest.getParameters());
+            log.debug("service:[{}] successful invoke method:[{}]", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
+        } catch (Throwable e) {
             throw new RpcException(e.getMessage(), e);
         }
         return result;
@@ -0,0 +1,103 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.annotation.RpcSingleFlight;
+import github.javaguide.exception.RpcException;
+import github.javaguide.metrics.RpcMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 一个 {@link RpcSingleFlight} 方法正在执行的调用：key 相同的调用到达时，如果已经有一个在执行，就等待它的结果而不再执行方法
+ *
+ * @createTime 2026年10月19日 23:45:00
+ */
+@Slf4j
+public final class SingleFlight {
+
+    private final SingleFlightKey singleFlightKey;
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced;
+
+    private SingleFlight(String name, SingleFlightKey singleFlightKey) {
+        this.singleFlightKey = singleFlightKey;
+        this.coalesced = RpcMetrics.counter("rpc.server.single-flight.coalesced[" + name + "]");
+        RpcMetrics.gauge("rpc.server.single-flight.in-flight[" + name + "]", inFlight::size);
+    }
+
+    /**
+     * 接口方法或实现类中对应的方法上有 @RpcSingleFlight 时为方法开启合并
+     *
+     * @param serviceClass 服务实现类
+     */
+    public static void configure(String rpcServiceName, MethodInvoker invoker, Class<?> serviceClass) {
+        RpcSingleFlight rpcSingleFlight = invoker.getAnnotation(RpcSingleFlight.class, serviceClass);
+        if (rpcSingleFlight == null) {
+            return;
+        }
+        SingleFlightKey singleFlightKey;
+        try {
+            singleFlightKey = rpcSingleFlight.key().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new RpcException("can not create the single flight key " + rpcSingleFlight.key().getName(), e);
+        }
+        String name = rpcServiceName + "#" + invoker.getMethod().getName();
+        invoker.setSingleFlight(new SingleFlight(name, singleFlightKey));
+        log.info("identical concurrent calls of [{}] share one execution", name);
+    }
+
+    /**
+     * 在执行之前（例如在 I/O 线程上，进入舱壁队列之前）查找正在执行的相同调用
+     *
+     * @return 正在执行的相同调用的结果，没有时返回 null
+     */
+    public CompletionStage<?> outstanding(Object[] args) {
+        Object key = singleFlightKey.of(args);
+        CompletableFuture<Object> outstanding = key == null ? null : inFlight.get(key);
+        if (outstanding != null) {
+            coalesced.increment();
+        }
+        return outstanding;
+    }
+
+    /**
+     * @param execution 执行方法，只有没有相同的调用在执行时才会被调用
+     * @return 这次调用的结果，可能是另一个相同调用的结果
+     */
+    public CompletionStage<?> execute(Object[] args, Supplier<CompletionStage<?>> execution) {
+        Object key = singleFlightKey.of(args);
+        if (key == null) {
+            return execution.get();
+        }
+        CompletableFuture<Object> shared = new CompletableFuture<>();
+        CompletableFuture<Object> outstanding = inFlight.putIfAbsent(key, shared);
+        if (outstanding != null) {
+            coalesced.increment();
+            return outstanding;
+        }
+        CompletionStage<?> future;
+        try {
+            future = execution.get();
+        } catch (Throwable e) {
+            // the waiting calls get the same failure
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            future = failed;
+        }
+        future.whenComplete((result, e) -> {
+            // removed first: a call arriving after the result runs the method again
+            inFlight.remove(key, shared);
+            if (e == null) {
+                shared.complete(result);
+            } else {
+                shared.completeExceptionally(e);
+            }
+        });
+        return shared;
+    }
+}
@@ -0,0 +1,26 @@
+package github.javaguide.remoting.handler;
+
+/**
+ * 计算 {@link github.javaguide.annotation.RpcSingleFlight} 方法一次调用的 key，key 相等的同时进行的调用合并为一次执行。
+ * 实现类需要有无参构造方法
+ *
+ * @createTime 2026年10月19日 23:35:00
+ */
+public interface SingleFlightKey {
+
+    /**
+     * @param args 调用的参数，不要修改
+     * @return 调用的 key，返回 null 表示这次调用不合并
+     */
+    Object of(Object[] args);
+
+    /**
+     * 默认：所有参数都相等（数组按内容比较）
+     */
+    final class Arguments implements SingleFlightKey {
+        @Override
+        public Object of(Object[] args) {
+            return new ArgumentsKey(args);
+        }
+    }
+}
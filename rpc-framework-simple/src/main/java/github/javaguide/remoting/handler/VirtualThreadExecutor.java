@@ -0,0 +1,83 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 虚拟线程执行模式（rpc.server.virtual-threads=true 且运行在 JDK 21+ 时开启）
+ * <p>
+ * 每次服务调用在一个新的虚拟线程中执行，服务实现中阻塞的 JDBC/HTTP 调用不再占用平台线程，
+ * 并发不再受固定大小的线程池限制。同时执行的调用数由 rpc.server.virtual-threads.max-concurrency 限制：
+ * 超出时虚拟线程在信号量上等待，等待本身几乎没有开销，也不会阻塞 I/O 线程。
+ * 更早的 JDK 上 {@link #getIfEnabled()} 返回 null，各个服务端继续使用原来的线程池
+ *
+ * @createTime 2026年10月19日 19:50:00
+ */
+@Slf4j
+public final class VirtualThreadExecutor implements Executor {
+
+    private final ExecutorService virtualThreads;
+    private final Semaphore permits;
+
+    private VirtualThreadExecutor(ExecutorService virtualThreads, int maxConcurrency) {
+        this.virtualThreads = virtualThreads;
+        this.permits = new Semaphore(maxConcurrency);
+        RpcMetrics.gauge("rpc.server.virtual-threads.running", () -> maxConcurrency - permits.availablePermits());
+        RpcMetrics.gauge("rpc.server.virtual-threads.waiting", permits::getQueueLength);
+    }
+
+    /**
+     * @return 开启且当前 JDK 支持时返回共享的执行器，否则返回 null
+     */
+    public static VirtualThreadExecutor getIfEnabled() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 在新的虚拟线程中执行，拿到并发许可后才开始执行任务
+     */
+    @Override
+    public void execute(Runnable task) {
+        virtualThreads.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * 不受并发限制的虚拟线程，用于长时间阻塞在 I/O 上的连接线程
+     */
+    public Executor unbounded() {
+        return virtualThreads;
+    }
+
+    private static final class Holder {
+        private static final VirtualThreadExecutor INSTANCE = create();
+
+        private static VirtualThreadExecutor create() {
+            if (!RpcConfigUtil.getBoolean(RpcConfigEnum.SERVER_VIRTUAL_THREADS, false)) {
+                return null;
+            }
+            ExecutorService virtualThreads = ThreadPoolFactoryUtil.createVirtualThreadPoolIfSupported("rpc-virtual");
+            if (virtualThreads == null) {
+                log.warn("rpc.server.virtual-threads needs JDK 21+, running on [{}], keep the thread pools",
+                        System.getProperty("java.version"));
+                return null;
+            }
+            int maxConcurrency = Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.SERVER_VIRTUAL_THREADS_MAX_CONCURRENCY, 1000));
+            log.info("service invocations run on virtual threads, max concurrency [{}]", maxConcurrency);
+            return new VirtualThreadExecutor(virtualThreads, maxConcurrency);
+        }
+    }
+}
@@ -2,6 +2,13 @@ package github.javaguide.remoting.transport;
 
 import github.javaguide.extension.SPI;
 import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * send RpcRequest。
@@ -18,4 +25,74 @@ public interface RpcRequestTransport {
      * @return data from server
      */
     Object sendRpcRequest(RpcRequest rpcRequest);
+
+    /**
+     * send rpc request to a provider the call has not been sent to yet, used to hedge idempotent calls
+     *
+     * @param rpcRequest     message body
+     * @param triedProviders providers the same call was sent to, the chosen provider is added to it.
+     *                       传输不按服务端选择时（injvm、shm 等）不添加，调用方据此不再对冲
+     * @return like {@link #sendRpcRequest(RpcRequest)}, null if there is no other provider
+     */
+    default Object sendRpcRequest(RpcRequest rpcRequest, Set<InetSocketAddress> triedProviders) {
+        return sendRpcRequest(rpcRequest);
+    }
+
+    /**
+     * send rpc request to server, the result is always a future
+     *
+     * @param rpcRequest message body
+     * @return future of the response, completed exceptionally if the request could not be sent
+     */
+    @SuppressWarnings("unchecked")
+    default CompletableFuture<RpcResponse<Object>> sendAsync(RpcRequest rpcRequest) {
+        try {
+            Object result = sendRpcRequest(rpcRequest);
+            return result instanceof CompletableFuture
+                    ? (CompletableFuture<RpcResponse<Object>>) result
+                    : CompletableFuture.completedFuture((RpcResponse<Object>) result);
+        } catch (RuntimeException e) {
+            CompletableFuture<RpcResponse<Object>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * send a one-way request, no response is expected. 默认按普通请求发送并忽略响应；
+     * 支持单向消息的传输（netty）覆盖这个方法，不登记等待响应的 future，服务端也不写出响应
+     *
+     * @param rpcRequest message body
+     */
+    default void sendOneWay(RpcRequest rpcRequest) {
+        sendAsync(rpcRequest);
+    }
+
+    /**
+     * send several requests at once. 默认逐个发送；能把发给同一个服务端的请求放进一个帧的传输（netty）覆盖这个方法
+     *
+     * @param rpcRequests requests, possibly of different services
+     * @param ordered     true: a request is executed after the previous one (to the same server) completes, successfully or not
+     * @return one future per request, in the order of the requests
+     */
+    default List<CompletableFuture<RpcResponse<Object>>> sendBatch(List<RpcRequest> rpcRequests, boolean ordered) {
+        List<CompletableFuture<RpcResponse<Object>>> responses = new ArrayList<>(rpcRequests.size());
+        CompletableFuture<?> previous = CompletableFuture.completedFuture(null);
+        for (RpcRequest rpcRequest : rpcRequests) {
+            CompletableFuture<RpcResponse<Object>> response = ordered
+                    ? previous.handle((r, e) -> null).thenCompose(ignored -> sendAsync(rpcRequest))
+                    : sendAsync(rpcRequest);
+            responses.add(response);
+            previous = response;
+        }
+        return responses;
+    }
+
+    /**
+     * @return the transport sending requests to remote providers, warmed up at startup:
+     * itself, or the delegate of the transports serving local providers (injvm, shm)
+     */
+    default RpcRequestTransport remoteTransport() {
+        return this;
+    }
 }
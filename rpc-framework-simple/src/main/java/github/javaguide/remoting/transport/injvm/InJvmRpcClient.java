@@ -0,0 +1,91 @@
+package github.javaguide.remoting.transport.injvm;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.provider.ServiceProvider;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.handler.RpcRequestHandler;
+import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.serialize.Serializer;
+import github.javaguide.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * in-jvm 调用：服务在当前进程中已发布时，直接调用本地的服务对象，不经过序列化、压缩和网络
+ * <p>
+ * 服务不在本进程时交给 rpc.injvm.delegate 指定的传输（默认 netty）。
+ * rpc.injvm.copy=true 时用 hessian 深拷贝参数和返回值，调用方和服务方不会共享可变对象，语义和远程调用一致
+ *
+ * @createTime 2026年10月19日 17:20:00
+ */
+@Slf4j
+public class InJvmRpcClient implements RpcRequestTransport {
+
+    private static final String INJVM = "injvm";
+    private static final boolean COPY = RpcConfigUtil.getBoolean(RpcConfigEnum.INJVM_COPY, false);
+
+    private final ServiceProvider serviceProvider;
+    private final RpcRequestHandler rpcRequestHandler;
+    private volatile RpcRequestTransport delegate;
+
+    public InJvmRpcClient() {
+        this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+        this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+    }
+
+    /**
+     * @return 本地调用时返回已完成的 CompletableFuture，否则返回 delegate 的结果
+     */
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest) {
+        if (!serviceProvider.hasService(rpcRequest.getRpcServiceName())) {
+            return delegate().sendRpcRequest(rpcRequest);
+        }
+        RpcMetrics.counter("rpc.client.injvm.calls").increment();
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        try {
+            RpcRequest request = COPY ? copy(rpcRequest, RpcRequest.class) : rpcRequest;
+            RpcResponse<Object> rpcResponse = RpcResponse.success(rpcRequestHandler.handle(request), rpcRequest.getRequestId());
+            resultFuture.complete(COPY ? copy(rpcResponse, RpcResponse.class) : rpcResponse);
+        } catch (Exception e) {
+            resultFuture.completeExceptionally(e);
+        }
+        return resultFuture;
+    }
+
+    @Override
+    public RpcRequestTransport remoteTransport() {
+        return delegate().remoteTransport();
+    }
+
+    private RpcRequestTransport delegate() {
+        // created lazily, so that a jvm calling only local services never starts the remote transport
+        if (delegate == null) {
+            synchronized (this) {
+                if (delegate == null) {
+                    String name = RpcConfigUtil.getString(RpcConfigEnum.INJVM_DELEGATE, "netty");
+                    if (INJVM.equals(name)) {
+                        log.warn("injvm transport can not delegate to itself, use netty");
+                        name = "netty";
+                    }
+                    delegate = ExtensionLoader.getExtensionLoader(RpcRequestTransport.class).getExtension(name);
+                }
+            }
+        }
+        return delegate;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(Object obj, Class<?> clazz) {
+        Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
+                .getExtension(SerializationTypeEnum.HESSIAN.getName());
+        return (T) serializer.deserialize(serializer.serialize(obj), clazz);
+    }
+}
@@ -0,0 +1,155 @@
+package github.javaguide.remoting.transport.netty;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.utils.RpcConfigUtil;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端入站内存预算：一个全局预算 + 每个连接一个预算
+ * <p>
+ * 解码器读到请求帧的头部时按帧长度申请预算，请求处理完成（响应已放入写队列）后归还。预算不足时不再读取这个连接
+ * （autoRead=false，解码器也不再请求读取），帧的消息体不会被读入和反序列化；其他请求归还预算后恢复读取，
+ * 并由解码器继续解码已经缓存的数据。
+ * 没有其他请求占用预算时总是允许一个帧，超过单个预算的帧不会永远等待
+ *
+ * @createTime 2026年10月19日 22:10:00
+ */
+public final class InboundBudget {
+
+    private static final AttributeKey<InboundBudget> INBOUND_BUDGET = AttributeKey.valueOf("rpcInboundBudget");
+    private static final long GLOBAL_CAPACITY = RpcConfigUtil.getLong(RpcConfigEnum.SERVER_INBOUND_MAX_BYTES,
+            Runtime.getRuntime().maxMemory() / 4);
+    /**
+     * 也是服务端接受的最大帧长度，更大的帧只根据头部就被拒绝
+     */
+    public static final int CONNECTION_CAPACITY = (int) Math.min(RpcConstants.MAX_FRAME_LENGTH * 2L,
+            RpcConfigUtil.getLong(RpcConfigEnum.SERVER_INBOUND_CONNECTION_MAX_BYTES, RpcConstants.MAX_FRAME_LENGTH * 2L));
+    private static final AtomicLong GLOBAL_USED = new AtomicLong();
+    /**
+     * 因为全局预算不足而暂停读取的连接
+     */
+    private static final Queue<InboundBudget> GLOBAL_WAITERS = new ConcurrentLinkedQueue<>();
+    private static final LongAdder PAUSED = RpcMetrics.counter("rpc.server.inbound.paused");
+
+    static {
+        RpcMetrics.gauge("rpc.server.inbound.used-bytes", GLOBAL_USED::get);
+        RpcMetrics.gauge("rpc.server.inbound.capacity-bytes", () -> GLOBAL_CAPACITY);
+    }
+
+    private final Channel channel;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicBoolean waiting = new AtomicBoolean();
+    /**
+     * 恢复读取后继续解码已经缓存的数据，由暂停读取的解码器提供
+     */
+    private volatile Runnable decodeTask;
+
+    private InboundBudget(Channel channel) {
+        this.channel = channel;
+    }
+
+    public static InboundBudget of(Channel channel) {
+        Attribute<InboundBudget> attribute = channel.attr(INBOUND_BUDGET);
+        InboundBudget inboundBudget = attribute.get();
+        if (inboundBudget == null) {
+            inboundBudget = new InboundBudget(channel);
+            InboundBudget old = attribute.setIfAbsent(inboundBudget);
+            if (old != null) {
+                inboundBudget = old;
+            }
+        }
+        return inboundBudget;
+    }
+
+    /**
+     * 在 EventLoop 中调用。申请失败时暂停读取，预算归还后自动恢复读取
+     *
+     * @return 是否申请成功
+     */
+    public boolean tryAcquire(int bytes) {
+        return tryAcquire(bytes, null);
+    }
+
+    /**
+     * 在 EventLoop 中调用。申请失败时暂停读取，预算归还后自动恢复读取并执行 decodeTask
+     *
+     * @param decodeTask 恢复读取后在 EventLoop 中执行，继续解码已经缓存的数据
+     * @return 是否申请成功
+     */
+    public boolean tryAcquire(int bytes, Runnable decodeTask) {
+        if (!fits(used.get(), bytes, CONNECTION_CAPACITY)) {
+            pause(bytes, false, decodeTask);
+            return false;
+        }
+        long globalUsed;
+        do {
+            globalUsed = GLOBAL_USED.get();
+            if (!fits(globalUsed, bytes, GLOBAL_CAPACITY)) {
+                pause(bytes, true, decodeTask);
+                return false;
+            }
+        } while (!GLOBAL_USED.compareAndSet(globalUsed, globalUsed + bytes));
+        used.addAndGet(bytes);
+        return true;
+    }
+
+    /**
+     * 请求处理完成，可以在任意线程调用
+     */
+    public void release(int bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        used.addAndGet(-bytes);
+        GLOBAL_USED.addAndGet(-bytes);
+        resume();
+        InboundBudget waiter;
+        while ((waiter = GLOBAL_WAITERS.poll()) != null) {
+            waiter.resume();
+        }
+    }
+
+    private static boolean fits(long usedBytes, int bytes, long capacity) {
+        return usedBytes == 0 || usedBytes + bytes <= capacity;
+    }
+
+    private void pause(int bytes, boolean global, Runnable decodeTask) {
+        // set before the flag, so that resume always sees it
+        this.decodeTask = decodeTask;
+        if (!waiting.compareAndSet(false, true)) {
+            return;
+        }
+        PAUSED.increment();
+        channel.config().setAutoRead(false);
+        if (global) {
+            GLOBAL_WAITERS.add(this);
+        }
+        // the budget may have been released before the flag was set
+        if (fits(used.get(), bytes, CONNECTION_CAPACITY) && fits(GLOBAL_USED.get(), bytes, GLOBAL_CAPACITY)) {
+            resume();
+        }
+    }
+
+    private void resume() {
+        if (waiting.compareAndSet(true, false)) {
+            Runnable task = decodeTask;
+            channel.eventLoop().execute(() -> {
+                channel.config().setAutoRead(true);
+                if (task != null) {
+                    // decode the frames already buffered in the decoder, which may pause reading again
+                    task.run();
+                }
+            });
+        }
+    }
+}
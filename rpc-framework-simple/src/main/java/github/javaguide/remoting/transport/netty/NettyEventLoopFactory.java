@@ -0,0 +1,152 @@
+package github.javaguide.remoting.transport.netty;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.RuntimeUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.DomainSocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 根据运行环境和 rpc.properties 选择 netty 的传输实现：Linux 上优先使用 epoll，不可用时回退到 NIO
+ * <p>
+ * epoll 模式下支持 SO_REUSEPORT（多个 acceptor 绑定同一端口，由内核把连接分散到各个 acceptor）、
+ * 边缘/水平触发、TCP_QUICKACK、SO_BUSY_POLL 以及 unix domain socket
+ *
+ * @createTime 2026年10月19日 10:20:00
+ */
+@Slf4j
+public final class NettyEventLoopFactory {
+
+    private static final String TRANSPORT_AUTO = "auto";
+    private static final String TRANSPORT_EPOLL = "epoll";
+    private static final String TRANSPORT_NIO = "nio";
+
+    private static final boolean EPOLL = useEpoll();
+
+    private NettyEventLoopFactory() {
+    }
+
+    public static boolean isEpoll() {
+        return EPOLL;
+    }
+
+    /**
+     * @param threads          线程数，0 表示使用 netty 默认值（cpu核心数*2）
+     * @param threadNamePrefix 线程名前缀
+     */
+    public static EventLoopGroup eventLoopGroup(int threads, String threadNamePrefix) {
+        if (EPOLL) {
+            return new EpollEventLoopGroup(threads, ThreadPoolFactoryUtil.createThreadFactory(threadNamePrefix, false));
+        }
+        return new NioEventLoopGroup(threads, ThreadPoolFactoryUtil.createThreadFactory(threadNamePrefix, false));
+    }
+
+    public static Class<? extends ServerChannel> serverSocketChannelClass() {
+        return EPOLL ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends SocketChannel> socketChannelClass() {
+        return EPOLL ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * unix domain socket 只有 epoll 传输支持
+     */
+    public static boolean isDomainSocketSupported() {
+        return EPOLL;
+    }
+
+    public static Class<? extends ServerChannel> serverDomainSocketChannelClass() {
+        return EpollServerDomainSocketChannel.class;
+    }
+
+    public static Class<? extends DomainSocketChannel> domainSocketChannelClass() {
+        return EpollDomainSocketChannel.class;
+    }
+
+    /**
+     * 服务端 acceptor 的数量：只有 epoll 且开启了 SO_REUSEPORT 时才会绑定多个 acceptor
+     */
+    public static int acceptors() {
+        if (EPOLL && RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_REUSE_PORT, false)) {
+            return Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.NETTY_ACCEPTORS, RuntimeUtil.cpus()));
+        }
+        return 1;
+    }
+
+    public static void applyServerOptions(ServerBootstrap bootstrap) {
+        if (!EPOLL) {
+            return;
+        }
+        if (acceptors() > 1) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+        EpollMode epollMode = epollMode();
+        bootstrap.option(EpollChannelOption.EPOLL_MODE, epollMode)
+                .childOption(EpollChannelOption.EPOLL_MODE, epollMode);
+        if (RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_EPOLL_TCP_QUICKACK, false)) {
+            bootstrap.childOption(EpollChannelOption.TCP_QUICKACK, true);
+        }
+        int busyPoll = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_EPOLL_BUSY_POLL, 0);
+        if (busyPoll > 0) {
+            bootstrap.childOption(EpollChannelOption.SO_BUSY_POLL, busyPoll);
+        }
+    }
+
+    public static void applyClientOptions(Bootstrap bootstrap) {
+        if (!EPOLL) {
+            return;
+        }
+        bootstrap.option(EpollChannelOption.EPOLL_MODE, epollMode());
+        if (RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_EPOLL_TCP_QUICKACK, false)) {
+            bootstrap.option(EpollChannelOption.TCP_QUICKACK, true);
+        }
+        int busyPoll = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_EPOLL_BUSY_POLL, 0);
+        if (busyPoll > 0) {
+            bootstrap.option(EpollChannelOption.SO_BUSY_POLL, busyPoll);
+        }
+    }
+
+    private static EpollMode epollMode() {
+        return RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_EPOLL_EDGE_TRIGGERED, true)
+                ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED;
+    }
+
+    private static boolean useEpoll() {
+        String transport = RpcConfigUtil.getString(RpcConfigEnum.NETTY_TRANSPORT, TRANSPORT_AUTO).toLowerCase();
+        if (TRANSPORT_NIO.equals(transport)) {
+            log.info("netty transport: nio");
+            return false;
+        }
+        if (!TRANSPORT_EPOLL.equals(transport) && !TRANSPORT_AUTO.equals(transport)) {
+            log.warn("unsupported netty transport [{}], fall back to [{}]", transport, TRANSPORT_AUTO);
+        }
+        if (Epoll.isAvailable()) {
+            log.info("netty transport: epoll");
+            return true;
+        }
+        if (TRANSPORT_EPOLL.equals(transport)) {
+            log.warn("epoll is not available, fall back to nio", Epoll.unavailabilityCause());
+        } else {
+            log.info("netty transport: nio");
+        }
+        return false;
+    }
+}
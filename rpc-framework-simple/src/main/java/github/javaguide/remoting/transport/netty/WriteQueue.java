@@ -0,0 +1,126 @@
+package github.javaguide.remoting.transport.netty;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.utils.RpcConfigUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 每个 Channel 一个写队列：任意线程把消息放进 MPSC 队列，由 Channel 所在的 EventLoop 批量写出
+ * <p>
+ * 直接在业务线程调用 writeAndFlush 时，每条消息都会向 EventLoop 提交一个任务并触发一次 flush（一次系统调用）。
+ * 这里同一时刻最多只有一个 drain 任务在排队，一次 drain 写出队列中的所有消息，只在结束时 flush 一次。
+ * 时延上限：消息最多等到 EventLoop 执行下一个任务，且每写出 maxWritesBeforeFlush 条消息就 flush 一次，
+ * 避免大批量消息长时间滞留在 ChannelOutboundBuffer 中。
+ * Channel 不可写（超过 WRITE_BUFFER_WATER_MARK 高水位）时消息留在队列中，不再继续占用 ChannelOutboundBuffer 的内存，
+ * 由 handler 在 channelWritabilityChanged / channelInactive 中调用 {@link #resume()} 继续写出
+ *
+ * @createTime 2026年10月19日 11:05:00
+ */
+public final class WriteQueue {
+
+    private static final AttributeKey<WriteQueue> WRITE_QUEUE = AttributeKey.valueOf("rpcWriteQueue");
+    private static final int DEFAULT_MAX_WRITES_BEFORE_FLUSH = 128;
+    static final int MAX_WRITES_BEFORE_FLUSH = Math.max(1,
+            RpcConfigUtil.getInt(RpcConfigEnum.NETTY_WRITE_MAX_BATCH, DEFAULT_MAX_WRITES_BEFORE_FLUSH));
+
+    private final Channel channel;
+    private final Queue<PendingWrite> queue = PlatformDependent.newMpscQueue();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable drainTask = this::drain;
+
+    private WriteQueue(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 获取 channel 对应的写队列，不存在则创建
+     */
+    public static WriteQueue of(Channel channel) {
+        Attribute<WriteQueue> attribute = channel.attr(WRITE_QUEUE);
+        WriteQueue writeQueue = attribute.get();
+        if (writeQueue == null) {
+            writeQueue = new WriteQueue(channel);
+            WriteQueue old = attribute.setIfAbsent(writeQueue);
+            if (old != null) {
+                writeQueue = old;
+            }
+        }
+        return writeQueue;
+    }
+
+    /**
+     * 放入一条待写出的消息，可以在任意线程调用
+     *
+     * @return 消息真正写出（或失败）时完成的 future
+     */
+    public ChannelFuture enqueue(Object msg) {
+        ChannelPromise promise = channel.newPromise();
+        queue.add(new PendingWrite(msg, promise));
+        scheduleDrain();
+        return promise;
+    }
+
+    private void scheduleDrain() {
+        if (scheduled.compareAndSet(false, true)) {
+            channel.eventLoop().execute(drainTask);
+        }
+    }
+
+    /**
+     * Channel 重新变为可写或已关闭时调用，继续写出暂停时留在队列中的消息
+     */
+    public void resume() {
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * 在 EventLoop 中执行：写出队列中的所有消息，每 MAX_WRITES_BEFORE_FLUSH 条及结束时各 flush 一次。
+     * ChannelOutboundBuffer 超过高水位（不可写）时暂停，剩下的消息留在队列中，直到 {@link #resume()}
+     */
+    private void drain() {
+        int writes = 0;
+        PendingWrite pendingWrite;
+        while (isWritable() && (pendingWrite = queue.poll()) != null) {
+            channel.write(pendingWrite.msg, pendingWrite.promise);
+            if (++writes == MAX_WRITES_BEFORE_FLUSH) {
+                channel.flush();
+                writes = 0;
+            }
+        }
+        if (writes > 0) {
+            channel.flush();
+        }
+        scheduled.set(false);
+        // a producer may have added a message after the last poll but before the flag was reset
+        if (!queue.isEmpty() && isWritable()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * a closed channel is drained as well, so that the promises of the queued messages fail
+     */
+    private boolean isWritable() {
+        return channel.isWritable() || !channel.isActive();
+    }
+
+    private static final class PendingWrite {
+        private final Object msg;
+        private final ChannelPromise promise;
+
+        private PendingWrite(Object msg, ChannelPromise promise) {
+            this.msg = msg;
+            this.promise = promise;
+        }
+    }
+}
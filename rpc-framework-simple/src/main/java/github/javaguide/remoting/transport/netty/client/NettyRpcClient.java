@@ -2,17 +2,23 @@ package github.javaguide.remoting.transport.netty.client;
 
 
 import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.factory.SingletonFactory;
+import github.javaguide.metrics.RpcMetrics;
 import github.javaguide.registry.ServiceDiscovery;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchRequest;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
 import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.remoting.transport.netty.NettyEventLoopFactory;
+import github.javaguide.remoting.transport.netty.WriteQueue;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.javaguide.utils.RpcConfigUtil;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
@@ -20,57 +26,86 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.logging.LogLevel;
-import io.netty.handler.logging.LoggingHandler;
-import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.util.AttributeKey;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * initialize and close Bootstrap object
  * 基于 Netty通信传输RpcRequest
+ * <p>
+ * 服务提供者和客户端在同一台机器上、且提供者注册了 unix domain socket 时，优先通过 unix domain socket 连接（epoll only），
+ * 连接失败时回退到 tcp
  * @author shuang.kou
  * @createTime 2020年05月29日 17:51:00
  */
 @Slf4j
 public final class NettyRpcClient implements RpcRequestTransport {
+    /**
+     * the tcp address of the provider a channel belongs to, also set on unix domain socket channels
+     */
+    public static final AttributeKey<InetSocketAddress> SERVICE_ADDRESS = AttributeKey.valueOf("rpcServiceAddress");
+    private static final boolean PREFER_DOMAIN_SOCKET = RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_UDS_PREFER, true);
+
     private final ServiceDiscovery serviceDiscovery;
     private final UnprocessedRequests unprocessedRequests;
     private final ChannelProvider channelProvider;
     private final Bootstrap bootstrap;
+    private final Bootstrap domainSocketBootstrap;
     private final EventLoopGroup eventLoopGroup;
+    private final Map<InetAddress, Boolean> localAddresses = new ConcurrentHashMap<>();
 
     public NettyRpcClient() {
         // initialize resources such as EventLoopGroup, Bootstrap
-        eventLoopGroup = new NioEventLoopGroup();
+        eventLoopGroup = NettyEventLoopFactory.eventLoopGroup(0, "netty-client-worker");
+        ChannelInitializer<Channel> channelInitializer = new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ChannelPipeline p = ch.pipeline();
+                // timestamped heartbeats are scheduled by NettyRpcClientHandler once the channel is active
+                p.addLast(new RpcMessageEncoder());
+                p.addLast(new RpcMessageDecoder());
+                p.addLast(new NettyRpcClientHandler());
+            }
+        };
         bootstrap = new Bootstrap();
         bootstrap.group(eventLoopGroup)
-                .channel(NioSocketChannel.class)
-                .handler(new LoggingHandler(LogLevel.INFO))
+                .channel(NettyEventLoopFactory.socketChannelClass())
                 //  The timeout period of the connection.
                 //  If this time is exceeded or the connection cannot be established, the connection fails.
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
-                .handler(new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    protected void initChannel(SocketChannel ch) {
-                        ChannelPipeline p = ch.pipeline();
-                        // If no data is sent to the server within 15 seconds, a heartbeat request is sent
-                        p.addLast(new IdleStateHandler(0, 5, 0, TimeUnit.SECONDS));
-                        p.addLast(new RpcMessageEncoder());
-                        p.addLast(new RpcMessageDecoder());
-                        p.addLast(new NettyRpcClientHandler());
-                    }
-                });
+                .handler(channelInitializer);
+        if (NettyEventLoopFactory.isDomainSocketSupported()) {
+            domainSocketBootstrap = new Bootstrap();
+            domainSocketBootstrap.group(eventLoopGroup)
+                    .channel(NettyEventLoopFactory.domainSocketChannelClass())
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                    .handler(channelInitializer);
+        } else {
+            domainSocketBootstrap = null;
+        }
+        NettyEventLoopFactory.applyClientOptions(bootstrap);
         this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension("zk");
         this.unprocessedRequests = SingletonFactory.getInstance(UnprocessedRequests.class);
         this.channelProvider = SingletonFactory.getInstance(ChannelProvider.class);
+        RpcMetrics.gauge("rpc.client.pending-requests", unprocessedRequests::size);
     }
 
     /**
@@ -81,42 +116,110 @@ public final class NettyRpcClient implements RpcRequestTransport {
      */
     @SneakyThrows
     public Channel doConnect(InetSocketAddress inetSocketAddress) {
+        return connectAsync(inetSocketAddress, null).get();
+    }
+
+    /**
+     * @param rpcServiceName used to look up the unix domain socket of a local provider, null means tcp only
+     */
+    private CompletableFuture<Channel> connectAsync(InetSocketAddress inetSocketAddress, String rpcServiceName) {
+        String domainSocketPath = lookupLocalDomainSocket(inetSocketAddress, rpcServiceName);
+        if (domainSocketPath == null) {
+            return connect(bootstrap, inetSocketAddress, inetSocketAddress);
+        }
+        return connect(domainSocketBootstrap, new DomainSocketAddress(domainSocketPath), inetSocketAddress)
+                .handle((channel, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(channel);
+                    }
+                    log.warn("connect unix domain socket [{}] failed, fall back to tcp [{}]", domainSocketPath, inetSocketAddress, e);
+                    return connect(bootstrap, inetSocketAddress, inetSocketAddress);
+                }).thenCompose(future -> future);
+    }
+
+    private CompletableFuture<Channel> connect(Bootstrap b, SocketAddress remoteAddress, InetSocketAddress serviceAddress) {
         CompletableFuture<Channel> completableFuture = new CompletableFuture<>();
-        bootstrap.connect(inetSocketAddress).addListener((ChannelFutureListener) future -> {
+        // the attribute is set before the channel becomes active, so handlers can rely on it
+        b.clone().attr(SERVICE_ADDRESS, serviceAddress).connect(remoteAddress).addListener((ChannelFutureListener) future -> {
             if (future.isSuccess()) {
-                log.info("The client has connected [{}] successful!", inetSocketAddress.toString());
+                log.info("The client has connected [{}] successful!", remoteAddress.toString());
                 completableFuture.complete(future.channel());
             } else {
-                throw new IllegalStateException();
+                completableFuture.completeExceptionally(future.cause());
+            }
+        });
+        return completableFuture;
+    }
+
+    /**
+     * @return the unix domain socket registered by a provider on this host, null if tcp should be used
+     */
+    private String lookupLocalDomainSocket(InetSocketAddress inetSocketAddress, String rpcServiceName) {
+        if (!PREFER_DOMAIN_SOCKET || domainSocketBootstrap == null || rpcServiceName == null
+                || !isLocalAddress(inetSocketAddress.getAddress())) {
+            return null;
+        }
+        try {
+            String domainSocketPath = serviceDiscovery.lookupDomainSocket(rpcServiceName, inetSocketAddress);
+            return domainSocketPath != null && Files.exists(Paths.get(domainSocketPath)) ? domainSocketPath : null;
+        } catch (Exception e) {
+            log.warn("lookup unix domain socket of [{}] failed", inetSocketAddress, e);
+            return null;
+        }
+    }
+
+    private boolean isLocalAddress(InetAddress address) {
+        if (address == null) {
+            return false;
+        }
+        return localAddresses.computeIfAbsent(address, a -> {
+            if (a.isLoopbackAddress() || a.isAnyLocalAddress()) {
+                return true;
+            }
+            try {
+                return NetworkInterface.getByInetAddress(a) != null;
+            } catch (SocketException e) {
+                return false;
             }
         });
-        return completableFuture.get();
     }
 
     @Override
     public Object sendRpcRequest(RpcRequest rpcRequest) {
+        // get server address
+        return send(rpcRequest, serviceDiscovery.lookupService(rpcRequest));
+    }
+
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest, Set<InetSocketAddress> triedProviders) {
+        // the load balance chooses among the providers the call has not been sent to
+        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest, triedProviders);
+        if (inetSocketAddress == null) {
+            return null;
+        }
+        triedProviders.add(inetSocketAddress);
+        return send(rpcRequest, inetSocketAddress);
+    }
+
+    private CompletableFuture<RpcResponse<Object>> send(RpcRequest rpcRequest, InetSocketAddress inetSocketAddress) {
         // build return value
         CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
-        // get server address
-        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
         // get  server address related channel
-        Channel channel = getChannel(inetSocketAddress);
+        Channel channel = getChannel(inetSocketAddress, rpcRequest.getRpcServiceName());
         if (channel.isActive()) {
             // put unprocessed request
-            unprocessedRequests.put(rpcRequest.getRequestId(), resultFuture);
+            track(rpcRequest, resultFuture);
             RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
                     .codec(SerializationTypeEnum.HESSIAN.getCode())
                     .compress(CompressTypeEnum.GZIP.getCode())
                     .messageType(RpcConstants.REQUEST_TYPE).build();
-            channel.writeAndFlush(rpcMessage).addListener((ChannelFutureListener) future -> {
-                if (future.isSuccess()) {
-                    log.info("client send message: [{}]", rpcMessage);
-                } else {
-                    future.channel().close();
-                    resultFuture.completeExceptionally(future.cause());
-                    log.error("Send failed:", future.cause());
-                }
-            });
+            try {
+                // every request takes one credit of the connection, it blocks, queues or fails when credits run out
+                RequestWindow.of(channel).submit(() -> writeRequest(channel, rpcMessage, Collections.singletonList(resultFuture)));
+            } catch (RuntimeException e) {
+                unprocessedRequests.remove(rpcRequest.getRequestId());
+                throw e;
+            }
         } else {
             throw new IllegalStateException();
         }
@@ -124,13 +227,129 @@ public final class NettyRpcClient implements RpcRequestTransport {
         return resultFuture;
     }
 
+    /**
+     * 单向请求同样占用连接的一个额度（服务端执行完成后归还），但不登记到 {@link UnprocessedRequests}，发送失败只记录日志
+     */
+    @Override
+    public void sendOneWay(RpcRequest rpcRequest) {
+        InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
+        Channel channel = getChannel(inetSocketAddress, rpcRequest.getRpcServiceName());
+        if (!channel.isActive()) {
+            throw new IllegalStateException();
+        }
+        RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .messageType(RpcConstants.ONEWAY_TYPE).build();
+        RequestWindow.of(channel).submit(() -> writeRequest(channel, rpcMessage, Collections.emptyList()));
+    }
+
+    /**
+     * 按服务端分组，发给同一个服务端的请求放进一个 BATCH_REQUEST 帧（只占连接的一个额度），响应也在一个帧中返回。
+     * 按顺序执行只对同一个服务端上的请求有效；查找服务端或发送失败只影响相关的请求
+     */
+    @Override
+    public List<CompletableFuture<RpcResponse<Object>>> sendBatch(List<RpcRequest> rpcRequests, boolean ordered) {
+        List<CompletableFuture<RpcResponse<Object>>> resultFutures = new ArrayList<>(rpcRequests.size());
+        Map<InetSocketAddress, List<Integer>> batches = new LinkedHashMap<>();
+        for (int i = 0; i < rpcRequests.size(); i++) {
+            CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+            resultFutures.add(resultFuture);
+            try {
+                batches.computeIfAbsent(serviceDiscovery.lookupService(rpcRequests.get(i)), address -> new ArrayList<>()).add(i);
+            } catch (RuntimeException e) {
+                resultFuture.completeExceptionally(e);
+            }
+        }
+        batches.forEach((address, indexes) -> {
+            List<RpcRequest> batch = new ArrayList<>(indexes.size());
+            List<CompletableFuture<RpcResponse<Object>>> batchFutures = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                batch.add(rpcRequests.get(index));
+                batchFutures.add(resultFutures.get(index));
+            }
+            try {
+                sendBatch(address, new RpcBatchRequest(batch, ordered), batchFutures);
+            } catch (Exception e) {
+                // also the connection failures rethrown by getChannel
+                batchFutures.forEach(resultFuture -> resultFuture.completeExceptionally(e));
+            }
+        });
+        return resultFutures;
+    }
+
+    private void sendBatch(InetSocketAddress inetSocketAddress, RpcBatchRequest batchRequest,
+                           List<CompletableFuture<RpcResponse<Object>>> resultFutures) {
+        List<RpcRequest> rpcRequests = batchRequest.getRequests();
+        Channel channel = getChannel(inetSocketAddress, rpcRequests.get(0).getRpcServiceName());
+        if (!channel.isActive()) {
+            throw new IllegalStateException();
+        }
+        for (int i = 0; i < rpcRequests.size(); i++) {
+            track(rpcRequests.get(i), resultFutures.get(i));
+        }
+        RpcMessage rpcMessage = RpcMessage.builder().data(batchRequest)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .messageType(RpcConstants.BATCH_REQUEST_TYPE).build();
+        try {
+            RequestWindow.of(channel).submit(() -> writeRequest(channel, rpcMessage, resultFutures));
+        } catch (RuntimeException e) {
+            rpcRequests.forEach(rpcRequest -> unprocessedRequests.remove(rpcRequest.getRequestId()));
+            throw e;
+        }
+    }
+
+    private void track(RpcRequest rpcRequest, CompletableFuture<RpcResponse<Object>> resultFuture) {
+        unprocessedRequests.put(rpcRequest.getRequestId(), resultFuture);
+        // a caller that times out completes the future exceptionally, forget the request then
+        resultFuture.whenComplete((rpcResponse, e) -> {
+            if (e != null) {
+                unprocessedRequests.remove(rpcRequest.getRequestId());
+            }
+        });
+    }
+
+    private void writeRequest(Channel channel, RpcMessage rpcMessage, List<CompletableFuture<RpcResponse<Object>>> resultFutures) {
+        WriteQueue.of(channel).enqueue(rpcMessage).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                log.debug("client send message: [{}]", rpcMessage);
+            } else {
+                future.channel().close();
+                resultFutures.forEach(resultFuture -> resultFuture.completeExceptionally(future.cause()));
+                log.error("Send failed:", future.cause());
+            }
+        });
+    }
+
     public Channel getChannel(InetSocketAddress inetSocketAddress) {
+        return getChannel(inetSocketAddress, null);
+    }
+
+    /**
+     * @param rpcServiceName used to look up the unix domain socket of a local provider, null means tcp only
+     */
+    @SneakyThrows
+    public Channel getChannel(InetSocketAddress inetSocketAddress, String rpcServiceName) {
+        return getChannelAsync(inetSocketAddress, rpcServiceName).get();
+    }
+
+    /**
+     * get the channel without blocking the caller, used to warm up connections to all the providers in parallel
+     *
+     * @param inetSocketAddress server address
+     * @param rpcServiceName    used to look up the unix domain socket of a local provider, null means tcp only
+     * @return future completed with the channel, or exceptionally if the connection fails
+     */
+    public CompletableFuture<Channel> getChannelAsync(InetSocketAddress inetSocketAddress, String rpcServiceName) {
         Channel channel = channelProvider.get(inetSocketAddress);
-        if (channel == null) {
-            channel = doConnect(inetSocketAddress);
-            channelProvider.set(inetSocketAddress, channel);
+        if (channel != null) {
+            return CompletableFuture.completedFuture(channel);
         }
-        return channel;
+        return connectAsync(inetSocketAddress, rpcServiceName).thenApply(connected -> {
+            channelProvider.set(inetSocketAddress, connected);
+            return connected;
+        });
     }
 
     public void close() {
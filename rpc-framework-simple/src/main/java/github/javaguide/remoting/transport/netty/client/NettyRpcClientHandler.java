@@ -1,22 +1,35 @@
 package github.javaguide.remoting.transport.netty.client;
 
 import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.factory.SingletonFactory;
+import github.javaguide.health.ConnectionHealth;
+import github.javaguide.health.ConnectionHealthRegistry;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchResponse;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.WriteQueue;
+import github.javaguide.utils.RpcConfigUtil;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.timeout.IdleState;
-import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Customize the client ChannelHandler to process the data sent by the server
@@ -24,18 +37,37 @@ import java.net.InetSocketAddress;
  * <p>
  * 如果继承自 SimpleChannelInboundHandler 的话就不要考虑 ByteBuf 的释放 ，{@link SimpleChannelInboundHandler} 内部的
  * channelRead 方法会替你释放 ByteBuf ，避免可能导致的内存泄露问题。详见《Netty进阶之路 跟着案例学 Netty》
+ * <p>
+ * 连接建立后按 rpc.heartbeat.interval-ms 在 EventLoop 上定时发送带时间戳的 ping，服务端原样返回时间戳，
+ * 收到 pong 时计算 RTT，更新 {@link ConnectionHealthRegistry} 中该地址的 RTT、抖动和未响应次数。
+ * {@link #ping(Channel)} 发送的 ping 还会用 RTT 完成它返回的 future
  *
  * @author shuang.kou
  * @createTime 2020年05月25日 20:50:00
  */
 @Slf4j
 public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
+    private static final long HEARTBEAT_INTERVAL_MILLIS = Math.max(1, RpcConfigUtil.getLong(RpcConfigEnum.HEARTBEAT_INTERVAL_MS, 5000));
+    /**
+     * key: ping 的时间戳
+     * value: 等待 pong 的 future
+     */
+    private static final AttributeKey<Map<Long, CompletableFuture<Long>>> PENDING_PONGS = AttributeKey.valueOf("rpcPendingPongs");
+
     private final UnprocessedRequests unprocessedRequests;
-    private final NettyRpcClient nettyRpcClient;
+    private ConnectionHealth connectionHealth;
+    private ScheduledFuture<?> heartbeatFuture;
 
     public NettyRpcClientHandler() {
         this.unprocessedRequests = SingletonFactory.getInstance(UnprocessedRequests.class);
-        this.nettyRpcClient = SingletonFactory.getInstance(NettyRpcClient.class);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        connectionHealth = ConnectionHealthRegistry.register(address(ctx.channel()));
+        heartbeatFuture = ctx.executor().scheduleAtFixedRate(() -> sendPing(ctx.channel(), System.nanoTime()),
+                HEARTBEAT_INTERVAL_MILLIS, HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        super.channelActive(ctx);
     }
 
     /**
@@ -44,15 +76,33 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         try {
-            log.info("client receive msg: [{}]", msg);
             if (msg instanceof RpcMessage) {
                 RpcMessage tmp = (RpcMessage) msg;
                 byte messageType = tmp.getMessageType();
                 if (messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
-                    log.info("heart [{}]", tmp.getData());
+                    // the pong echoes the nanoTime of the ping
+                    if (tmp.getData() instanceof Long) {
+                        long rtt = System.nanoTime() - (Long) tmp.getData();
+                        if (connectionHealth != null) {
+                            connectionHealth.onPong(rtt);
+                        }
+                        Map<Long, CompletableFuture<Long>> pendingPongs = ctx.channel().attr(PENDING_PONGS).get();
+                        CompletableFuture<Long> pong = pendingPongs == null ? null : pendingPongs.remove(tmp.getData());
+                        if (pong != null) {
+                            pong.complete(rtt);
+                        }
+                    }
+                    log.debug("heart [{}] {}", tmp.getData(), connectionHealth);
+                    return;
+                }
+                log.debug("client receive msg: [{}]", msg);
+                if (messageType == RpcConstants.CREDIT_TYPE) {
+                    RequestWindow.of(ctx.channel()).grant((Integer) tmp.getData());
                 } else if (messageType == RpcConstants.RESPONSE_TYPE) {
                     RpcResponse<Object> rpcResponse = (RpcResponse<Object>) tmp.getData();
                     unprocessedRequests.complete(rpcResponse);
+                } else if (messageType == RpcConstants.BATCH_RESPONSE_TYPE) {
+                    ((RpcBatchResponse) tmp.getData()).getResponses().forEach(unprocessedRequests::complete);
                 }
             }
         } finally {
@@ -60,23 +110,98 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
-    @Override
-    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
-        if (evt instanceof IdleStateEvent) {
-            IdleState state = ((IdleStateEvent) evt).state();
-            if (state == IdleState.WRITER_IDLE) {
-                log.info("write idle happen [{}]", ctx.channel().remoteAddress());
-                Channel channel = nettyRpcClient.getChannel((InetSocketAddress) ctx.channel().remoteAddress());
-                RpcMessage rpcMessage = new RpcMessage();
-                rpcMessage.setCodec(SerializationTypeEnum.PROTOSTUFF.getCode());
-                rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
-                rpcMessage.setMessageType(RpcConstants.HEARTBEAT_REQUEST_TYPE);
-                rpcMessage.setData(RpcConstants.PING);
-                channel.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
-            }
+    /**
+     * 发送一个带时间戳的 ping，不需要序列化和压缩，可以在任意线程调用
+     *
+     * @return 收到 pong 时以 RTT（纳秒）完成的 future，发送失败或连接关闭时异常完成。调用方不再等待时应取消它
+     */
+    public static CompletableFuture<Long> ping(Channel channel) {
+        CompletableFuture<Long> pong = new CompletableFuture<>();
+        if (!channel.isActive()) {
+            pong.completeExceptionally(new ClosedChannelException());
+            return pong;
+        }
+        Map<Long, CompletableFuture<Long>> pendingPongs = pendingPongs(channel);
+        long timestamp = System.nanoTime();
+        // pings sent at the same nanoTime from different threads need different keys
+        while (pendingPongs.putIfAbsent(timestamp, pong) != null) {
+            timestamp++;
+        }
+        long key = timestamp;
+        pong.whenComplete((rtt, e) -> pendingPongs.remove(key, pong));
+        ChannelFuture sent = sendPing(channel, timestamp);
+        if (sent == null) {
+            pong.completeExceptionally(new ClosedChannelException());
         } else {
-            super.userEventTriggered(ctx, evt);
+            sent.addListener(f -> {
+                if (!f.isSuccess()) {
+                    pong.completeExceptionally(f.cause());
+                }
+            });
         }
+        return pong;
+    }
+
+    /**
+     * @return 写入的 future，连接已关闭时返回 null
+     */
+    private static ChannelFuture sendPing(Channel channel, long timestamp) {
+        if (!channel.isActive()) {
+            return null;
+        }
+        ConnectionHealthRegistry.register(address(channel)).onPingSent();
+        RpcMessage rpcMessage = new RpcMessage();
+        rpcMessage.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+        rpcMessage.setMessageType(RpcConstants.HEARTBEAT_REQUEST_TYPE);
+        rpcMessage.setData(timestamp);
+        return WriteQueue.of(channel).enqueue(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    private static Map<Long, CompletableFuture<Long>> pendingPongs(Channel channel) {
+        Attribute<Map<Long, CompletableFuture<Long>>> attribute = channel.attr(PENDING_PONGS);
+        Map<Long, CompletableFuture<Long>> pendingPongs = attribute.get();
+        if (pendingPongs == null) {
+            pendingPongs = new ConcurrentHashMap<>();
+            Map<Long, CompletableFuture<Long>> old = attribute.setIfAbsent(pendingPongs);
+            if (old != null) {
+                pendingPongs = old;
+            }
+        }
+        return pendingPongs;
+    }
+
+    private static String address(Channel channel) {
+        // unix domain socket channels are tracked under the tcp address of the provider
+        InetSocketAddress serviceAddress = channel.attr(NettyRpcClient.SERVICE_ADDRESS).get();
+        if (serviceAddress == null) {
+            serviceAddress = (InetSocketAddress) channel.remoteAddress();
+        }
+        return ConnectionHealthRegistry.toAddress(serviceAddress);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (heartbeatFuture != null) {
+            heartbeatFuture.cancel(false);
+        }
+        ConnectionHealthRegistry.remove(address(ctx.channel()));
+        RequestWindow.of(ctx.channel()).close();
+        Map<Long, CompletableFuture<Long>> pendingPongs = ctx.channel().attr(PENDING_PONGS).get();
+        if (pendingPongs != null) {
+            pendingPongs.values().forEach(pong -> pong.completeExceptionally(new ClosedChannelException()));
+        }
+        // fail the requests still waiting in the write queue
+        WriteQueue.of(ctx.channel()).resume();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            WriteQueue.of(ctx.channel()).resume();
+        }
+        super.channelWritabilityChanged(ctx);
     }
 
     /**
@@ -90,4 +215,3 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
     }
 
 }
-
@@ -0,0 +1,187 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.utils.RpcConfigUtil;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端每个连接的请求窗口（基于额度的流量控制）
+ * <p>
+ * 新连接默认拥有 {@link RpcConstants#INITIAL_REQUEST_WINDOW} 个请求额度，每发送一个请求消耗一个额度，
+ * 服务端处理完请求后通过 CREDIT 消息归还额度。额度用完时根据 rpc.flow.mode 处理：
+ * block（阻塞等待，超时失败）、queue（放入有界队列，拿到额度后再发送）、fail（立即失败）
+ *
+ * @createTime 2026年10月19日 14:20:00
+ */
+@Slf4j
+public final class RequestWindow {
+
+    private static final AttributeKey<RequestWindow> REQUEST_WINDOW = AttributeKey.valueOf("rpcRequestWindow");
+    static final String MODE_BLOCK = "block";
+    static final String MODE_QUEUE = "queue";
+    static final String MODE_FAIL = "fail";
+    private static final String MODE = RpcConfigUtil.getString(RpcConfigEnum.FLOW_MODE, MODE_BLOCK).toLowerCase();
+    private static final long BLOCK_TIMEOUT_MILLIS = RpcConfigUtil.getLong(RpcConfigEnum.FLOW_BLOCK_TIMEOUT_MS, 3000);
+    private static final int MAX_QUEUED = RpcConfigUtil.getInt(RpcConfigEnum.FLOW_MAX_QUEUED, 1024);
+
+    private final Channel channel;
+    private final String mode;
+    private final long blockTimeoutMillis;
+    private final int maxQueued;
+    private final String metricName;
+    private final AtomicInteger credits = new AtomicInteger(RpcConstants.INITIAL_REQUEST_WINDOW);
+    private final Queue<Runnable> queuedSends = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    private volatile int waiters;
+    private volatile boolean closed;
+
+    private RequestWindow(Channel channel) {
+        this(channel, MODE, BLOCK_TIMEOUT_MILLIS, MAX_QUEUED);
+    }
+
+    RequestWindow(Channel channel, String mode, long blockTimeoutMillis, int maxQueued) {
+        this.channel = channel;
+        this.mode = mode;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.maxQueued = maxQueued;
+        this.metricName = String.valueOf(channel.remoteAddress());
+        RpcMetrics.gauge("rpc.client.flow.credits[" + metricName + "]", credits::get);
+        RpcMetrics.gauge("rpc.client.flow.queued[" + metricName + "]", queuedCount::get);
+    }
+
+    public static RequestWindow of(Channel channel) {
+        Attribute<RequestWindow> attribute = channel.attr(REQUEST_WINDOW);
+        RequestWindow window = attribute.get();
+        if (window == null) {
+            window = new RequestWindow(channel);
+            RequestWindow old = attribute.setIfAbsent(window);
+            if (old != null) {
+                window = old;
+            }
+        }
+        return window;
+    }
+
+    /**
+     * 拿到一个请求额度后执行 send；额度不足时阻塞、排队或抛出 RpcException
+     */
+    public void submit(Runnable send) {
+        if (tryAcquire()) {
+            send.run();
+            return;
+        }
+        // never block the event loop
+        if (MODE_FAIL.equals(mode) || channel.eventLoop().inEventLoop()) {
+            throw windowExhausted();
+        }
+        if (MODE_QUEUE.equals(mode)) {
+            if (queuedCount.incrementAndGet() > maxQueued) {
+                queuedCount.decrementAndGet();
+                throw windowExhausted();
+            }
+            queuedSends.add(send);
+            // credits may have been granted between tryAcquire and add
+            drainQueued();
+            return;
+        }
+        awaitCredit();
+        send.run();
+    }
+
+    /**
+     * 服务端归还（或调整）请求额度
+     */
+    public void grant(int increment) {
+        credits.addAndGet(increment);
+        drainQueued();
+        if (waiters > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 连接关闭：唤醒等待者，队列中的请求直接执行，由写失败回调通知调用方
+     */
+    public void close() {
+        closed = true;
+        RpcMetrics.removeGauge("rpc.client.flow.credits[" + metricName + "]");
+        RpcMetrics.removeGauge("rpc.client.flow.queued[" + metricName + "]");
+        Runnable send;
+        while ((send = queuedSends.poll()) != null) {
+            queuedCount.decrementAndGet();
+            send.run();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    public int availableCredits() {
+        return credits.get();
+    }
+
+    private boolean tryAcquire() {
+        for (;;) {
+            int current = credits.get();
+            if (current <= 0) {
+                return closed;
+            }
+            if (credits.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void drainQueued() {
+        while (!queuedSends.isEmpty() && tryAcquire()) {
+            Runnable send = queuedSends.poll();
+            if (send == null) {
+                // another thread took it, give the credit back
+                credits.incrementAndGet();
+                return;
+            }
+            queuedCount.decrementAndGet();
+            send.run();
+        }
+    }
+
+    private void awaitCredit() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        synchronized (this) {
+            waiters++;
+            try {
+                while (!tryAcquire()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw windowExhausted();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw windowExhausted();
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    private RpcException windowExhausted() {
+        RpcMetrics.counter("rpc.client.flow.rejected").increment();
+        return new RpcException(RpcErrorMessageEnum.REQUEST_WINDOW_EXHAUSTED, metricName);
+    }
+}
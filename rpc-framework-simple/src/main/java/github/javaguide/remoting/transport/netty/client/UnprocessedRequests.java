@@ -1,6 +1,7 @@
 package github.javaguide.remoting.transport.netty.client;
 
 import github.javaguide.remoting.dto.RpcResponse;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -12,6 +13,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * @author shuang.kou
  * @createTime 2020年06月04日 17:30:00
  */
+@Slf4j
 public class UnprocessedRequests {
     private static final Map<String, CompletableFuture<RpcResponse<Object>>> UNPROCESSED_RESPONSE_FUTURES = new ConcurrentHashMap<>();
 
@@ -19,12 +21,21 @@ public class UnprocessedRequests {
         UNPROCESSED_RESPONSE_FUTURES.put(requestId, future);
     }
 
+    public void remove(String requestId) {
+        UNPROCESSED_RESPONSE_FUTURES.remove(requestId);
+    }
+
+    public int size() {
+        return UNPROCESSED_RESPONSE_FUTURES.size();
+    }
+
     public void complete(RpcResponse<Object> rpcResponse) {
         CompletableFuture<RpcResponse<Object>> future = UNPROCESSED_RESPONSE_FUTURES.remove(rpcResponse.getRequestId());
         if (null != future) {
             future.complete(rpcResponse);
         } else {
-            throw new IllegalStateException();
+            // the caller gave up (timeout) and removed the request, the late response is dropped
+            log.debug("no unprocessed request for response [{}]", rpcResponse.getRequestId());
         }
     }
 }
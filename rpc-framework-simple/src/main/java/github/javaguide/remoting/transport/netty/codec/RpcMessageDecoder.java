@@ -5,11 +5,15 @@ import github.javaguide.enums.CompressTypeEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchRequest;
+import github.javaguide.remoting.dto.RpcBatchResponse;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.netty.InboundBudget;
 import github.javaguide.serialize.Serializer;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import lombok.extern.slf4j.Slf4j;
@@ -42,6 +46,20 @@ import java.util.Arrays;
  */
 @Slf4j
 public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
+
+    /**
+     * server side: admit request frames against the {@link InboundBudget}
+     */
+    private final boolean admissionControl;
+    /**
+     * bytes admitted for the frame being received
+     */
+    private int admittedBytes;
+    /**
+     * the frame being received waits for the budget, do not request reads until it is admitted
+     */
+    private boolean waitingForBudget;
+
     public RpcMessageDecoder() {
         // lengthFieldOffset: magic code is 4B, and version is 1B, and then full length. so value is 5
         // lengthFieldLength: full length is 4B. so value is 4
@@ -62,31 +80,126 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
      */
     public RpcMessageDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength,
                              int lengthAdjustment, int initialBytesToStrip) {
+        this(maxFrameLength, lengthFieldOffset, lengthFieldLength, lengthAdjustment, initialBytesToStrip, false);
+    }
+
+    private RpcMessageDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength,
+                              int lengthAdjustment, int initialBytesToStrip, boolean admissionControl) {
         super(maxFrameLength, lengthFieldOffset, lengthFieldLength, lengthAdjustment, initialBytesToStrip);
+        this.admissionControl = admissionControl;
+    }
+
+    /**
+     * 服务端使用的解码器：请求帧按头部中的长度向 {@link InboundBudget} 申请预算，预算不足时暂停读取；
+     * 超过单个连接预算的帧只根据头部就被拒绝（TooLongFrameException），不会读入消息体
+     */
+    public static RpcMessageDecoder withAdmissionControl() {
+        return new RpcMessageDecoder(Math.min(RpcConstants.MAX_FRAME_LENGTH, InboundBudget.CONNECTION_CAPACITY),
+                5, 4, -9, 0, true);
     }
 
     @Override
     protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        if (admissionControl && admittedBytes == 0 && !admit(ctx, in)) {
+            // wait for the budget, InboundBudget resumes reading and calls resumeDecoding
+            waitingForBudget = true;
+            return null;
+        }
+        waitingForBudget = false;
         Object decoded = super.decode(ctx, in);
         if (decoded instanceof ByteBuf) {
             ByteBuf frame = (ByteBuf) decoded;
+            int frameBytes = admittedBytes;
+            admittedBytes = 0;
             if (frame.readableBytes() >= RpcConstants.TOTAL_LENGTH) {
                 try {
-                    return decodeFrame(frame);
+                    RpcMessage rpcMessage = decodeFrame(frame);
+                    rpcMessage.setInboundBytes(frameBytes);
+                    return rpcMessage;
                 } catch (Exception e) {
+                    InboundBudget.of(ctx.channel()).release(frameBytes);
                     log.error("Decode frame error!", e);
                     throw e;
                 } finally {
                     frame.release();
                 }
             }
-
+            InboundBudget.of(ctx.channel()).release(frameBytes);
         }
         return decoded;
     }
 
+    /**
+     * 头部完整时读取帧长度和类型（不移动读指针），为请求帧（包括批量请求和单向请求）申请预算
+     *
+     * @return false 表示预算不足
+     */
+    private boolean admit(ChannelHandlerContext ctx, ByteBuf in) {
+        if (in.readableBytes() < RpcConstants.HEAD_LENGTH) {
+            return true;
+        }
+        int start = in.readerIndex();
+        int fullLength = in.getInt(start + 5);
+        byte messageType = in.getByte(start + 9);
+        if ((messageType != RpcConstants.REQUEST_TYPE && messageType != RpcConstants.BATCH_REQUEST_TYPE
+                && messageType != RpcConstants.ONEWAY_TYPE)
+                || fullLength < RpcConstants.HEAD_LENGTH || fullLength > InboundBudget.CONNECTION_CAPACITY) {
+            // heartbeats and credits are tiny, malformed and too long frames are rejected by the frame decoder
+            return true;
+        }
+        if (!InboundBudget.of(ctx.channel()).tryAcquire(fullLength, () -> resumeDecoding(ctx))) {
+            return false;
+        }
+        admittedBytes = fullLength;
+        return true;
+    }
+
+    /**
+     * 预算归还后在 EventLoop 中调用：继续解码已经缓存的数据，不经过 pipeline 中解码器前面的 handler
+     */
+    private void resumeDecoding(ChannelHandlerContext ctx) {
+        if (ctx.isRemoved() || !ctx.channel().isActive()) {
+            return;
+        }
+        try {
+            channelRead(ctx, Unpooled.EMPTY_BUFFER);
+            channelReadComplete(ctx);
+        } catch (Exception e) {
+            ctx.fireExceptionCaught(e);
+        }
+    }
 
-    private Object decodeFrame(ByteBuf in) {
+    /**
+     * {@link io.netty.handler.codec.ByteToMessageDecoder} requests another read when autoRead is off and no message
+     * was decoded, which would keep reading the body and the following frames of a paused connection
+     */
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        if (waitingForBudget) {
+            discardSomeReadBytes();
+            ctx.fireChannelReadComplete();
+            return;
+        }
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        waitingForBudget = false;
+        if (admittedBytes > 0) {
+            InboundBudget.of(ctx.channel()).release(admittedBytes);
+            admittedBytes = 0;
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * decode one complete frame (header + body), also used by transports that do not run on netty channels
+     *
+     * @param in a buffer holding exactly one frame
+     * @return the decoded message
+     */
+    public static RpcMessage decodeFrame(ByteBuf in) {
         // note: must read ByteBuf in order
         checkMagicNumber(in);
         checkVersion(in);
@@ -98,14 +211,20 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
         int requestId = in.readInt();
         RpcMessage rpcMessage = RpcMessage.builder()
                 .codec(codecType)
+                .compress(compressType)
                 .requestId(requestId)
                 .messageType(messageType).build();
-        if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
-            rpcMessage.setData(RpcConstants.PING);
+        if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE || messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
+            if (fullLength - RpcConstants.HEAD_LENGTH >= RpcConstants.HEARTBEAT_BODY_LENGTH) {
+                // timestamp of the ping, echoed back in the pong
+                rpcMessage.setData(in.readLong());
+            } else {
+                rpcMessage.setData(messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE ? RpcConstants.PING : RpcConstants.PONG);
+            }
             return rpcMessage;
         }
-        if (messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
-            rpcMessage.setData(RpcConstants.PONG);
+        if (messageType == RpcConstants.CREDIT_TYPE) {
+            rpcMessage.setData(in.readInt());
             return rpcMessage;
         }
         int bodyLength = fullLength - RpcConstants.HEAD_LENGTH;
@@ -119,12 +238,16 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
             bs = compress.decompress(bs);
             // deserialize the object
             String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
-            log.info("codec name: [{}] ", codecName);
+            log.debug("codec name: [{}] ", codecName);
             Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
                     .getExtension(codecName);
-            if (messageType == RpcConstants.REQUEST_TYPE) {
+            if (messageType == RpcConstants.REQUEST_TYPE || messageType == RpcConstants.ONEWAY_TYPE) {
                 RpcRequest tmpValue = serializer.deserialize(bs, RpcRequest.class);
                 rpcMessage.setData(tmpValue);
+            } else if (messageType == RpcConstants.BATCH_REQUEST_TYPE) {
+                rpcMessage.setData(serializer.deserialize(bs, RpcBatchRequest.class));
+            } else if (messageType == RpcConstants.BATCH_RESPONSE_TYPE) {
+                rpcMessage.setData(serializer.deserialize(bs, RpcBatchResponse.class));
             } else {
                 RpcResponse tmpValue = serializer.deserialize(bs, RpcResponse.class);
                 rpcMessage.setData(tmpValue);
@@ -134,7 +257,7 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
 
     }
 
-    private void checkVersion(ByteBuf in) {
+    private static void checkVersion(ByteBuf in) {
         // read the version and compare
         byte version = in.readByte();
         if (version != RpcConstants.VERSION) {
@@ -142,7 +265,7 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
         }
     }
 
-    private void checkMagicNumber(ByteBuf in) {
+    private static void checkMagicNumber(ByteBuf in) {
         // read the first 4 bit, which is the magic number, and compare
         int len = RpcConstants.MAGIC_NUMBER.length;
         byte[] tmp = new byte[len];
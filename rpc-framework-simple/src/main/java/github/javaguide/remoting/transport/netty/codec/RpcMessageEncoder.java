@@ -47,46 +47,61 @@ public class RpcMessageEncoder extends MessageToByteEncoder<RpcMessage> {
     @Override
     protected void encode(ChannelHandlerContext ctx, RpcMessage rpcMessage, ByteBuf out) {
         try {
-            out.writeBytes(RpcConstants.MAGIC_NUMBER);
-            out.writeByte(RpcConstants.VERSION);
-            // leave a place to write the value of full length
-            out.writerIndex(out.writerIndex() + 4);
-            byte messageType = rpcMessage.getMessageType();
-            out.writeByte(messageType);
-            out.writeByte(rpcMessage.getCodec());
-            out.writeByte(CompressTypeEnum.GZIP.getCode());
-            out.writeInt(ATOMIC_INTEGER.getAndIncrement());
-            // build full length
-            byte[] bodyBytes = null;
-            int fullLength = RpcConstants.HEAD_LENGTH;
-            // if messageType is not heartbeat message,fullLength = head length + body length
-            if (messageType != RpcConstants.HEARTBEAT_REQUEST_TYPE
-                    && messageType != RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
-                // serialize the object
-                String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
-                log.info("codec name: [{}] ", codecName);
-                Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
-                        .getExtension(codecName);
-                bodyBytes = serializer.serialize(rpcMessage.getData());
-                // compress the bytes
-                String compressName = CompressTypeEnum.getName(rpcMessage.getCompress());
-                Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
-                        .getExtension(compressName);
-                bodyBytes = compress.compress(bodyBytes);
-                fullLength += bodyBytes.length;
-            }
-
-            if (bodyBytes != null) {
-                out.writeBytes(bodyBytes);
-            }
-            int writeIndex = out.writerIndex();
-            out.writerIndex(writeIndex - fullLength + RpcConstants.MAGIC_NUMBER.length + 1);
-            out.writeInt(fullLength);
-            out.writerIndex(writeIndex);
+            encode(rpcMessage, out);
         } catch (Exception e) {
             log.error("Encode request error!", e);
         }
+    }
 
+    /**
+     * write one complete frame (header + body), also used by transports that do not run on netty channels
+     */
+    public static void encode(RpcMessage rpcMessage, ByteBuf out) {
+        out.writeBytes(RpcConstants.MAGIC_NUMBER);
+        out.writeByte(RpcConstants.VERSION);
+        // leave a place to write the value of full length
+        out.writerIndex(out.writerIndex() + 4);
+        byte messageType = rpcMessage.getMessageType();
+        out.writeByte(messageType);
+        out.writeByte(rpcMessage.getCodec());
+        out.writeByte(CompressTypeEnum.GZIP.getCode());
+        out.writeInt(ATOMIC_INTEGER.getAndIncrement());
+        // build full length
+        byte[] bodyBytes = null;
+        int fullLength = RpcConstants.HEAD_LENGTH;
+        if (messageType == RpcConstants.CREDIT_TYPE) {
+            // credit frame carries a 4B credit increment and does not need serialization
+            out.writeInt((Integer) rpcMessage.getData());
+            fullLength += 4;
+        } else if (rpcMessage.getData() instanceof Long && (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE
+                || messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE)) {
+            // timestamped ping/pong carries an 8B System.nanoTime() of the ping sender
+            out.writeLong((Long) rpcMessage.getData());
+            fullLength += RpcConstants.HEARTBEAT_BODY_LENGTH;
+        } else if (messageType != RpcConstants.HEARTBEAT_REQUEST_TYPE
+                && messageType != RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
+            // if messageType is not heartbeat message,fullLength = head length + body length
+            // serialize the object
+            String codecName = SerializationTypeEnum.getName(rpcMessage.getCodec());
+            log.debug("codec name: [{}] ", codecName);
+            Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
+                    .getExtension(codecName);
+            bodyBytes = serializer.serialize(rpcMessage.getData());
+            // compress the bytes
+            String compressName = CompressTypeEnum.getName(rpcMessage.getCompress());
+            Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
+                    .getExtension(compressName);
+            bodyBytes = compress.compress(bodyBytes);
+            fullLength += bodyBytes.length;
+        }
+
+        if (bodyBytes != null) {
+            out.writeBytes(bodyBytes);
+        }
+        int writeIndex = out.writerIndex();
+        out.writerIndex(writeIndex - fullLength + RpcConstants.MAGIC_NUMBER.length + 1);
+        out.writeInt(fullLength);
+        out.writerIndex(writeIndex);
     }
 
 
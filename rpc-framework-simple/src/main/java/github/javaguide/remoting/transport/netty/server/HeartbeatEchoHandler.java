@@ -0,0 +1,36 @@
+package github.javaguide.remoting.transport.netty.server;
+
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.transport.netty.WriteQueue;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 在 I/O 线程直接应答心跳：pong 原样带回 ping 中的时间戳，客户端据此计算 RTT。
+ * 心跳不再进入业务线程池，测得的 RTT 只反映网络和 I/O 的延迟，其他消息继续向后传递
+ *
+ * @createTime 2026年10月19日 16:40:00
+ */
+@Slf4j
+public class HeartbeatEchoHandler extends ChannelInboundHandlerAdapter {
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof RpcMessage && ((RpcMessage) msg).getMessageType() == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
+            RpcMessage ping = (RpcMessage) msg;
+            log.debug("heart [{}] from [{}]", ping.getData(), ctx.channel().remoteAddress());
+            RpcMessage pong = new RpcMessage();
+            pong.setCodec(ping.getCodec());
+            pong.setCompress(ping.getCompress());
+            pong.setMessageType(RpcConstants.HEARTBEAT_RESPONSE_TYPE);
+            // clients without timestamps send the constant "ping"
+            pong.setData(ping.getData() instanceof Long ? ping.getData() : RpcConstants.PONG);
+            WriteQueue.of(ctx.channel()).enqueue(pong).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+}
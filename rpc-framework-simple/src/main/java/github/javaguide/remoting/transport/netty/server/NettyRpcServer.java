@@ -2,31 +2,40 @@ package github.javaguide.remoting.transport.netty.server;
 
 import github.javaguide.config.CustomShutdownHook;
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.handler.BulkheadRegistry;
+import github.javaguide.remoting.handler.VirtualThreadExecutor;
+import github.javaguide.remoting.transport.netty.NettyEventLoopFactory;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
 import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
-import github.javaguide.utils.RuntimeUtil;
-import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import github.javaguide.remoting.transport.shm.ShmRpcServer;
+import github.javaguide.utils.RpcConfigUtil;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.timeout.IdleStateHandler;
-import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -50,15 +59,32 @@ public class NettyRpcServer {
         serviceProvider.publishService(rpcServiceConfig);
     }
 
+    /**
+     * 服务端额外监听的 unix domain socket 路径，没有开启或当前传输不支持时返回 null
+     */
+    public static String domainSocketPath() {
+        if (!NettyEventLoopFactory.isDomainSocketSupported() || !RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_UDS_ENABLED, false)) {
+            return null;
+        }
+        return RpcConfigUtil.getString(RpcConfigEnum.NETTY_UDS_PATH, "/tmp/my-rpc-" + PORT + ".sock");
+    }
+
+    private static WriteBufferWaterMark writeBufferWaterMark() {
+        int low = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_WRITE_BUFFER_LOW_WATER_MARK, WriteBufferWaterMark.DEFAULT.low());
+        int high = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_WRITE_BUFFER_HIGH_WATER_MARK, WriteBufferWaterMark.DEFAULT.high());
+        return new WriteBufferWaterMark(Math.min(low, high), high);
+    }
+
     /**
      * 1.创建java的钩子方法在JVM销毁前释放资源（zookeeper节点和线程池）
-     * 2.给引导类配置两大线程组，确定了多线程模式（默认线程数=cpu核心数*2）（一个 Acceptor 线程只负责监听客户端的连接，一个 NIO 线程池负责具体处理）
+     * 2.给引导类配置两大线程组，确定了多线程模式（默认线程数=cpu核心数*2）（Acceptor 线程只负责监听客户端的连接，一个 NIO/epoll 线程池负责具体处理）
+     *   epoll 下开启 SO_REUSEPORT 时，会有多个 Acceptor 绑定同一端口，由内核把新连接分散到各个 Acceptor
      * 3.TCP开启Nagle 算法
      * 4.开启 TCP 底层心跳机制
      * 5.设置支持长连接TCP连接的数量
      * 6.给引导类创建一个ChannelInitializer ，然后指定了服务端消息的业务处理逻辑 HelloServerHandler 对象
-     * 7.绑定本机服务器和指定端口（9998），同步等待绑定成功
-     * 8.等待服务端监听端口关闭（阻塞等待直到服务器Channel关闭(closeFuture()方法获取Channel 的CloseFuture对象,然后调用sync()方法)）
+     * 7.绑定本机服务器和指定端口（9998），同步等待绑定成功（每个 Acceptor 绑定一次）；开启了 unix domain socket 时再绑定一个 socket 文件，开启了共享内存时再启动 ShmRpcServer
+     * 8.等待服务端监听端口关闭（阻塞等待直到所有服务器Channel关闭(closeFuture()方法获取Channel 的CloseFuture对象,然后调用sync()方法)）
      * @param
      * @return: void
      * @author: gefeng
@@ -68,59 +94,94 @@ public class NettyRpcServer {
     public void start() {
         CustomShutdownHook.getCustomShutdownHook().clearAll();
         String host = InetAddress.getLocalHost().getHostAddress();
-        EventLoopGroup bossGroup = new NioEventLoopGroup(1);//接收连接的线程
-        EventLoopGroup workerGroup = new NioEventLoopGroup();//用于具体处理
-        DefaultEventExecutorGroup serviceHandlerGroup = new DefaultEventExecutorGroup(
-                RuntimeUtil.cpus() * 2,
-                ThreadPoolFactoryUtil.createThreadFactory("service-handler-group", false)
-        );
+        int acceptors = NettyEventLoopFactory.acceptors();
+        EventLoopGroup bossGroup = NettyEventLoopFactory.eventLoopGroup(acceptors, "netty-server-boss");//接收连接的线程
+        EventLoopGroup workerGroup = NettyEventLoopFactory.eventLoopGroup(0, "netty-server-worker");//用于具体处理
+        // 请求由 I/O 线程分发到服务的舱壁；没有舱壁的服务在 JDK 21+ 且开启了虚拟线程时每次调用一个虚拟线程，否则使用默认舱壁。
+        // 不再使用 DefaultEventExecutorGroup：它把每个连接绑定到一个线程，一个慢请求会挡住同一连接上后面的所有请求
+        VirtualThreadExecutor virtualThreadExecutor = VirtualThreadExecutor.getIfEnabled();
+        Executor defaultExecutor = virtualThreadExecutor != null ? virtualThreadExecutor
+                : SingletonFactory.getInstance(BulkheadRegistry.class).getOrCreate(BulkheadRegistry.DEFAULT_BULKHEAD, 0, 0);
+        // tcp 和 unix domain socket 共用同一套 pipeline
+        ChannelInitializer<Channel> channelInitializer = new ChannelInitializer<Channel>() {
+            /**
+             * 1.当Channel被创建时，它会被自动地分配到它专属的ChannelPipeLine
+             * 2.ChannelPipeLine为ChannelHandler的链，一个pipeline上可以有多个ChannelHandler
+             * 3.在 ChannelPipeline 上通过 addLast() 方法添加一个或者多个ChannelHandler （一个数据或者事件可能会被多个 Handler 处理） 。
+             * 当一个 ChannelHandler 处理完之后就将数据交给下一个 ChannelHandler 。（Channel中的数据将被这些ChannelHandler一次处理）
+             * @param ch 1
+             * @return: void
+             * @author: gefeng
+             * @date: 2022/8/31 19:02
+             */
+            @Override
+            protected void initChannel(Channel ch) {
+                // 30 秒之内没有收到客户端请求的话就关闭连接
+                ChannelPipeline p = ch.pipeline();
+                p.addLast(new IdleStateHandler(30, 0, 0, TimeUnit.SECONDS));
+                p.addLast(new RpcMessageEncoder());//消息序列化编码器
+                p.addLast(RpcMessageDecoder.withAdmissionControl());//消息序列化解码器，请求帧先申请入站预算
+                // ping/pong 在 I/O 线程直接应答，不经过业务线程池，RTT 不受业务排队影响
+                p.addLast(new HeartbeatEchoHandler());
+                p.addLast(new NettyRpcServerHandler(defaultExecutor));
+            }
+        };
         try {
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
-                    //服务端网络操作的抽象类：NioServerSocketChannel（NIO模式）
-                    .channel(NioServerSocketChannel.class)
+                    //服务端网络操作的抽象类：EpollServerSocketChannel（epoll模式）或 NioServerSocketChannel（NIO模式）
+                    .channel(NettyEventLoopFactory.serverSocketChannelClass())
                     // TCP默认开启了 Nagle 算法，该算法的作用是尽可能的发送大数据快，减少网络传输。TCP_NODELAY 参数的作用就是控制是否启用 Nagle 算法。
                     .childOption(ChannelOption.TCP_NODELAY, true)
                     // 是否开启 TCP 底层心跳机制
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    // 出站缓冲超过高水位后 channel 不可写：响应留在写队列中，并停止读取该连接的新请求
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark())
                     //表示系统用于临时存放已完成三次握手的请求的队列的最大长度,如果连接建立频繁，服务器处理创建新连接较慢，可以适当调大这个参数（支持长连接TCP连接的数量）
                     .option(ChannelOption.SO_BACKLOG, 128)
                     //打印日志
                     .handler(new LoggingHandler(LogLevel.INFO))
                     // 当客户端第一次进行请求的时候才会进行初始化
-                    .childHandler(new ChannelInitializer<SocketChannel>() {
-                        /**
-                         * 1.当Channel被创建时，它会被自动地分配到它专属的ChannelPipeLine
-                         * 2.ChannelPipeLine为ChannelHandler的链，一个pipeline上可以有多个ChannelHandler
-                         * 3.在 ChannelPipeline 上通过 addLast() 方法添加一个或者多个ChannelHandler （一个数据或者事件可能会被多个 Handler 处理） 。
-                         * 当一个 ChannelHandler 处理完之后就将数据交给下一个 ChannelHandler 。（Channel中的数据将被这些ChannelHandler一次处理）
-                         * @param ch 1
-                         * @return: void
-                         * @author: gefeng
-                         * @date: 2022/8/31 19:02
-                         */
-                        @Override
-                        protected void initChannel(SocketChannel ch) {
-                            // 30 秒之内没有收到客户端请求的话就关闭连接
-                            ChannelPipeline p = ch.pipeline();
-                            p.addLast(new IdleStateHandler(30, 0, 0, TimeUnit.SECONDS));
-                            p.addLast(new RpcMessageEncoder());//消息序列化编码器
-                            p.addLast(new RpcMessageDecoder());//消息序列化解码器
-                            p.addLast(serviceHandlerGroup, new NettyRpcServerHandler());
-                        }
-                    });
+                    .childHandler(channelInitializer);
+            NettyEventLoopFactory.applyServerOptions(b);
 
-            // 绑定端口，同步等待绑定成功
-            ChannelFuture f = b.bind(host, PORT).sync();
+            // 绑定端口，同步等待绑定成功。每次 bind 都会把新的 ServerChannel 注册到 bossGroup 的下一个线程上
+            List<ChannelFuture> bindFutures = new ArrayList<>(acceptors);
+            for (int i = 0; i < acceptors; i++) {
+                bindFutures.add(b.bind(host, PORT).sync());
+            }
+            log.info("netty server started on [{}:{}] with [{}] acceptor(s)", host, PORT, acceptors);
+            String domainSocketPath = domainSocketPath();
+            if (domainSocketPath != null) {
+                // a socket file left by a previous process makes bind fail
+                Files.deleteIfExists(Paths.get(domainSocketPath));
+                ServerBootstrap udsBootstrap = new ServerBootstrap();
+                udsBootstrap.group(bossGroup, workerGroup)
+                        .channel(NettyEventLoopFactory.serverDomainSocketChannelClass())
+                        // 和 tcp 连接相同的写缓冲水位，饱和时同样保留响应并停止读取；TCP_NODELAY 等 tcp 选项对 socket 文件无效
+                        .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark())
+                        .childHandler(channelInitializer);
+                bindFutures.add(udsBootstrap.bind(new DomainSocketAddress(domainSocketPath)).sync());
+                log.info("netty server started on unix domain socket [{}]", domainSocketPath);
+            }
+            if (ShmRpcServer.isEnabled()) {
+                // 同一台机器上的客户端可以通过共享内存调用，和 netty 共用服务注册和业务处理
+                try {
+                    SingletonFactory.getInstance(ShmRpcServer.class).start();
+                } catch (IOException e) {
+                    log.error("start shared memory server failed, only tcp is served", e);
+                }
+            }
             // 等待服务端监听端口关闭
-            f.channel().closeFuture().sync();
+            for (ChannelFuture f : bindFutures) {
+                f.channel().closeFuture().sync();
+            }
         } catch (InterruptedException e) {
             log.error("occur exception when start server:", e);
         } finally {
             log.error("shutdown bossGroup and workerGroup");
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
-            serviceHandlerGroup.shutdownGracefully();
         }
     }
 
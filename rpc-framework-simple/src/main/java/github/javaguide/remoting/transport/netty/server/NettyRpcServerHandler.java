@@ -1,14 +1,27 @@
 package github.javaguide.remoting.transport.netty.server;
 
 import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.enums.RpcResponseCodeEnum;
 import github.javaguide.enums.SerializationTypeEnum;
 import github.javaguide.factory.SingletonFactory;
+import github.javaguide.metrics.RpcMetrics;
 import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcBatchRequest;
+import github.javaguide.remoting.dto.RpcBatchResponse;
 import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.handler.BulkheadRegistry;
+import github.javaguide.remoting.handler.ConcurrencyLimiter;
+import github.javaguide.remoting.handler.ConcurrencyLimiterRegistry;
+import github.javaguide.remoting.handler.InlineWatchdog;
+import github.javaguide.remoting.handler.MethodInvoker;
 import github.javaguide.remoting.handler.RpcRequestHandler;
+import github.javaguide.remoting.transport.netty.InboundBudget;
+import github.javaguide.remoting.transport.netty.WriteQueue;
+import github.javaguide.utils.RpcConfigUtil;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
@@ -18,6 +31,16 @@ import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Customize the ChannelHandler of the server to process the data sent by the client.
  * <p>
@@ -30,40 +53,99 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
 
+    /**
+     * max in-flight requests of one connection, i.e. the request credits granted to the client
+     */
+    private static final int WINDOW = Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.FLOW_WINDOW, RpcConstants.INITIAL_REQUEST_WINDOW));
+    /**
+     * returned credits are batched, one CREDIT message per quarter of the window
+     */
+    private static final int GRANT_THRESHOLD = Math.max(1, WINDOW / 4);
+
+    /**
+     * times a connection exceeded the write buffer high water mark
+     */
+    private static final LongAdder SATURATED = RpcMetrics.counter("rpc.server.write.saturated");
+
     private final RpcRequestHandler rpcRequestHandler;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final InlineWatchdog inlineWatchdog;
+    private final ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+    /**
+     * executor of the services without a bulkhead of their own: the default bulkhead or virtual threads
+     */
+    private final Executor defaultExecutor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger ungranted = new AtomicInteger();
+    private String metricName;
 
-    public NettyRpcServerHandler() {
+    /**
+     * @param defaultExecutor executor running the invocations of the services without a bulkhead of their own
+     */
+    public NettyRpcServerHandler(Executor defaultExecutor) {
         this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+        this.bulkheadRegistry = SingletonFactory.getInstance(BulkheadRegistry.class);
+        this.inlineWatchdog = SingletonFactory.getInstance(InlineWatchdog.class);
+        this.concurrencyLimiterRegistry = SingletonFactory.getInstance(ConcurrencyLimiterRegistry.class);
+        this.defaultExecutor = defaultExecutor;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        // unix domain socket clients have no remote address
+        Object remote = ctx.channel().remoteAddress() != null ? ctx.channel().remoteAddress() : ctx.channel().id().asShortText();
+        metricName = "rpc.server.flow.in-flight[" + remote + "]";
+        RpcMetrics.gauge(metricName, inFlight::get);
+        RpcMetrics.gauge("rpc.server.flow.window", () -> WINDOW);
+        // the client starts with INITIAL_REQUEST_WINDOW credits, adjust it to the configured window
+        if (WINDOW != RpcConstants.INITIAL_REQUEST_WINDOW) {
+            sendCredit(ctx, WINDOW - RpcConstants.INITIAL_REQUEST_WINDOW);
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        RpcMetrics.removeGauge(metricName);
+        // fail the responses still waiting in the write queue
+        WriteQueue.of(ctx.channel()).resume();
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 出站缓冲超过高水位时停止读取这个连接的新请求，已经在执行的请求的响应留在写队列中；
+     * 低于低水位后继续写出并恢复读取
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Channel channel = ctx.channel();
+        if (channel.isWritable()) {
+            log.debug("[{}] is writable again, resume reading", channel.remoteAddress());
+            channel.config().setAutoRead(true);
+            WriteQueue.of(channel).resume();
+        } else {
+            log.debug("[{}] is saturated, stop reading", channel.remoteAddress());
+            SATURATED.increment();
+            channel.config().setAutoRead(false);
+        }
+        super.channelWritabilityChanged(ctx);
     }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         try {
             if (msg instanceof RpcMessage) {
-                log.info("server receive msg: [{}] ", msg);
+                // runs on the I/O thread now, keep it off the hot path
+                log.debug("server receive msg: [{}] ", msg);
                 byte messageType = ((RpcMessage) msg).getMessageType();
-                RpcMessage rpcMessage = new RpcMessage();
-                rpcMessage.setCodec(SerializationTypeEnum.HESSIAN.getCode());
-                rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
-                if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
-                    rpcMessage.setMessageType(RpcConstants.HEARTBEAT_RESPONSE_TYPE);
-                    rpcMessage.setData(RpcConstants.PONG);
-                } else {
-                    RpcRequest rpcRequest = (RpcRequest) ((RpcMessage) msg).getData();
-                    // Execute the target method (the method the client needs to execute) and return the method result
-                    Object result = rpcRequestHandler.handle(rpcRequest);
-                    log.info(String.format("server get result: %s", result.toString()));
-                    rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
-                    if (ctx.channel().isActive() && ctx.channel().isWritable()) {
-                        RpcResponse<Object> rpcResponse = RpcResponse.success(result, rpcRequest.getRequestId());
-                        rpcMessage.setData(rpcResponse);
-                    } else {
-                        RpcResponse<Object> rpcResponse = RpcResponse.fail(RpcResponseCodeEnum.FAIL);
-                        rpcMessage.setData(rpcResponse);
-                        log.error("not writable now, message dropped");
-                    }
+                // heartbeats are answered by HeartbeatEchoHandler on the I/O thread
+                if (messageType == RpcConstants.REQUEST_TYPE) {
+                    dispatch(ctx, (RpcRequest) ((RpcMessage) msg).getData(), ((RpcMessage) msg).getInboundBytes());
+                } else if (messageType == RpcConstants.ONEWAY_TYPE) {
+                    dispatchOneWay(ctx, (RpcRequest) ((RpcMessage) msg).getData(), ((RpcMessage) msg).getInboundBytes());
+                } else if (messageType == RpcConstants.BATCH_REQUEST_TYPE) {
+                    dispatchBatch(ctx, (RpcBatchRequest) ((RpcMessage) msg).getData(), ((RpcMessage) msg).getInboundBytes());
                 }
-                ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
             }
         } finally {
             //Ensure that ByteBuf is released, otherwise there may be memory leaks
@@ -71,6 +153,280 @@ public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * 在 I/O 线程上为请求选择舱壁并提交，同一连接上的请求可以由不同的线程同时执行；@RpcInline 方法直接在 I/O 线程上执行。
+     * 服务超过自适应并发限制或舱壁已满时，直接返回 OVERLOADED 响应，请求不进入队列，也不在 I/O 线程上执行。
+     * 请求帧占用的入站预算（inboundBytes）在响应放入写队列后归还
+     */
+    private void dispatch(ChannelHandlerContext ctx, RpcRequest rpcRequest, int inboundBytes) {
+        InboundBudget inboundBudget = InboundBudget.of(ctx.channel());
+        MethodInvoker invoker = rpcRequestHandler.findMethodInvoker(rpcRequest);
+        if (invoker != null && invoker.isInline()) {
+            // @RpcInline: cheaper to run here than to hand over to another thread and back
+            long start = System.nanoTime();
+            handleRequest(ctx, rpcRequest, invoker, () -> inboundBudget.release(inboundBytes));
+            inlineWatchdog.record(invoker, System.nanoTime() - start);
+            return;
+        }
+        CompletionStage<?> outstanding = invoker == null || invoker.getSingleFlight() == null
+                ? null : invoker.getSingleFlight().outstanding(rpcRequest.getParameters());
+        if (outstanding != null) {
+            // @RpcSingleFlight: an identical call is running, wait for its result without taking a bulkhead thread
+            handleRequest(ctx, rpcRequest, invoker, outstanding, () -> inboundBudget.release(inboundBytes));
+            return;
+        }
+        ConcurrencyLimiter limiter = concurrencyLimiterRegistry.get(rpcRequest.getRpcServiceName());
+        if (limiter != null && !limiter.tryAcquire()) {
+            concurrencyLimiterRegistry.rejected(rpcRequest.getRpcServiceName());
+            log.debug("concurrency limit [{}] reached, reject request [{}]", limiter.getLimit(), rpcRequest.getRequestId());
+            rejectOverloaded(ctx, rpcRequest);
+            inboundBudget.release(inboundBytes);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            bulkheadRegistry.select(rpcRequest, defaultExecutor).execute(() -> {
+                try {
+                    handleRequest(ctx, rpcRequest, invoker, () -> {
+                        inboundBudget.release(inboundBytes);
+                        if (limiter != null) {
+                            // the latency includes the time spent in the bulkhead queue
+                            limiter.release(System.nanoTime() - start);
+                        }
+                    });
+                } catch (Throwable e) {
+                    // same as an exception thrown in the pipeline
+                    exceptionCaught(ctx, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (limiter != null) {
+                limiter.cancel();
+            }
+            log.warn("bulkhead is full, reject request [{}] of [{}]", rpcRequest.getRequestId(), rpcRequest.getRpcServiceName());
+            rejectOverloaded(ctx, rpcRequest);
+            inboundBudget.release(inboundBytes);
+        }
+    }
+
+    /**
+     * 单向请求（@RpcOneWay）：在舱壁上执行，结果不序列化也不写出，失败和过载只记录日志。
+     * 请求占用的额度在执行完成后归还，入站预算同时归还
+     */
+    private void dispatchOneWay(ChannelHandlerContext ctx, RpcRequest rpcRequest, int inboundBytes) {
+        InboundBudget inboundBudget = InboundBudget.of(ctx.channel());
+        CompletableFuture<RpcResponse<Object>> response;
+        if (inFlight.incrementAndGet() > WINDOW) {
+            log.warn("client [{}] exceeds the request window [{}], drop one-way request [{}]",
+                    ctx.channel().remoteAddress(), WINDOW, rpcRequest.getRequestId());
+            response = CompletableFuture.completedFuture(null);
+        } else {
+            response = execute(rpcRequest);
+        }
+        response.whenComplete((rpcResponse, e) -> {
+            if (rpcResponse != null && rpcResponse.getCode() == RpcResponseCodeEnum.OVERLOADED.getCode()) {
+                log.warn("overloaded, drop one-way request [{}] of [{}]", rpcRequest.getRequestId(), rpcRequest.getRpcServiceName());
+            }
+            inFlight.decrementAndGet();
+            returnCredit(ctx);
+            inboundBudget.release(inboundBytes);
+        });
+    }
+
+    /**
+     * 批量请求只占连接的一个额度。并行执行时每个请求各自选择舱壁提交；按顺序执行时前一个请求完成（成功或失败）后才提交下一个。
+     * 批量请求中的请求不在 I/O 线程上执行（@RpcInline 被忽略），单个请求的失败或过载只体现在它自己的响应中，
+     * 所有请求完成后一起写出一个 BATCH_RESPONSE 帧，并归还入站预算
+     */
+    private void dispatchBatch(ChannelHandlerContext ctx, RpcBatchRequest batchRequest, int inboundBytes) {
+        InboundBudget inboundBudget = InboundBudget.of(ctx.channel());
+        List<RpcRequest> rpcRequests = batchRequest.getRequests() == null ? Collections.emptyList() : batchRequest.getRequests();
+        List<CompletableFuture<RpcResponse<Object>>> responses = new ArrayList<>(rpcRequests.size());
+        if (inFlight.incrementAndGet() > WINDOW) {
+            log.warn("client [{}] exceeds the request window [{}]", ctx.channel().remoteAddress(), WINDOW);
+            rpcRequests.forEach(rpcRequest -> responses.add(
+                    CompletableFuture.completedFuture(RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId()))));
+        } else {
+            CompletableFuture<RpcResponse<Object>> previous = null;
+            for (RpcRequest rpcRequest : rpcRequests) {
+                CompletableFuture<RpcResponse<Object>> response = batchRequest.isOrdered() && previous != null
+                        ? previous.thenCompose(ignored -> execute(rpcRequest))
+                        : execute(rpcRequest);
+                responses.add(response);
+                previous = response;
+            }
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, e) -> {
+            try {
+                List<RpcResponse<Object>> batchResponses = new ArrayList<>(responses.size());
+                responses.forEach(response -> batchResponses.add(response.join()));
+                write(ctx, RpcConstants.BATCH_RESPONSE_TYPE, new RpcBatchResponse(batchResponses));
+            } finally {
+                inboundBudget.release(inboundBytes);
+            }
+        });
+    }
+
+    /**
+     * 在舱壁上执行批量请求中的一个请求或者一个单向请求，受服务的自适应并发限制
+     *
+     * @return 总是以响应完成的 future，执行失败时是 FAIL 响应，过载时是 OVERLOADED 响应
+     */
+    private CompletableFuture<RpcResponse<Object>> execute(RpcRequest rpcRequest) {
+        CompletableFuture<RpcResponse<Object>> response = new CompletableFuture<>();
+        ConcurrencyLimiter limiter = concurrencyLimiterRegistry.get(rpcRequest.getRpcServiceName());
+        if (limiter != null && !limiter.tryAcquire()) {
+            concurrencyLimiterRegistry.rejected(rpcRequest.getRpcServiceName());
+            response.complete(RpcResponse.fail(RpcResponseCodeEnum.OVERLOADED, rpcRequest.getRequestId()));
+            return response;
+        }
+        long start = System.nanoTime();
+        try {
+            bulkheadRegistry.select(rpcRequest, defaultExecutor).execute(() -> {
+                try {
+                    MethodInvoker invoker = rpcRequestHandler.findMethodInvoker(rpcRequest);
+                    CompletionStage<?> result = invoker != null && invoker.completesAsync()
+                            ? rpcRequestHandler.handleAsync(rpcRequest, invoker)
+                            : CompletableFuture.completedFuture(rpcRequestHandler.handle(rpcRequest, invoker));
+                    result.whenComplete((value, e) -> response.complete(e == null
+                            ? RpcResponse.success(value, rpcRequest.getRequestId()) : failed(rpcRequest, e)));
+                } catch (Throwable e) {
+                    response.complete(failed(rpcRequest, e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (limiter != null) {
+                limiter.cancel();
+            }
+            log.warn("bulkhead is full, reject request [{}] of [{}]", rpcRequest.getRequestId(), rpcRequest.getRpcServiceName());
+            response.complete(RpcResponse.fail(RpcResponseCodeEnum.OVERLOADED, rpcRequest.getRequestId()));
+            return response;
+        }
+        if (limiter != null) {
+            response.whenComplete((rpcResponse, e) -> limiter.release(System.nanoTime() - start));
+        }
+        return response;
+    }
+
+    private static RpcResponse<Object> failed(RpcRequest rpcRequest, Throwable e) {
+        log.warn("invocation of [{}#{}] failed", rpcRequest.getInterfaceName(), rpcRequest.getMethodName(), e);
+        return RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId());
+    }
+
+    private void rejectOverloaded(ChannelHandlerContext ctx, RpcRequest rpcRequest) {
+        RpcMessage rpcMessage = RpcMessage.builder()
+                .messageType(RpcConstants.RESPONSE_TYPE)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .data(RpcResponse.fail(RpcResponseCodeEnum.OVERLOADED, rpcRequest.getRequestId())).build();
+        returnCredit(ctx);
+        WriteQueue.of(ctx.channel()).enqueue(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    /**
+     * 执行请求并把响应放入写队列。异步方法（返回 CompletionStage）只在当前线程上发起调用，
+     * 响应由完成 future 的线程写出，等待下游期间不占用舱壁线程；等待相同调用（@RpcSingleFlight）的请求也一样。
+     * 执行失败时响应 FAIL，不关闭连接
+     *
+     * @param completion 响应放入写队列（或执行失败）后执行一次，归还请求占用的资源
+     */
+    private void handleRequest(ChannelHandlerContext ctx, RpcRequest rpcRequest, MethodInvoker invoker, Runnable completion) {
+        handleRequest(ctx, rpcRequest, invoker, null, completion);
+    }
+
+    /**
+     * @param outstanding 正在执行的相同调用的结果，不为 null 时不再执行方法，响应这个结果
+     */
+    private void handleRequest(ChannelHandlerContext ctx, RpcRequest rpcRequest, MethodInvoker invoker,
+                               CompletionStage<?> outstanding, Runnable completion) {
+        boolean async = false;
+        try {
+            if (inFlight.incrementAndGet() > WINDOW) {
+                // the client ignored the credits it was granted
+                log.warn("client [{}] exceeds the request window [{}]", ctx.channel().remoteAddress(), WINDOW);
+                writeResponse(ctx, RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId()));
+            } else if (outstanding != null || (invoker != null && invoker.completesAsync())) {
+                CompletionStage<?> future;
+                try {
+                    future = outstanding != null ? outstanding : rpcRequestHandler.handleAsync(rpcRequest, invoker);
+                } catch (Throwable e) {
+                    writeResponse(ctx, failed(rpcRequest, e));
+                    return;
+                }
+                async = true;
+                future.whenComplete((result, e) -> {
+                    try {
+                        if (e == null) {
+                            log.debug("server get result: [{}]", result);
+                            writeResponse(ctx, RpcResponse.success(result, rpcRequest.getRequestId()));
+                        } else {
+                            // no pipeline to propagate to any more, answer the request with a failure
+                            log.warn("async invocation of [{}#{}] failed", rpcRequest.getInterfaceName(), rpcRequest.getMethodName(), e);
+                            writeResponse(ctx, RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId()));
+                        }
+                    } finally {
+                        completion.run();
+                    }
+                });
+            } else {
+                // Execute the target method (the method the client needs to execute) and return the method result
+                Object result;
+                try {
+                    result = rpcRequestHandler.handle(rpcRequest, invoker);
+                } catch (Throwable e) {
+                    // answer only this request, the other requests on the connection go on
+                    writeResponse(ctx, failed(rpcRequest, e));
+                    return;
+                }
+                log.debug("server get result: [{}]", result);
+                writeResponse(ctx, RpcResponse.success(result, rpcRequest.getRequestId()));
+            }
+        } finally {
+            if (!async) {
+                completion.run();
+            }
+        }
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, RpcResponse<?> rpcResponse) {
+        write(ctx, RpcConstants.RESPONSE_TYPE, rpcResponse);
+    }
+
+    /**
+     * 写出一个请求（或批量请求）的响应并归还它占用的额度
+     */
+    private void write(ChannelHandlerContext ctx, byte messageType, Object data) {
+        RpcMessage rpcMessage = new RpcMessage();
+        rpcMessage.setCodec(SerializationTypeEnum.HESSIAN.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+        rpcMessage.setMessageType(messageType);
+        // an unwritable channel keeps the response in the write queue, see channelWritabilityChanged
+        rpcMessage.setData(data);
+        inFlight.decrementAndGet();
+        returnCredit(ctx);
+        // 由 EventLoop 批量写出并 flush，避免每个响应各自提交一次任务和系统调用
+        WriteQueue.of(ctx.channel()).enqueue(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    /**
+     * 请求处理完成后归还额度，攒够 GRANT_THRESHOLD 个再一起发给客户端
+     */
+    private void returnCredit(ChannelHandlerContext ctx) {
+        int pending = ungranted.incrementAndGet();
+        if (pending >= GRANT_THRESHOLD && ungranted.compareAndSet(pending, 0)) {
+            sendCredit(ctx, pending);
+        }
+    }
+
+    private void sendCredit(ChannelHandlerContext ctx, int increment) {
+        RpcMessage creditMessage = RpcMessage.builder()
+                .messageType(RpcConstants.CREDIT_TYPE)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .data(increment).build();
+        WriteQueue.of(ctx.channel()).enqueue(creditMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof IdleStateEvent) {
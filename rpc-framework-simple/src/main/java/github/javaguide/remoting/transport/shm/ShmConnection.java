@@ -0,0 +1,203 @@
+package github.javaguide.remoting.transport.shm;
+
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.javaguide.utils.RuntimeUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static github.javaguide.remoting.transport.shm.UnsafeAccess.UNSAFE;
+
+/**
+ * 一个共享内存连接：/dev/shm 下的一个文件，包含一对环形缓冲区
+ * <pre>
+ *   0       4          8        12                128
+ *   +-------+----------+--------+-----------------+---------------------+----------------------+
+ *   | magic | capacity | closed |     padding     |  request ring       |  response ring       |
+ *   +-------+----------+--------+-----------------+---------------------+----------------------+
+ * </pre>
+ * request ring 由客户端写、服务端读，response ring 由服务端写、客户端读。环形缓冲区中的每条记录是一个完整的
+ * rpc 帧（和 netty 传输相同的帧格式），由 {@link RpcMessageEncoder#encode(RpcMessage, ByteBuf)} 和
+ * {@link RpcMessageDecoder#decodeFrame(ByteBuf)} 编解码。
+ * 多个线程写同一个缓冲区时由连接内的锁串行化，保证每个缓冲区只有一个生产者。
+ * 解除映射后再访问这块内存会导致 JVM 崩溃，所以 {@link #close()} 只能由读取这个连接的线程调用，写线程在锁内检查是否已解除映射
+ *
+ * @createTime 2026年10月19日 18:20:00
+ */
+public final class ShmConnection implements AutoCloseable {
+
+    private static final int MAGIC = 0x53484d31;
+    private static final int HEADER_LENGTH = 128;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int CLOSED_OFFSET = 8;
+    /**
+     * 单核机器上自旋只会抢占对方进程的 CPU，直接 park
+     */
+    private static final int SPINS = RuntimeUtil.cpus() > 1 ? 100 : 0;
+    private static final int YIELDS = RuntimeUtil.cpus() > 1 ? 200 : 0;
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final long address;
+    private final ShmRingBuffer requestRing;
+    private final ShmRingBuffer responseRing;
+    private final Object requestLock = new Object();
+    private final Object responseLock = new Object();
+    private volatile boolean released;
+
+    private ShmConnection(Path file, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.buffer = buffer;
+        this.address = PlatformDependent.directBufferAddress(buffer);
+        this.requestRing = new ShmRingBuffer(address + HEADER_LENGTH, capacity);
+        this.responseRing = new ShmRingBuffer(address + HEADER_LENGTH + ShmRingBuffer.HEADER_LENGTH + capacity, capacity);
+    }
+
+    /**
+     * 客户端创建连接文件：先在临时文件中初始化，再原子地重命名，服务端不会看到初始化到一半的文件
+     */
+    static ShmConnection create(Path file, int capacity) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        MappedByteBuffer buffer = map(tmp, HEADER_LENGTH + 2L * (ShmRingBuffer.HEADER_LENGTH + capacity));
+        long address = PlatformDependent.directBufferAddress(buffer);
+        UNSAFE.putInt(address + CAPACITY_OFFSET, capacity);
+        UNSAFE.putIntVolatile(null, address, MAGIC);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        return new ShmConnection(file, buffer, capacity);
+    }
+
+    /**
+     * 服务端打开客户端创建的连接文件
+     */
+    static ShmConnection open(Path file) throws IOException {
+        MappedByteBuffer buffer = map(file, Files.size(file));
+        long address = PlatformDependent.directBufferAddress(buffer);
+        if (UNSAFE.getIntVolatile(null, address) != MAGIC) {
+            PlatformDependent.freeDirectBuffer(buffer);
+            throw new IOException("not a shm connection file: " + file);
+        }
+        return new ShmConnection(file, buffer, UNSAFE.getInt(address + CAPACITY_OFFSET));
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size);
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * 客户端写请求帧，缓冲区满时自旋等待消费者，超时抛出 RpcException
+     */
+    void writeRequest(RpcMessage rpcMessage, long timeoutMillis) {
+        write(requestRing, requestLock, rpcMessage, timeoutMillis);
+    }
+
+    /**
+     * 服务端写响应帧，可以在多个业务线程中调用
+     */
+    void writeResponse(RpcMessage rpcMessage, long timeoutMillis) {
+        write(responseRing, responseLock, rpcMessage, timeoutMillis);
+    }
+
+    RpcMessage pollRequest() {
+        byte[] frame = requestRing.poll();
+        return frame == null ? null : RpcMessageDecoder.decodeFrame(Unpooled.wrappedBuffer(frame));
+    }
+
+    RpcMessage pollResponse() {
+        byte[] frame = responseRing.poll();
+        return frame == null ? null : RpcMessageDecoder.decodeFrame(Unpooled.wrappedBuffer(frame));
+    }
+
+    private void write(ShmRingBuffer ring, Object lock, RpcMessage rpcMessage, long timeoutMillis) {
+        ByteBuf out = Unpooled.buffer();
+        RpcMessageEncoder.encode(rpcMessage, out);
+        byte[] frame = new byte[out.readableBytes()];
+        out.readBytes(frame);
+        if (frame.length > ring.maxLength()) {
+            throw new RpcException(RpcErrorMessageEnum.SHARED_MEMORY_FAILURE, "frame of " + frame.length + " bytes exceeds the ring buffer");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (lock) {
+            for (int idleCount = 0; ; idleCount++) {
+                if (released) {
+                    throw new RpcException(RpcErrorMessageEnum.SHARED_MEMORY_FAILURE, file + " is closed");
+                }
+                if (ring.offer(frame)) {
+                    return;
+                }
+                if (isClosed() || System.nanoTime() - deadline > 0) {
+                    throw new RpcException(RpcErrorMessageEnum.SHARED_MEMORY_FAILURE, "ring buffer of " + file + " is full or closed");
+                }
+                idle(idleCount);
+            }
+        }
+    }
+
+    boolean isClosed() {
+        return UNSAFE.getIntVolatile(null, address + CLOSED_OFFSET) != 0;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * 标记连接关闭，对方读取时会看到；可以在任意线程调用
+     */
+    void markClosed() {
+        synchronized (requestLock) {
+            if (!released) {
+                UNSAFE.putIntVolatile(null, address + CLOSED_OFFSET, 1);
+            }
+        }
+    }
+
+    /**
+     * 标记连接关闭并解除映射，只能由读取这个连接的线程调用
+     */
+    @Override
+    public void close() {
+        synchronized (requestLock) {
+            synchronized (responseLock) {
+                if (!released) {
+                    markClosed();
+                    released = true;
+                    PlatformDependent.freeDirectBuffer(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * 先自旋，再让出 CPU，最后逐步延长 park 的时间：有消息时延迟只有几百纳秒，空闲时不会占满一个核
+     *
+     * @param idleCount 连续没有拿到消息的次数
+     */
+    static void idle(int idleCount) {
+        if (idleCount < SPINS) {
+            return;
+        }
+        if (idleCount < YIELDS) {
+            Thread.yield();
+            return;
+        }
+        LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(idleCount - YIELDS, 9)));
+    }
+}
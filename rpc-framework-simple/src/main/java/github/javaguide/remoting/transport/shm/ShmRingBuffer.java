@@ -0,0 +1,116 @@
+package github.javaguide.remoting.transport.shm;
+
+import static github.javaguide.remoting.transport.shm.UnsafeAccess.BYTE_ARRAY_BASE_OFFSET;
+import static github.javaguide.remoting.transport.shm.UnsafeAccess.UNSAFE;
+
+/**
+ * 一段共享内存上的单生产者/单消费者环形缓冲区
+ * <pre>
+ *   0          8                64         72               128
+ *   +----------+----------------+----------+----------------+------------------------------+
+ *   |   head   |    padding     |   tail   |    padding     |       data (capacity)        |
+ *   +----------+----------------+----------+----------------+------------------------------+
+ * </pre>
+ * head 只由消费者写、tail 只由生产者写，分别放在不同的缓存行上。每条记录是 4B 长度 + 数据，按 8 字节对齐，
+ * 长度字段不会跨越缓冲区末尾，数据部分跨越末尾时分两段拷贝。
+ * 生产者先写数据再用 ordered store 发布 tail，消费者用 volatile load 读 tail，保证看到完整的记录
+ *
+ * @createTime 2026年10月19日 18:10:00
+ */
+final class ShmRingBuffer {
+
+    static final int HEADER_LENGTH = 128;
+    private static final int HEAD_OFFSET = 0;
+    private static final int TAIL_OFFSET = 64;
+    private static final int LENGTH_FIELD = 4;
+    private static final int ALIGNMENT = 8;
+
+    private final long headAddress;
+    private final long tailAddress;
+    private final long dataAddress;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * @param address  共享内存中缓冲区的起始地址
+     * @param capacity 数据区大小，必须是 2 的幂且不小于 8
+     */
+    ShmRingBuffer(long address, int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < ALIGNMENT) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.headAddress = address + HEAD_OFFSET;
+        this.tailAddress = address + TAIL_OFFSET;
+        this.dataAddress = address + HEADER_LENGTH;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return 一条记录最多能放的数据长度
+     */
+    int maxLength() {
+        return capacity - LENGTH_FIELD;
+    }
+
+    /**
+     * 生产者写入一条记录
+     *
+     * @return 空间不足时返回 false
+     */
+    boolean offer(byte[] bytes) {
+        int recordLength = align(LENGTH_FIELD + bytes.length);
+        long tail = UNSAFE.getLong(tailAddress);
+        long head = UNSAFE.getLongVolatile(null, headAddress);
+        if (recordLength > capacity - (tail - head)) {
+            return false;
+        }
+        int index = (int) (tail & mask);
+        UNSAFE.putInt(dataAddress + index, bytes.length);
+        copyIn(bytes, (index + LENGTH_FIELD) & mask);
+        UNSAFE.putOrderedLong(null, tailAddress, tail + recordLength);
+        return true;
+    }
+
+    /**
+     * 消费者读出一条记录
+     *
+     * @return 没有记录时返回 null
+     */
+    byte[] poll() {
+        long head = UNSAFE.getLong(headAddress);
+        long tail = UNSAFE.getLongVolatile(null, tailAddress);
+        if (head == tail) {
+            return null;
+        }
+        int index = (int) (head & mask);
+        byte[] bytes = new byte[UNSAFE.getInt(dataAddress + index)];
+        copyOut(bytes, (index + LENGTH_FIELD) & mask);
+        UNSAFE.putOrderedLong(null, headAddress, head + align(LENGTH_FIELD + bytes.length));
+        return bytes;
+    }
+
+    boolean isEmpty() {
+        return UNSAFE.getLongVolatile(null, headAddress) == UNSAFE.getLongVolatile(null, tailAddress);
+    }
+
+    private void copyIn(byte[] bytes, int index) {
+        int first = Math.min(bytes.length, capacity - index);
+        UNSAFE.copyMemory(bytes, BYTE_ARRAY_BASE_OFFSET, null, dataAddress + index, first);
+        if (first < bytes.length) {
+            UNSAFE.copyMemory(bytes, BYTE_ARRAY_BASE_OFFSET + first, null, dataAddress, bytes.length - first);
+        }
+    }
+
+    private void copyOut(byte[] bytes, int index) {
+        int first = Math.min(bytes.length, capacity - index);
+        UNSAFE.copyMemory(null, dataAddress + index, bytes, BYTE_ARRAY_BASE_OFFSET, first);
+        if (first < bytes.length) {
+            UNSAFE.copyMemory(null, dataAddress, bytes, BYTE_ARRAY_BASE_OFFSET + first, bytes.length - first);
+        }
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
@@ -0,0 +1,276 @@
+package github.javaguide.remoting.transport.shm;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享内存客户端：同一台机器上的服务端开启了 rpc.shm.enabled 时，请求和响应通过 /dev/shm 中的环形缓冲区传递，
+ * 不经过 socket 和内核协议栈
+ * <p>
+ * 第一次调用时创建连接文件并启动一个读线程轮询响应缓冲区。服务端没有启动（server.pid 不存在或进程已退出），
+ * 或者请求的服务不在服务端的 services 文件中（由其他机器或本机的其他进程提供）时，交给 rpc.shm.delegate 指定的传输（默认 netty）。
+ * rpc.shm.ring-size 是每个方向的缓冲区大小（默认 1MB，向上取 2 的幂），单个请求或响应帧不能超过它
+ *
+ * @createTime 2026年10月19日 18:50:00
+ */
+@Slf4j
+public class ShmRpcClient implements RpcRequestTransport {
+
+    private static final String SHM = "shm";
+    private static final long WRITE_TIMEOUT_MILLIS = 3000;
+    private static final long SERVER_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SERVICES_CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    /**
+     * 有连接的客户端，进程退出时由同一个钩子标记它们的连接已关闭，服务端随即清理连接文件
+     */
+    private static final Set<ShmRpcClient> CONNECTED_CLIENTS = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> CONNECTED_CLIENTS.forEach(client -> {
+            ShmConnection c = client.connection;
+            if (c != null) {
+                c.markClosed();
+            }
+        }), "shm-rpc-client-shutdown"));
+    }
+
+    private final Path directory;
+    private final int ringSize;
+    private final Map<String, CompletableFuture<RpcResponse<Object>>> inFlight = new ConcurrentHashMap<>();
+    private volatile ShmConnection connection;
+    private volatile Thread reader;
+    private volatile boolean closed;
+    private volatile RpcRequestTransport delegate;
+    /**
+     * 本机共享内存服务端发布的服务，services 文件修改后重新读取
+     */
+    private volatile Set<String> publishedServices = Collections.emptySet();
+    private volatile FileTime servicesModified;
+    private volatile long servicesCheckedAt = System.nanoTime() - SERVICES_CHECK_INTERVAL_NANOS;
+
+    public ShmRpcClient() {
+        this(ShmRpcServer.directory(), null);
+    }
+
+    ShmRpcClient(Path directory, RpcRequestTransport delegate) {
+        this.directory = directory;
+        this.delegate = delegate;
+        int size = Math.max(RpcConfigUtil.getInt(RpcConfigEnum.SHM_RING_SIZE, 1 << 20), 1024);
+        this.ringSize = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        RpcMetrics.gauge("rpc.client.shm.pending-requests", inFlight::size);
+    }
+
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest) {
+        ShmConnection c = isPublished(rpcRequest.getRpcServiceName()) ? connection() : null;
+        if (c == null) {
+            return delegate().sendRpcRequest(rpcRequest);
+        }
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        inFlight.put(rpcRequest.getRequestId(), resultFuture);
+        resultFuture.whenComplete((rpcResponse, e) -> {
+            if (e != null) {
+                inFlight.remove(rpcRequest.getRequestId());
+            }
+        });
+        RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .messageType(RpcConstants.REQUEST_TYPE).build();
+        try {
+            c.writeRequest(rpcMessage, WRITE_TIMEOUT_MILLIS);
+        } catch (RuntimeException e) {
+            inFlight.remove(rpcRequest.getRequestId());
+            throw e;
+        }
+        return resultFuture;
+    }
+
+    /**
+     * @return 当前的连接，服务端不可用时返回 null
+     */
+    private ShmConnection connection() {
+        ShmConnection c = connection;
+        if (c != null) {
+            return c;
+        }
+        synchronized (this) {
+            if (connection == null && !closed && isServerAlive()) {
+                Path file = directory.resolve(ShmRpcServer.pid() + "-" + SEQUENCE.incrementAndGet() + ShmRpcServer.RING_SUFFIX);
+                ShmConnection created;
+                try {
+                    created = ShmConnection.create(file, ringSize);
+                } catch (IOException e) {
+                    log.warn("create shared memory connection [{}] failed", file, e);
+                    return null;
+                }
+                connection = created;
+                CONNECTED_CLIENTS.add(this);
+                reader = new Thread(() -> readLoop(created), "shm-rpc-reader");
+                reader.setDaemon(true);
+                reader.start();
+                log.info("shared memory client connected [{}]", file);
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * @return 本机的共享内存服务端是否发布了这个服务
+     */
+    private boolean isPublished(String rpcServiceName) {
+        long now = System.nanoTime();
+        if (now - servicesCheckedAt > SERVICES_CHECK_INTERVAL_NANOS) {
+            servicesCheckedAt = now;
+            Path servicesFile = directory.resolve(ShmRpcServer.SERVICES_FILE);
+            try {
+                FileTime modified = Files.getLastModifiedTime(servicesFile);
+                if (!modified.equals(servicesModified)) {
+                    publishedServices = new HashSet<>(Files.readAllLines(servicesFile, StandardCharsets.UTF_8));
+                    servicesModified = modified;
+                }
+            } catch (IOException e) {
+                // no shared memory server on this host
+                publishedServices = Collections.emptySet();
+                servicesModified = null;
+            }
+        }
+        return publishedServices.contains(rpcServiceName);
+    }
+
+    private boolean isServerAlive() {
+        Path serverFile = directory.resolve(ShmRpcServer.SERVER_FILE);
+        try {
+            return Files.exists(serverFile)
+                    && ShmRpcServer.isProcessAlive(new String(Files.readAllBytes(serverFile), StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 读线程：轮询响应直到连接被任意一方关闭，然后解除映射并让还在等待的请求失败
+     */
+    private void readLoop(ShmConnection c) {
+        int idleCount = 0;
+        long lastCheck = System.nanoTime();
+        try {
+            while (!c.isClosed()) {
+                RpcMessage rpcMessage = c.pollResponse();
+                if (rpcMessage == null) {
+                    // a killed server never sets the closed flag
+                    if (System.nanoTime() - lastCheck > SERVER_CHECK_INTERVAL_NANOS) {
+                        lastCheck = System.nanoTime();
+                        if (!isServerAlive()) {
+                            log.warn("shared memory server of [{}] is gone", c.getFile());
+                            break;
+                        }
+                    }
+                    ShmConnection.idle(idleCount++);
+                    continue;
+                }
+                idleCount = 0;
+                if (rpcMessage.getMessageType() == RpcConstants.RESPONSE_TYPE) {
+                    @SuppressWarnings("unchecked")
+                    RpcResponse<Object> rpcResponse = (RpcResponse<Object>) rpcMessage.getData();
+                    CompletableFuture<RpcResponse<Object>> future = inFlight.remove(rpcResponse.getRequestId());
+                    if (future != null) {
+                        future.complete(rpcResponse);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("shared memory connection [{}] is broken", c.getFile(), e);
+        } finally {
+            c.close();
+            try {
+                Files.deleteIfExists(c.getFile());
+            } catch (IOException ignored) {
+                // the server deletes it as well
+            }
+            // requests written to the closed connection are never answered; new ones wait for the next connection
+            RpcException closed = new RpcException(RpcErrorMessageEnum.SHARED_MEMORY_FAILURE, c.getFile() + " is closed");
+            inFlight.keySet().forEach(requestId -> {
+                CompletableFuture<RpcResponse<Object>> future = inFlight.remove(requestId);
+                if (future != null) {
+                    future.completeExceptionally(closed);
+                }
+            });
+            synchronized (this) {
+                connection = null;
+                CONNECTED_CLIENTS.remove(this);
+            }
+            log.info("shared memory connection closed [{}]", c.getFile());
+        }
+    }
+
+    /**
+     * 关闭共享内存连接并等待读线程退出，之后的请求都交给 rpc.shm.delegate
+     */
+    public void close() {
+        Thread r;
+        synchronized (this) {
+            closed = true;
+            if (connection != null) {
+                connection.markClosed();
+            }
+            r = reader;
+        }
+        if (r != null && r != Thread.currentThread()) {
+            try {
+                r.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public RpcRequestTransport remoteTransport() {
+        return delegate().remoteTransport();
+    }
+
+    private RpcRequestTransport delegate() {
+        // created lazily, so that a jvm talking only to local providers never starts the remote transport
+        if (delegate == null) {
+            synchronized (this) {
+                if (delegate == null) {
+                    String name = RpcConfigUtil.getString(RpcConfigEnum.SHM_DELEGATE, "netty");
+                    if (SHM.equals(name)) {
+                        log.warn("shm transport can not delegate to itself, use netty");
+                        name = "netty";
+                    }
+                    delegate = ExtensionLoader.getExtensionLoader(RpcRequestTransport.class).getExtension(name);
+                }
+            }
+        }
+        return delegate;
+    }
+}
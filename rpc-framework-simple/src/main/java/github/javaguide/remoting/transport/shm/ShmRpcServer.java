@@ -0,0 +1,295 @@
+package github.javaguide.remoting.transport.shm;
+
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.ServiceProvider;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.handler.BulkheadRegistry;
+import github.javaguide.remoting.handler.RpcRequestHandler;
+import github.javaguide.remoting.handler.VirtualThreadExecutor;
+import github.javaguide.remoting.transport.netty.server.NettyRpcServer;
+import github.javaguide.utils.RpcConfigUtil;
+import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享内存服务端（默认关闭，rpc.shm.enabled=true 时随 NettyRpcServer 一起启动）
+ * <p>
+ * rpc.shm.dir（默认 /dev/shm/my-rpc-9998）是客户端和服务端约定的目录：服务端启动时写入 server.pid，
+ * 并在 services 文件中每行写一个本进程发布的RPC服务名（发布新服务后更新），客户端只把这些服务的请求发到共享内存；
+ * 客户端在目录下创建 "客户端pid-序号.ring" 连接文件。
+ * 一个 poller 线程定期扫描目录打开新的连接，轮询所有连接的请求缓冲区，请求交给业务线程池执行，
+ * 响应由业务线程直接写回响应缓冲区。客户端关闭连接或进程退出后，poller 关闭并删除连接文件
+ *
+ * @createTime 2026年10月19日 18:40:00
+ */
+@Slf4j
+public final class ShmRpcServer {
+
+    static final String SERVER_FILE = "server.pid";
+    static final String SERVICES_FILE = "services";
+    static final String RING_SUFFIX = ".ring";
+    private static final long SCAN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long WRITE_TIMEOUT_MILLIS = 3000;
+    /**
+     * 每个连接每轮最多取出的请求数，避免一个繁忙的客户端饿死其他连接
+     */
+    private static final int MAX_POLLS_PER_CONNECTION = 64;
+
+    private final Path directory;
+    private final RpcRequestHandler rpcRequestHandler;
+    private final ServiceProvider serviceProvider;
+    /**
+     * 上次写入 services 文件的服务数，服务只会增加不会删除
+     */
+    private int writtenServices = -1;
+    private final Map<Path, ShmConnection> connections = new ConcurrentHashMap<>();
+    private final BulkheadRegistry bulkheadRegistry = SingletonFactory.getInstance(BulkheadRegistry.class);
+    private Executor handlerPool;
+    private volatile boolean started;
+
+    public ShmRpcServer() {
+        this.directory = directory();
+        this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+        this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+    }
+
+    public static boolean isEnabled() {
+        return RpcConfigUtil.getBoolean(RpcConfigEnum.SHM_ENABLED, false);
+    }
+
+    /**
+     * 客户端和服务端约定的目录，优先使用内存文件系统 /dev/shm
+     */
+    static Path directory() {
+        String defaultRoot = Files.isDirectory(Paths.get("/dev/shm")) ? "/dev/shm" : System.getProperty("java.io.tmpdir");
+        return Paths.get(RpcConfigUtil.getString(RpcConfigEnum.SHM_DIR, defaultRoot + "/my-rpc-" + NettyRpcServer.PORT));
+    }
+
+    static String pid() {
+        // "pid@hostname"
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        return name.substring(0, name.indexOf('@'));
+    }
+
+    /**
+     * /proc 不存在时（非 linux）认为进程存活，只依赖关闭标记清理连接
+     */
+    static boolean isProcessAlive(String pid) {
+        Path proc = Paths.get("/proc");
+        return !Files.isDirectory(proc) || Files.exists(proc.resolve(pid));
+    }
+
+    public synchronized void start() throws IOException {
+        if (started) {
+            return;
+        }
+        Files.createDirectories(directory);
+        // connection files left by a previous server process are never answered
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        VirtualThreadExecutor virtualThreadExecutor = VirtualThreadExecutor.getIfEnabled();
+        handlerPool = virtualThreadExecutor != null ? virtualThreadExecutor
+                : ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("shm-rpc-handler");
+        writeServices();
+        Path serverFile = directory.resolve(SERVER_FILE);
+        Files.write(serverFile, pid().getBytes(StandardCharsets.UTF_8));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(serverFile);
+                Files.deleteIfExists(directory.resolve(SERVICES_FILE));
+            } catch (IOException ignored) {
+                // the client also checks whether the process is alive
+            }
+            connections.values().forEach(ShmConnection::markClosed);
+        }));
+        Thread poller = new Thread(this::pollLoop, "shm-rpc-poller");
+        poller.setDaemon(true);
+        poller.start();
+        started = true;
+        log.info("shared memory server started on [{}]", directory);
+    }
+
+    private void pollLoop() {
+        long lastScan = 0;
+        int idleCount = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            if (now - lastScan > SCAN_INTERVAL_NANOS) {
+                scan();
+                try {
+                    writeServices();
+                } catch (IOException e) {
+                    log.error("write shared memory services of [{}] failed", directory, e);
+                }
+                lastScan = now;
+            }
+            boolean busy = false;
+            Iterator<ShmConnection> it = connections.values().iterator();
+            while (it.hasNext()) {
+                ShmConnection connection = it.next();
+                try {
+                    if (connection.isClosed()) {
+                        it.remove();
+                        release(connection);
+                        continue;
+                    }
+                    for (int i = 0; i < MAX_POLLS_PER_CONNECTION; i++) {
+                        RpcMessage rpcMessage = connection.pollRequest();
+                        if (rpcMessage == null) {
+                            break;
+                        }
+                        dispatch(connection, rpcMessage);
+                        busy = true;
+                    }
+                } catch (Exception e) {
+                    log.error("shared memory connection [{}] is broken", connection.getFile(), e);
+                    it.remove();
+                    release(connection);
+                }
+            }
+            if (busy) {
+                idleCount = 0;
+            } else {
+                ShmConnection.idle(idleCount++);
+            }
+        }
+    }
+
+    /**
+     * 发布的服务有变化时重写 services 文件，先写临时文件再替换，客户端不会读到写了一半的文件
+     */
+    private void writeServices() throws IOException {
+        Set<String> rpcServiceNames = serviceProvider.getRpcServiceNames();
+        if (rpcServiceNames.size() == writtenServices) {
+            return;
+        }
+        int size = rpcServiceNames.size();
+        Path tmp = directory.resolve(SERVICES_FILE + ".tmp");
+        Files.write(tmp, rpcServiceNames, StandardCharsets.UTF_8);
+        Files.move(tmp, directory.resolve(SERVICES_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writtenServices = size;
+    }
+
+    /**
+     * 打开新的连接文件，清理进程已经退出的客户端留下的连接
+     */
+    private void scan() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + RING_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.indexOf('-') <= 0) {
+                    continue;
+                }
+                String clientPid = fileName.substring(0, fileName.indexOf('-'));
+                ShmConnection connection = connections.get(file);
+                if (!isProcessAlive(clientPid)) {
+                    if (connection != null) {
+                        connections.remove(file);
+                        release(connection);
+                    } else {
+                        Files.deleteIfExists(file);
+                    }
+                } else if (connection == null) {
+                    connections.put(file, ShmConnection.open(file));
+                    log.info("shared memory client connected [{}]", file);
+                }
+            }
+        } catch (Exception e) {
+            log.error("scan shared memory directory [{}] failed", directory, e);
+        }
+    }
+
+    private void release(ShmConnection connection) {
+        log.info("shared memory connection closed [{}]", connection.getFile());
+        connection.close();
+        try {
+            Files.deleteIfExists(connection.getFile());
+        } catch (IOException e) {
+            log.warn("delete [{}] failed", connection.getFile(), e);
+        }
+    }
+
+    private void dispatch(ShmConnection connection, RpcMessage rpcMessage) {
+        Executor executor = rpcMessage.getMessageType() == RpcConstants.REQUEST_TYPE
+                ? bulkheadRegistry.select((RpcRequest) rpcMessage.getData(), handlerPool) : handlerPool;
+        try {
+            executor.execute(() -> handle(connection, rpcMessage));
+        } catch (RejectedExecutionException e) {
+            if (executor == handlerPool) {
+                // the pool is saturated: run on the poller, which also stops reading new requests
+                handle(connection, rpcMessage);
+            } else {
+                // a full bulkhead must not slow down the other services
+                reject(connection, rpcMessage);
+            }
+        }
+    }
+
+    private void reject(ShmConnection connection, RpcMessage rpcMessage) {
+        RpcMessage response = new RpcMessage();
+        response.setCodec(rpcMessage.getCodec());
+        response.setCompress(rpcMessage.getCompress());
+        response.setRequestId(rpcMessage.getRequestId());
+        response.setMessageType(RpcConstants.RESPONSE_TYPE);
+        response.setData(RpcResponse.fail(RpcResponseCodeEnum.OVERLOADED, ((RpcRequest) rpcMessage.getData()).getRequestId()));
+        try {
+            connection.writeResponse(response, WRITE_TIMEOUT_MILLIS);
+        } catch (RpcException e) {
+            log.error("write shared memory response failed", e);
+        }
+    }
+
+    private void handle(ShmConnection connection, RpcMessage rpcMessage) {
+        RpcMessage response = new RpcMessage();
+        response.setCodec(rpcMessage.getCodec());
+        response.setCompress(rpcMessage.getCompress());
+        response.setRequestId(rpcMessage.getRequestId());
+        byte messageType = rpcMessage.getMessageType();
+        if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
+            response.setMessageType(RpcConstants.HEARTBEAT_RESPONSE_TYPE);
+            response.setData(rpcMessage.getData() instanceof Long ? rpcMessage.getData() : RpcConstants.PONG);
+        } else if (messageType == RpcConstants.REQUEST_TYPE) {
+            RpcRequest rpcRequest = (RpcRequest) rpcMessage.getData();
+            response.setMessageType(RpcConstants.RESPONSE_TYPE);
+            try {
+                response.setData(RpcResponse.success(rpcRequestHandler.handle(rpcRequest), rpcRequest.getRequestId()));
+            } catch (Exception e) {
+                log.error("handle shared memory request [{}] failed", rpcRequest.getRequestId(), e);
+                response.setData(RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId()));
+            }
+        } else {
+            return;
+        }
+        try {
+            connection.writeResponse(response, WRITE_TIMEOUT_MILLIS);
+        } catch (RpcException e) {
+            log.error("write shared memory response failed", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package github.javaguide.remoting.transport.shm;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+
+/**
+ * 共享内存的读写需要 volatile / ordered 语义（另一个进程也在读写同一块内存），JDK 8 只能通过 Unsafe 实现
+ *
+ * @createTime 2026年10月19日 18:05:00
+ */
+final class UnsafeAccess {
+
+    static final Unsafe UNSAFE;
+    static final long BYTE_ARRAY_BASE_OFFSET;
+
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+            BYTE_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private UnsafeAccess() {
+    }
+}
@@ -0,0 +1,150 @@
+package github.javaguide.remoting.transport.socket;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcErrorMessageEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 客户端到一个服务端的长连接，可以同时有多个请求在途（pipelining）
+ * <p>
+ * 调用线程在锁内写出请求帧后立即返回 CompletableFuture，一个读线程按 requestId 把响应交给对应的 future，
+ * 响应不要求按请求的顺序返回。连接断开时所有在途请求失败，下一次调用会重新建立连接
+ *
+ * @createTime 2026年10月19日 19:25:00
+ */
+@Slf4j
+final class SocketConnection {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 3000;
+
+    private final InetSocketAddress address;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final Map<String, CompletableFuture<RpcResponse<Object>>> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    private SocketConnection(InetSocketAddress address, Socket socket) throws IOException {
+        this.address = address;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    static SocketConnection connect(InetSocketAddress address) {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            SocketConnection connection = new SocketConnection(address, socket);
+            Thread reader = new Thread(connection::readLoop, "socket-rpc-reader-" + address);
+            reader.setDaemon(true);
+            reader.start();
+            log.info("The client has connected [{}] successful!", address);
+            return connection;
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // nothing more to release
+            }
+            throw new RpcException("调用服务失败:", e);
+        }
+    }
+
+    boolean isActive() {
+        return !closed;
+    }
+
+    int pendingRequests() {
+        return pending.size();
+    }
+
+    CompletableFuture<RpcResponse<Object>> send(RpcRequest rpcRequest) {
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        pending.put(rpcRequest.getRequestId(), resultFuture);
+        resultFuture.whenComplete((rpcResponse, e) -> {
+            if (e != null) {
+                pending.remove(rpcRequest.getRequestId());
+            }
+        });
+        RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .messageType(RpcConstants.REQUEST_TYPE).build();
+        try {
+            synchronized (out) {
+                SocketMessageCodec.write(out, rpcMessage);
+            }
+        } catch (IOException e) {
+            pending.remove(rpcRequest.getRequestId());
+            close(e);
+            throw new RpcException("调用服务失败:", e);
+        }
+        // the reader may have failed all pending requests before this one was registered
+        if (closed && pending.remove(rpcRequest.getRequestId()) != null) {
+            resultFuture.completeExceptionally(new RpcException(RpcErrorMessageEnum.CLIENT_CONNECT_SERVER_FAILURE, address.toString()));
+        }
+        return resultFuture;
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                RpcMessage rpcMessage = SocketMessageCodec.read(in);
+                if (rpcMessage.getMessageType() != RpcConstants.RESPONSE_TYPE) {
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                RpcResponse<Object> rpcResponse = (RpcResponse<Object>) rpcMessage.getData();
+                CompletableFuture<RpcResponse<Object>> future = pending.remove(rpcResponse.getRequestId());
+                if (future != null) {
+                    future.complete(rpcResponse);
+                } else {
+                    // the caller gave up (timeout), the late response is dropped
+                    log.debug("no pending request for response [{}]", rpcResponse.getRequestId());
+                }
+            }
+        } catch (Exception e) {
+            close(e);
+        }
+    }
+
+    synchronized void close(Throwable cause) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        log.info("connection to [{}] closed: {}", address, cause.toString());
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+        RpcException exception = new RpcException("连接已关闭:" + address, cause);
+        pending.keySet().forEach(requestId -> {
+            CompletableFuture<RpcResponse<Object>> future = pending.remove(requestId);
+            if (future != null) {
+                future.completeExceptionally(exception);
+            }
+        });
+    }
+}
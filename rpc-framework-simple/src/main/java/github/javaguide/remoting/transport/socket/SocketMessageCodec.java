@@ -0,0 +1,54 @@
+package github.javaguide.remoting.transport.socket;
+
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageDecoder;
+import github.javaguide.remoting.transport.netty.codec.RpcMessageEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 阻塞 socket 上的帧读写，帧格式和 netty 传输相同（见 {@link RpcMessageDecoder}），序列化和压缩同样走 SPI
+ *
+ * @createTime 2026年10月19日 19:20:00
+ */
+final class SocketMessageCodec {
+
+    /**
+     * magic code 4B + version 1B + full length 4B
+     */
+    private static final int LENGTH_FIELD_END = 9;
+
+    private SocketMessageCodec() {
+    }
+
+    /**
+     * 读取一个完整的帧并解码，对方关闭连接时抛出 EOFException
+     */
+    static RpcMessage read(DataInputStream in) throws IOException {
+        byte[] frame = new byte[LENGTH_FIELD_END];
+        in.readFully(frame);
+        int fullLength = ((frame[5] & 0xff) << 24) | ((frame[6] & 0xff) << 16) | ((frame[7] & 0xff) << 8) | (frame[8] & 0xff);
+        if (fullLength < RpcConstants.HEAD_LENGTH || fullLength > RpcConstants.MAX_FRAME_LENGTH) {
+            throw new IOException("invalid frame length: " + fullLength);
+        }
+        byte[] fullFrame = new byte[fullLength];
+        System.arraycopy(frame, 0, fullFrame, 0, LENGTH_FIELD_END);
+        in.readFully(fullFrame, LENGTH_FIELD_END, fullLength - LENGTH_FIELD_END);
+        return RpcMessageDecoder.decodeFrame(Unpooled.wrappedBuffer(fullFrame));
+    }
+
+    /**
+     * 编码并写出一个帧，调用方负责同一个 socket 上写操作的互斥
+     */
+    static void write(OutputStream out, RpcMessage rpcMessage) throws IOException {
+        ByteBuf buf = Unpooled.buffer();
+        RpcMessageEncoder.encode(rpcMessage, buf);
+        out.write(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+        out.flush();
+    }
+}
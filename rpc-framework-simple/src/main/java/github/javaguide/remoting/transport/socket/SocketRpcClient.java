@@ -1,39 +1,44 @@
 package github.javaguide.remoting.transport.socket;
 
-import github.javaguide.exception.RpcException;
 import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.metrics.RpcMetrics;
 import github.javaguide.registry.ServiceDiscovery;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.transport.RpcRequestTransport;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于 Socket通信传输RpcRequest
+ * <p>
+ * 每个服务端地址复用一条长连接，帧格式、序列化和压缩与 netty 传输相同，服务端可以是 SocketRpcServer 也可以是 NettyRpcServer。
+ * 同一条连接上可以同时发送多个请求，响应由连接的读线程按 requestId 分发
  *
  * @author shuang.kou
  * @createTime 2020年05月10日 18:40:00
  */
-@AllArgsConstructor
 @Slf4j
 public class SocketRpcClient implements RpcRequestTransport {
     private final ServiceDiscovery serviceDiscovery;
+    private final Map<InetSocketAddress, SocketConnection> connections = new ConcurrentHashMap<>();
 
     public SocketRpcClient() {
         //加载实例化ZkServiceDiscoveryImpl类（因为github.javaguide.registry.ServiceDiscovery文件中指定），生成实例
-        this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension("zk");
+        this(ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension("zk"));
+    }
+
+    public SocketRpcClient(ServiceDiscovery serviceDiscovery) {
+        this.serviceDiscovery = serviceDiscovery;
+        RpcMetrics.gauge("rpc.client.socket.pending-requests", this::pendingRequests);
     }
 
     /**
      * 1.从注册中心获取请求调用方法所在服务的地址（负载均衡算法）
-     * 2.创建连接该地址的socket，将RPC请求写入socket
-     * 3.读取socket输入流序列化为Object对象返回
+     * 2.获取（没有时建立）到该地址的长连接，将RPC请求编码成帧写入socket
+     * 3.返回 CompletableFuture，由连接的读线程在收到响应时完成
      * @param rpcRequest 1
      * @return: java.lang.Object
      * @author: gefeng
@@ -42,16 +47,25 @@ public class SocketRpcClient implements RpcRequestTransport {
     @Override
     public Object sendRpcRequest(RpcRequest rpcRequest) {
         InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
-        try (Socket socket = new Socket()) {
-            socket.connect(inetSocketAddress);
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(socket.getOutputStream());
-            // Send data to the server through the output stream
-            objectOutputStream.writeObject(rpcRequest);
-            ObjectInputStream objectInputStream = new ObjectInputStream(socket.getInputStream());
-            // Read RpcResponse from the input stream
-            return objectInputStream.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            throw new RpcException("调用服务失败:", e);
+        return getConnection(inetSocketAddress).send(rpcRequest);
+    }
+
+    private int pendingRequests() {
+        return connections.values().stream().mapToInt(SocketConnection::pendingRequests).sum();
+    }
+
+    private SocketConnection getConnection(InetSocketAddress inetSocketAddress) {
+        SocketConnection connection = connections.get(inetSocketAddress);
+        if (connection != null && connection.isActive()) {
+            return connection;
+        }
+        synchronized (connections) {
+            connection = connections.get(inetSocketAddress);
+            if (connection == null || !connection.isActive()) {
+                connection = SocketConnection.connect(inetSocketAddress);
+                connections.put(inetSocketAddress, connection);
+            }
+            return connection;
         }
     }
 }
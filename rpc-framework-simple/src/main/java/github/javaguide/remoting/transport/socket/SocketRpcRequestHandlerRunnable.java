@@ -1,18 +1,31 @@
 package github.javaguide.remoting.transport.socket;
 
+import github.javaguide.enums.RpcResponseCodeEnum;
 import github.javaguide.factory.SingletonFactory;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
 import github.javaguide.remoting.dto.RpcRequest;
 import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.handler.BulkheadRegistry;
 import github.javaguide.remoting.handler.RpcRequestHandler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.net.Socket;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * Socket封装处理任务类
+ * Socket封装处理任务类：负责一条长连接上的所有请求
+ * <p>
+ * 连接线程循环读取请求帧，交给业务线程池执行，客户端不用等上一个响应就可以发送下一个请求；
+ * 业务线程在连接的写锁内写回响应，响应按完成的顺序返回。线程池满时由连接线程自己执行，同时也停止读取新的请求；
+ * 配置了舱壁的服务在自己的舱壁中执行，舱壁满时直接返回失败响应
  * @author shuang.kou
  * @createTime 2020年05月10日 09:18:00
  */
@@ -20,17 +33,22 @@ import java.net.Socket;
 public class SocketRpcRequestHandlerRunnable implements Runnable {
     private final Socket socket;
     private final RpcRequestHandler rpcRequestHandler;
+    private final Executor handlerPool;
+    private final BulkheadRegistry bulkheadRegistry;
 
 
-    public SocketRpcRequestHandlerRunnable(Socket socket) {
+    public SocketRpcRequestHandlerRunnable(Socket socket, Executor handlerPool) {
         this.socket = socket;//被封装的socket对象
         this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);//RpcRequestHandler类（封装了RPC服务的生产者）的单例
+        this.handlerPool = handlerPool;
+        this.bulkheadRegistry = SingletonFactory.getInstance(BulkheadRegistry.class);
     }
 
     /**
-     * 1.读取socket的输入消息，序列化为RpcRequest对象
-     * 2.交给rpcRequestHandler处理（执行指定接口实现类的指定方法）
+     * 1.循环读取socket的输入帧，解码为RpcMessage对象
+     * 2.心跳直接应答，请求交给业务线程池，由rpcRequestHandler处理（执行指定接口实现类的指定方法）
      * 3.将处理后的结果封装为RpcResponse写入socket的输出流
+     * 4.客户端关闭连接后退出
      * @param
      * @return: void
      * @author: gefeng
@@ -38,16 +56,76 @@ public class SocketRpcRequestHandlerRunnable implements Runnable {
      */
     @Override
     public void run() {
-        log.info("server handle message from client by thread: [{}]", Thread.currentThread().getName());
-        try (ObjectInputStream objectInputStream = new ObjectInputStream(socket.getInputStream());
-             ObjectOutputStream objectOutputStream = new ObjectOutputStream(socket.getOutputStream())) {
-            RpcRequest rpcRequest = (RpcRequest) objectInputStream.readObject();
-            Object result = rpcRequestHandler.handle(rpcRequest);
-            objectOutputStream.writeObject(RpcResponse.success(result, rpcRequest.getRequestId()));
-            objectOutputStream.flush();
-        } catch (IOException | ClassNotFoundException e) {
+        log.info("server handle connection from client by thread: [{}]", Thread.currentThread().getName());
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            OutputStream out = new BufferedOutputStream(s.getOutputStream());
+            while (true) {
+                RpcMessage rpcMessage = SocketMessageCodec.read(in);
+                byte messageType = rpcMessage.getMessageType();
+                if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
+                    RpcMessage pong = response(rpcMessage, RpcConstants.HEARTBEAT_RESPONSE_TYPE);
+                    pong.setData(rpcMessage.getData() instanceof Long ? rpcMessage.getData() : RpcConstants.PONG);
+                    write(out, pong);
+                } else if (messageType == RpcConstants.REQUEST_TYPE) {
+                    dispatch(out, rpcMessage);
+                }
+            }
+        } catch (EOFException e) {
+            log.info("client disconnected [{}]", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
             log.error("occur exception:", e);
         }
     }
 
+    private void dispatch(OutputStream out, RpcMessage rpcMessage) throws IOException {
+        RpcRequest rpcRequest = (RpcRequest) rpcMessage.getData();
+        Executor executor = bulkheadRegistry.select(rpcRequest, handlerPool);
+        try {
+            executor.execute(() -> handle(out, rpcMessage));
+        } catch (RejectedExecutionException e) {
+            if (executor == handlerPool) {
+                handle(out, rpcMessage);
+            } else {
+                // a full bulkhead must not slow down the other services of the connection
+                RpcMessage response = response(rpcMessage, RpcConstants.RESPONSE_TYPE);
+                response.setData(RpcResponse.fail(RpcResponseCodeEnum.OVERLOADED, rpcRequest.getRequestId()));
+                write(out, response);
+            }
+        }
+    }
+
+    private void handle(OutputStream out, RpcMessage rpcMessage) {
+        RpcRequest rpcRequest = (RpcRequest) rpcMessage.getData();
+        RpcMessage response = response(rpcMessage, RpcConstants.RESPONSE_TYPE);
+        try {
+            Object result = rpcRequestHandler.handle(rpcRequest);
+            response.setData(RpcResponse.success(result, rpcRequest.getRequestId()));
+        } catch (Exception e) {
+            log.error("handle request [{}] failed", rpcRequest.getRequestId(), e);
+            response.setData(RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId()));
+        }
+        try {
+            write(out, response);
+        } catch (IOException e) {
+            // the connection thread sees the broken socket as well and closes it
+            log.error("write response [{}] failed", rpcRequest.getRequestId(), e);
+        }
+    }
+
+    private static RpcMessage response(RpcMessage request, byte messageType) {
+        RpcMessage response = new RpcMessage();
+        response.setMessageType(messageType);
+        response.setCodec(request.getCodec());
+        response.setCompress(request.getCompress());
+        return response;
+    }
+
+    private static void write(OutputStream out, RpcMessage rpcMessage) throws IOException {
+        synchronized (out) {
+            SocketMessageCodec.write(out, rpcMessage);
+        }
+    }
+
 }
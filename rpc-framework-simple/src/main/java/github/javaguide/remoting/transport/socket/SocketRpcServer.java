@@ -5,6 +5,7 @@ import github.javaguide.config.RpcServiceConfig;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.handler.VirtualThreadExecutor;
 import github.javaguide.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -13,7 +14,9 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static github.javaguide.remoting.transport.netty.server.NettyRpcServer.PORT;
 
@@ -25,12 +28,24 @@ import static github.javaguide.remoting.transport.netty.server.NettyRpcServer.PO
 @Slf4j
 public class SocketRpcServer {
 
-    private final ExecutorService threadPool;//线程池
+    private final Executor threadPool;//线程池
+    /**
+     * 每条长连接占用一个线程读取请求，和执行请求的线程池分开，连接数不受线程池大小的限制
+     */
+    private final Executor connectionThreads;
     private final ServiceProvider serviceProvider;
 
 
     public SocketRpcServer() {
-        threadPool = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("socket-server-rpc-pool");//线程池名字以socket-server-rpc-pool为前缀
+        VirtualThreadExecutor virtualThreadExecutor = VirtualThreadExecutor.getIfEnabled();
+        if (virtualThreadExecutor != null) {
+            // 连接线程和服务调用都使用虚拟线程，阻塞读和阻塞的服务实现都不占用平台线程
+            threadPool = virtualThreadExecutor;
+            connectionThreads = virtualThreadExecutor.unbounded();
+        } else {
+            threadPool = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("socket-server-rpc-pool");//线程池名字以socket-server-rpc-pool为前缀
+            connectionThreads = Executors.newCachedThreadPool(ThreadPoolFactoryUtil.createThreadFactory("socket-server-connection", false));
+        }
         serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);//ZkServiceProviderImpl类的单例对象（RPC服务的生产者实例）
     }
 
@@ -48,8 +63,7 @@ public class SocketRpcServer {
     /**
      * 1.创建服务端Socket实例，绑定本机ip和NettyRpcServer指定端口（9998）
      * 2.创建java的钩子方法在JVM销毁前释放资源（zookeeper节点和线程池）
-     * 3.将接收到的socket请求消息封装成任务放入线程池处理
-     * 4.
+     * 3.每个接收到的socket连接由一个连接线程循环读取请求，请求放入线程池处理
      * @param
      * @return: void
      * @author: gefeng
@@ -63,9 +77,13 @@ public class SocketRpcServer {
             Socket socket;
             while ((socket = server.accept()) != null) {
                 log.info("client connected [{}]", socket.getInetAddress());
-                threadPool.execute(new SocketRpcRequestHandlerRunnable(socket));
+                connectionThreads.execute(new SocketRpcRequestHandlerRunnable(socket, threadPool));
+            }
+            // 虚拟线程池由 ThreadPoolFactoryUtil 统一关闭
+            if (!(threadPool instanceof VirtualThreadExecutor)) {
+                ((ExecutorService) connectionThreads).shutdown();
+                ((ExecutorService) threadPool).shutdown();
             }
-            threadPool.shutdown();
         } catch (IOException e) {
             log.error("occur IOException:", e);
         }
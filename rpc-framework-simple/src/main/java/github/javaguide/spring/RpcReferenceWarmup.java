@@ -0,0 +1,235 @@
+package github.javaguide.spring;
+
+import github.javaguide.compress.Compress;
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.RpcConfigEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.registry.ServiceDiscovery;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.remoting.transport.netty.client.NettyRpcClient;
+import github.javaguide.remoting.transport.netty.client.NettyRpcClientHandler;
+import github.javaguide.serialize.Serializer;
+import github.javaguide.utils.RpcConfigUtil;
+import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端启动预热（默认关闭，rpc.client.warmup.enabled=true 开启）
+ * <p>
+ * Spring 容器刷新完成时（应用对外提供服务之前）：
+ * 1.对所有 @RpcReference 引用的服务做一次服务发现（同时建立 zookeeper 缓存和监听）
+ * 2.并行连接所有服务提供者，最多等待 rpc.client.warmup.timeout-ms
+ * 3.rpc.client.warmup.calls 大于 0 时，在每个连接上依次发送心跳，收到 pong 后再发下一个（同样最多等待 rpc.client.warmup.timeout-ms），
+ * 并在本地对请求/响应做序列化和压缩，
+ * 提前完成类加载、Hessian 类型解析和 JIT。这里不调用真实的业务方法，避免预热请求产生副作用
+ * 预热失败只打印日志，不影响应用启动，第一次调用时仍会按原来的方式连接
+ *
+ * @createTime 2026年10月19日 15:10:00
+ */
+@Slf4j
+@Component
+public class RpcReferenceWarmup implements ApplicationListener<ContextRefreshedEvent> {
+
+    private final SpringBeanPostProcessor springBeanPostProcessor;
+    private final AtomicBoolean warmedUp = new AtomicBoolean();
+
+    public RpcReferenceWarmup(SpringBeanPostProcessor springBeanPostProcessor) {
+        this.springBeanPostProcessor = springBeanPostProcessor;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!RpcConfigUtil.getBoolean(RpcConfigEnum.CLIENT_WARMUP_ENABLED, false)) {
+            return;
+        }
+        // the event is published once per (child) context, warm up only once
+        if (!warmedUp.compareAndSet(false, true)) {
+            return;
+        }
+        Map<String, Class<?>> referencedServices = springBeanPostProcessor.getReferencedServices();
+        if (referencedServices.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long timeoutMillis = RpcConfigUtil.getLong(RpcConfigEnum.CLIENT_WARMUP_TIMEOUT_MS, 10000);
+        int calls = RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_WARMUP_CALLS, 0);
+        Map<InetSocketAddress, String> addresses = lookupAddresses(referencedServices.keySet());
+        List<Channel> channels = connect(addresses, timeoutMillis);
+        int pongs = 0;
+        if (calls > 0) {
+            warmUpCodec(referencedServices.values(), calls);
+            pongs = sendHeartbeats(channels, calls, timeoutMillis);
+        }
+        log.info("rpc warm-up finished: [{}] services, [{}/{}] providers connected, [{}/{}] heartbeats answered in [{}] ms",
+                referencedServices.size(), channels.size(), addresses.size(), pongs, channels.size() * calls,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @return 服务提供者地址 -> 该地址上的任意一个服务名（用于查找它注册的 unix domain socket）
+     */
+    private Map<InetSocketAddress, String> lookupAddresses(Set<String> rpcServiceNames) {
+        ServiceDiscovery serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension("zk");
+        Map<InetSocketAddress, String> addresses = new LinkedHashMap<>();
+        for (String rpcServiceName : rpcServiceNames) {
+            try {
+                List<InetSocketAddress> serviceAddresses = serviceDiscovery.lookupServiceAddresses(rpcServiceName);
+                if (serviceAddresses.isEmpty()) {
+                    log.warn("rpc warm-up: no provider found for [{}]", rpcServiceName);
+                }
+                for (InetSocketAddress serviceAddress : serviceAddresses) {
+                    addresses.putIfAbsent(serviceAddress, rpcServiceName);
+                }
+            } catch (Exception e) {
+                log.warn("rpc warm-up: lookup [{}] failed", rpcServiceName, e);
+            }
+        }
+        return addresses;
+    }
+
+    private List<Channel> connect(Map<InetSocketAddress, String> addresses, long timeoutMillis) {
+        List<Channel> channels = new ArrayList<>();
+        // injvm and shm hand the services of other processes to a netty delegate
+        RpcRequestTransport rpcClient = springBeanPostProcessor.getRpcClient().remoteTransport();
+        if (!(rpcClient instanceof NettyRpcClient) || addresses.isEmpty()) {
+            return channels;
+        }
+        NettyRpcClient nettyRpcClient = (NettyRpcClient) rpcClient;
+        List<CompletableFuture<Channel>> futures = new ArrayList<>();
+        for (Map.Entry<InetSocketAddress, String> entry : addresses.entrySet()) {
+            InetSocketAddress address = entry.getKey();
+            futures.add(nettyRpcClient.getChannelAsync(address, entry.getValue()).whenComplete((channel, e) -> {
+                if (e != null) {
+                    log.warn("rpc warm-up: connect [{}] failed", address, e);
+                }
+            }));
+        }
+        if (!await(futures, timeoutMillis)) {
+            log.warn("rpc warm-up: not all providers are connected within [{}] ms", timeoutMillis);
+        }
+        for (CompletableFuture<Channel> future : futures) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                channels.add(future.join());
+            }
+        }
+        return channels;
+    }
+
+    /**
+     * @return 是否所有 future 都在 timeoutMillis 内完成（成功或失败）
+     */
+    private static boolean await(List<? extends CompletableFuture<?>> futures, long timeoutMillis) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            // a single failure is logged by the caller
+        }
+        return true;
+    }
+
+    /**
+     * 在本地按实际请求的编码方式（hessian + gzip）编解码请求和响应，提前完成类加载和 Hessian 的类型解析
+     */
+    private void warmUpCodec(Iterable<Class<?>> serviceInterfaces, int calls) {
+        Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class)
+                .getExtension(SerializationTypeEnum.HESSIAN.getName());
+        Compress compress = ExtensionLoader.getExtensionLoader(Compress.class)
+                .getExtension(CompressTypeEnum.GZIP.getName());
+        try {
+            for (int i = 0; i < calls; i++) {
+                for (Class<?> serviceInterface : serviceInterfaces) {
+                    for (Method method : serviceInterface.getMethods()) {
+                        RpcRequest rpcRequest = RpcRequest.builder().requestId(UUID.randomUUID().toString())
+                                .interfaceName(method.getDeclaringClass().getName())
+                                .methodName(method.getName())
+                                .parameters(new Object[method.getParameterCount()])
+                                .paramTypes(method.getParameterTypes())
+                                .group("")
+                                .version("")
+                                .build();
+                        byte[] bytes = compress.decompress(compress.compress(serializer.serialize(rpcRequest)));
+                        serializer.deserialize(bytes, RpcRequest.class);
+                    }
+                }
+                RpcResponse<Object> rpcResponse = RpcResponse.success(null, UUID.randomUUID().toString());
+                byte[] bytes = compress.decompress(compress.compress(serializer.serialize(rpcResponse)));
+                serializer.deserialize(bytes, RpcResponse.class);
+            }
+        } catch (Exception e) {
+            log.warn("rpc warm-up: codec warm-up failed", e);
+        }
+    }
+
+    /**
+     * 心跳不会调用业务方法，但会走完整的编码、网络往返和解码流程。
+     * 每个连接上同时只有一个预热 ping 未应答，未应答的 ping 堆积会让刚预热的连接被负载均衡认为不健康
+     *
+     * @return 在 timeoutMillis 内收到的 pong 数
+     */
+    private int sendHeartbeats(List<Channel> channels, int calls, long timeoutMillis) {
+        AtomicInteger answered = new AtomicInteger();
+        Queue<CompletableFuture<Long>> pings = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Void>> rounds = new ArrayList<>();
+        for (Channel channel : channels) {
+            CompletableFuture<Void> round = new CompletableFuture<>();
+            rounds.add(round);
+            pingInTurn(channel, calls, answered, pings, round);
+        }
+        if (!await(rounds, timeoutMillis)) {
+            log.warn("rpc warm-up: not all heartbeats are answered within [{}] ms", timeoutMillis);
+        }
+        // stop the rounds, then forget the pings that are still waiting for a pong
+        rounds.forEach(round -> round.complete(null));
+        pings.forEach(ping -> ping.cancel(false));
+        return answered.get();
+    }
+
+    /**
+     * 发送一个 ping，收到 pong 后发送下一个，直到发完 remaining 个、ping 失败或 round 被结束
+     */
+    private static void pingInTurn(Channel channel, int remaining, AtomicInteger answered,
+                                   Queue<CompletableFuture<Long>> pings, CompletableFuture<Void> round) {
+        if (remaining == 0 || round.isDone()) {
+            round.complete(null);
+            return;
+        }
+        CompletableFuture<Long> ping = NettyRpcClientHandler.ping(channel);
+        pings.add(ping);
+        ping.whenComplete((rtt, e) -> {
+            if (e != null) {
+                // the channel is closed, or the warm-up timed out
+                round.complete(null);
+                return;
+            }
+            answered.incrementAndGet();
+            pingInTurn(channel, remaining - 1, answered, pings, round);
+        });
+    }
+}
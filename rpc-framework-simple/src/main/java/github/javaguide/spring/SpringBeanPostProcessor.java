@@ -3,12 +3,14 @@ package github.javaguide.spring;
 import github.javaguide.annotation.RpcReference;
 import github.javaguide.annotation.RpcService;
 import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcConfigEnum;
 import github.javaguide.extension.ExtensionLoader;
 import github.javaguide.factory.SingletonFactory;
 import github.javaguide.provider.ServiceProvider;
 import github.javaguide.provider.impl.ZkServiceProviderImpl;
 import github.javaguide.proxy.RpcClientProxy;
 import github.javaguide.remoting.transport.RpcRequestTransport;
+import github.javaguide.utils.RpcConfigUtil;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
@@ -16,6 +18,9 @@ import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * call this method before creating the bean to see if the class is annotated
@@ -29,16 +34,21 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
 
     private final ServiceProvider serviceProvider;//rpc服务生产者
     private final RpcRequestTransport rpcClient;//rpc客户端
+    /**
+     * 被 @RpcReference 引用的 rpc服务名 -> 服务接口，用于启动预热
+     */
+    private final Map<String, Class<?>> referencedServices = new ConcurrentHashMap<>();
 
     /**
-     * 构造函数：rpc服务生产者实例=单例工厂生成的单例；rpc客户端=netty对应的实现类的单例
+     * 构造函数：rpc服务生产者实例=单例工厂生成的单例；rpc客户端=rpc.client.transport 对应的实现类的单例（默认netty）
      * @return:
      * @author: gefeng
      * @date: 2023/2/7 14:56
      */
     public SpringBeanPostProcessor() {
         this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
-        this.rpcClient = ExtensionLoader.getExtensionLoader(RpcRequestTransport.class).getExtension("netty");
+        this.rpcClient = ExtensionLoader.getExtensionLoader(RpcRequestTransport.class)
+                .getExtension(RpcConfigUtil.getString(RpcConfigEnum.CLIENT_TRANSPORT, "netty"));
     }
 
     /**
@@ -62,6 +72,10 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
             RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
                     .group(rpcService.group())
                     .version(rpcService.version())
+                    .bulkhead(rpcService.bulkhead())
+                    .bulkheadThreads(rpcService.bulkheadThreads())
+                    .bulkheadQueueCapacity(rpcService.bulkheadQueueCapacity())
+                    .isolatedMethods(rpcService.isolatedMethods())
                     .service(bean).build();
             serviceProvider.publishService(rpcServiceConfig);
         }
@@ -87,9 +101,15 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
             if (rpcReference != null) {
                 RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
                         .group(rpcReference.group())
-                        .version(rpcReference.version()).build();
+                        .version(rpcReference.version())
+                        .timeout(rpcReference.timeout())
+                        .cachedMethods(rpcReference.cachedMethods())
+                        .cacheTtlMillis(rpcReference.cacheTtlMillis())
+                        .cacheMaxBytes(rpcReference.cacheMaxBytes()).build();
                 RpcClientProxy rpcClientProxy = new RpcClientProxy(rpcClient, rpcServiceConfig);
                 Object clientProxy = rpcClientProxy.getProxy(declaredField.getType());
+                // remember the referenced service so that connections can be warmed up once the context is refreshed
+                referencedServices.put(declaredField.getType().getName() + rpcReference.group() + rpcReference.version(), declaredField.getType());
                 declaredField.setAccessible(true);
                 try {
                     declaredField.set(bean, clientProxy);
@@ -101,4 +121,15 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
         }
         return bean;
     }
+
+    /**
+     * @return 所有被 @RpcReference 引用的 rpc服务名（接口名+组名+版本名） -> 服务接口
+     */
+    public Map<String, Class<?>> getReferencedServices() {
+        return Collections.unmodifiableMap(referencedServices);
+    }
+
+    public RpcRequestTransport getRpcClient() {
+        return rpcClient;
+    }
 }
@@ -0,0 +1,36 @@
+package github.javaguide.health;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionHealthTest {
+    @Test
+    void rttEstimateTest() {
+        ConnectionHealth health = new ConnectionHealth("127.0.0.1:9998", 3);
+        assertEquals(-1, health.srttNanos());
+        health.onPong(800);
+        assertEquals(800, health.srttNanos());
+        assertEquals(400, health.rttvarNanos());
+        health.onPong(1600);
+        // srtt = 800 + (1600 - 800) / 8, rttvar = 400 + (|800 - 1600| - 400) / 4
+        assertEquals(900, health.srttNanos());
+        assertEquals(500, health.rttvarNanos());
+    }
+
+    @Test
+    void missedPongTest() {
+        ConnectionHealth health = new ConnectionHealth("127.0.0.1:9998", 2);
+        health.onPingSent();
+        assertEquals(0, health.missedPongs());
+        health.onPingSent();
+        health.onPingSent();
+        assertEquals(2, health.missedPongs());
+        assertFalse(health.isHealthy());
+        health.onPong(100);
+        assertEquals(0, health.missedPongs());
+        assertTrue(health.isHealthy());
+    }
+}
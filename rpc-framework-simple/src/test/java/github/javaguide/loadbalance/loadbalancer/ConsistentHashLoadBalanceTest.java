@@ -14,6 +14,8 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 
 class ConsistentHashLoadBalanceTest {
@@ -36,4 +38,18 @@ class ConsistentHashLoadBalanceTest {
         String userServiceAddress = loadBalance.selectServiceAddress(serviceUrlList, rpcRequest);
         assertEquals("127.0.0.1:9998", userServiceAddress);
     }
-}
\ No newline at end of file
+
+    @Test
+    void selectorReuseTest() {
+        ConsistentHashLoadBalance loadBalance = new ConsistentHashLoadBalance();
+        RpcRequest rpcRequest = RpcRequest.builder().interfaceName("github.javaguide.HelloService")
+                .group("").version("").parameters(new Object[0]).build();
+        loadBalance.doSelect(new ArrayList<>(Arrays.asList("127.0.0.1:9997", "127.0.0.1:9998")), rpcRequest);
+        ConsistentHashLoadBalance.ConsistentHashSelector selector = loadBalance.selector(rpcRequest.getRpcServiceName());
+        // a new list with the same addresses (e.g. filtered by health on every call) keeps the ring
+        loadBalance.doSelect(new ArrayList<>(Arrays.asList("127.0.0.1:9997", "127.0.0.1:9998")), rpcRequest);
+        assertSame(selector, loadBalance.selector(rpcRequest.getRpcServiceName()));
+        loadBalance.doSelect(new ArrayList<>(Arrays.asList("127.0.0.1:9997", "127.0.0.1:9999")), rpcRequest);
+        assertNotSame(selector, loadBalance.selector(rpcRequest.getRpcServiceName()));
+    }
+}
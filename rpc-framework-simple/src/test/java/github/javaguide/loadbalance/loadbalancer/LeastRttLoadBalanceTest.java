@@ -0,0 +1,51 @@
+package github.javaguide.loadbalance.loadbalancer;
+
+import github.javaguide.extension.ExtensionLoader;
+import github.javaguide.health.ConnectionHealthRegistry;
+import github.javaguide.loadbalance.LoadBalance;
+import github.javaguide.remoting.dto.RpcRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class LeastRttLoadBalanceTest {
+    private final LoadBalance loadBalance = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension("leastRtt");
+    private final List<String> serviceAddresses = Arrays.asList("127.0.0.1:9101", "127.0.0.1:9102", "127.0.0.1:9103");
+    private final RpcRequest rpcRequest = RpcRequest.builder().interfaceName("github.javaguide.HelloService")
+            .group("").version("").parameters(new Object[0]).build();
+
+    @AfterEach
+    void tearDown() {
+        serviceAddresses.forEach(ConnectionHealthRegistry::remove);
+    }
+
+    @Test
+    void slowestIsNeverSelectedTest() {
+        ConnectionHealthRegistry.register("127.0.0.1:9101").onPong(100);
+        ConnectionHealthRegistry.register("127.0.0.1:9102").onPong(200);
+        ConnectionHealthRegistry.register("127.0.0.1:9103").onPong(300);
+        // the slower of the two random choices always loses
+        for (int i = 0; i < 100; i++) {
+            assertNotEquals("127.0.0.1:9103", loadBalance.selectServiceAddress(serviceAddresses, rpcRequest));
+        }
+    }
+
+    @Test
+    void unmeasuredIsPreferredTest() {
+        ConnectionHealthRegistry.register("127.0.0.1:9101").onPong(100);
+        ConnectionHealthRegistry.register("127.0.0.1:9102").onPong(200);
+        int unmeasured = 0;
+        for (int i = 0; i < 300; i++) {
+            if ("127.0.0.1:9103".equals(loadBalance.selectServiceAddress(serviceAddresses, rpcRequest))) {
+                unmeasured++;
+            }
+        }
+        // chosen whenever it is one of the two choices, i.e. two times in three
+        assertEquals(200, unmeasured, 50);
+    }
+}
@@ -0,0 +1,87 @@
+package github.javaguide.proxy;
+
+import github.javaguide.DemoRpcService;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchCallTest {
+
+    @Test
+    void resultsAndErrorsTest() {
+        List<RpcRequest> sent = new ArrayList<>();
+        BatchCall batchCall = new BatchCall(rpcRequest -> {
+            sent.add(rpcRequest);
+            RpcResponse<Object> rpcResponse = sent.size() == 2
+                    ? RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId())
+                    : RpcResponse.success("hi " + sent.size(), rpcRequest.getRequestId());
+            return CompletableFuture.completedFuture(rpcResponse);
+        });
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder().group("test1").version("version1").build();
+        CompletableFuture<String> first = batchCall.add(rpcServiceConfig, DemoRpcService.class, "hello");
+        batchCall.add(rpcServiceConfig, DemoRpcService.class, "hello");
+        batchCall.add(rpcServiceConfig, DemoRpcService.class, "hello");
+        // nothing is sent before execute
+        assertTrue(sent.isEmpty());
+
+        BatchCall.Result result = batchCall.execute().join();
+        assertEquals(3, result.size());
+        assertEquals("hi 1", first.join());
+        assertEquals("hi 1", result.get(0));
+        // a failed call does not fail the others
+        assertFalse(result.isSuccess(1));
+        assertTrue(result.getError(1) instanceof RpcException);
+        assertThrows(RpcException.class, () -> result.get(1));
+        assertEquals("hi 3", result.get(2));
+        assertEquals("github.javaguide.DemoRpcServicetest1version1", sent.get(0).getRpcServiceName());
+        assertThrows(IllegalStateException.class, batchCall::execute);
+    }
+
+    @Test
+    void orderedTest() {
+        List<CompletableFuture<RpcResponse<Object>>> responses = new ArrayList<>();
+        List<RpcRequest> sent = new ArrayList<>();
+        BatchCall batchCall = new BatchCall(rpcRequest -> {
+            sent.add(rpcRequest);
+            CompletableFuture<RpcResponse<Object>> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        }).ordered();
+        RpcServiceConfig rpcServiceConfig = new RpcServiceConfig();
+        batchCall.add(rpcServiceConfig, DemoRpcService.class, "hello");
+        batchCall.add(rpcServiceConfig, DemoRpcService.class, "hello");
+        CompletableFuture<BatchCall.Result> result = batchCall.execute();
+
+        // the second call waits for the first one
+        assertEquals(1, sent.size());
+        responses.get(0).completeExceptionally(new IllegalStateException());
+        assertEquals(2, sent.size());
+        responses.get(1).complete(RpcResponse.success("hi", sent.get(1).getRequestId()));
+        assertTrue(result.join().getError(0) instanceof IllegalStateException);
+        assertEquals("hi", result.join().get(1));
+    }
+
+    @Test
+    void timeoutTest() {
+        CompletableFuture<RpcResponse<Object>> never = new CompletableFuture<>();
+        BatchCall batchCall = new BatchCall(rpcRequest -> never);
+        batchCall.add(RpcServiceConfig.builder().timeout(50).build(), DemoRpcService.class, "hello");
+
+        BatchCall.Result result = batchCall.execute().join();
+        assertTrue(result.getError(0) instanceof RpcException);
+        // the transport sees the request completed and forgets it
+        assertTrue(never.isCompletedExceptionally());
+    }
+}
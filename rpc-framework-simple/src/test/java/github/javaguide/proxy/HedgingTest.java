@@ -0,0 +1,168 @@
+package github.javaguide.proxy;
+
+import github.javaguide.annotation.RpcIdempotent;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import github.javaguide.remoting.transport.RpcRequestTransport;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingTest {
+
+    interface LookupService {
+        @RpcIdempotent(hedgeDelayMillis = 20)
+        String get(String key);
+
+        String load(String key);
+    }
+
+    /**
+     * the slow provider never answers, the fast one answers at once
+     */
+    static class TwoProviders implements RpcRequestTransport {
+        private final InetSocketAddress slow = InetSocketAddress.createUnresolved("slow", 1);
+        private final InetSocketAddress fast = InetSocketAddress.createUnresolved("fast", 1);
+        private final List<CompletableFuture<RpcResponse<Object>>> slowResponses = new CopyOnWriteArrayList<>();
+        private final List<RpcRequest> fastRequests = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Object sendRpcRequest(RpcRequest rpcRequest) {
+            return sendRpcRequest(rpcRequest, new HashSet<>());
+        }
+
+        @Override
+        public Object sendRpcRequest(RpcRequest rpcRequest, Set<InetSocketAddress> triedProviders) {
+            if (!triedProviders.contains(slow)) {
+                triedProviders.add(slow);
+                CompletableFuture<RpcResponse<Object>> response = new CompletableFuture<>();
+                slowResponses.add(response);
+                return response;
+            }
+            if (!triedProviders.contains(fast)) {
+                triedProviders.add(fast);
+                fastRequests.add(rpcRequest);
+                return CompletableFuture.completedFuture(RpcResponse.success("fast " + rpcRequest.getParameters()[0], rpcRequest.getRequestId()));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * expires the timeouts when the test says so
+     */
+    static class ManualTimer implements Timer {
+        private final List<TimerTask> tasks = new ArrayList<>();
+
+        @Override
+        public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+            tasks.add(task);
+            return new Timeout() {
+                private boolean cancelled;
+
+                @Override
+                public Timer timer() {
+                    return ManualTimer.this;
+                }
+
+                @Override
+                public TimerTask task() {
+                    return task;
+                }
+
+                @Override
+                public boolean isExpired() {
+                    return !tasks.contains(task) && !cancelled;
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return cancelled;
+                }
+
+                @Override
+                public boolean cancel() {
+                    cancelled = tasks.remove(task);
+                    return cancelled;
+                }
+            };
+        }
+
+        @Override
+        public Set<Timeout> stop() {
+            tasks.clear();
+            return Collections.emptySet();
+        }
+
+        void expireAll() throws Exception {
+            List<TimerTask> expired = new ArrayList<>(tasks);
+            tasks.clear();
+            for (TimerTask task : expired) {
+                task.run(null);
+            }
+        }
+    }
+
+    @Test
+    void hedgeTest() {
+        TwoProviders transport = new TwoProviders();
+        LookupService lookupService = new RpcClientProxy(transport).getProxy(LookupService.class);
+
+        // the duplicate sent to the other provider wins
+        assertEquals("fast k", lookupService.get("k"));
+        assertEquals(1, transport.fastRequests.size());
+    }
+
+    @Test
+    void budgetTest() throws Exception {
+        TwoProviders transport = new TwoProviders();
+        ManualTimer timer = new ManualTimer();
+        RpcIdempotent idempotent = LookupService.class.getMethod("get", String.class).getAnnotation(RpcIdempotent.class);
+        Hedging hedging = new Hedging(transport, idempotent, timer, Runnable::run);
+
+        int hedged = 0;
+        for (int i = 0; i < 30; i++) {
+            CompletableFuture<RpcResponse<Object>> result = hedging.send(new RpcRequest(
+                    RpcClientProxy.nextRequestId(), LookupService.class.getName(), "get", new Object[]{"k" + i},
+                    new Class<?>[]{String.class}, "", ""));
+            // the slow request is still waiting when the hedge delay is reached
+            timer.expireAll();
+            if (result.isDone()) {
+                assertEquals("fast k" + i, result.get().getData());
+                // the slow request is given up
+                assertTrue(transport.slowResponses.get(i).isCompletedExceptionally());
+                hedged++;
+            }
+        }
+        // 10 tokens at the start, 0.1 token deposited by each call: the 13th hedge finds 0.9 token
+        assertEquals(12, hedged);
+        assertEquals(12, transport.fastRequests.size());
+    }
+
+    @Test
+    void notIdempotentTest() {
+        TwoProviders transport = new TwoProviders();
+        LookupService lookupService = new RpcClientProxy(transport, RpcServiceConfig.builder().timeout(50).build())
+                .getProxy(LookupService.class);
+
+        assertThrows(RpcException.class, () -> lookupService.load("k"));
+        assertEquals(0, transport.fastRequests.size());
+    }
+}
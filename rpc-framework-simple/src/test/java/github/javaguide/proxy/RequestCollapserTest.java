@@ -0,0 +1,60 @@
+package github.javaguide.proxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestCollapserTest {
+
+    @Test
+    void maxSizeTest() throws Exception {
+        List<List<Object>> batches = new ArrayList<>();
+        RequestCollapser requestCollapser = new RequestCollapser(60000, 3, batchArgs -> {
+            batches.add(batchArgs);
+            List<Object> users = batchArgs.stream().map(id -> "user " + id).collect(Collectors.toList());
+            return CompletableFuture.completedFuture(users);
+        });
+        CompletableFuture<Object> first = requestCollapser.submit(1L);
+        CompletableFuture<Object> second = requestCollapser.submit(2L);
+        CompletableFuture<Object> third = requestCollapser.submit(3L);
+        assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 3L)), batches);
+        assertEquals("user 1", first.get());
+        assertEquals("user 2", second.get());
+        assertEquals("user 3", third.get());
+    }
+
+    @Test
+    void windowAndMapResultTest() throws Exception {
+        RequestCollapser requestCollapser = new RequestCollapser(5, 100, batchArgs -> {
+            Map<Object, Object> users = new HashMap<>();
+            batchArgs.forEach(id -> users.put(id, "user " + id));
+            return CompletableFuture.completedFuture(users);
+        });
+        CompletableFuture<Object> first = requestCollapser.submit(1L);
+        CompletableFuture<Object> second = requestCollapser.submit(2L);
+        // sent when the window ends
+        assertEquals("user 1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("user 2", second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void mismatchTest() {
+        RequestCollapser requestCollapser = new RequestCollapser(60000, 2,
+                batchArgs -> CompletableFuture.completedFuture(Arrays.asList("only one")));
+        CompletableFuture<Object> first = requestCollapser.submit(1L);
+        CompletableFuture<Object> second = requestCollapser.submit(2L);
+        assertThrows(ExecutionException.class, first::get);
+        assertThrows(ExecutionException.class, second::get);
+    }
+}
@@ -0,0 +1,133 @@
+package github.javaguide.proxy;
+
+import github.javaguide.DemoRpcService;
+import github.javaguide.annotation.RpcOneWay;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcClientProxyTest {
+
+    interface AsyncHelloService {
+        CompletableFuture<String> hello(String name);
+    }
+
+    interface NotifyService {
+        @RpcOneWay
+        void notify(String event);
+    }
+
+    interface BadNotifyService {
+        @RpcOneWay
+        String notify(String event);
+    }
+
+    @Test
+    void stubTest() {
+        RpcRequest[] sent = new RpcRequest[1];
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder().group("test1").version("version1").build();
+        DemoRpcService demoRpcService = new RpcClientProxy(rpcRequest -> {
+            sent[0] = rpcRequest;
+            RpcResponse<Object> rpcResponse = RpcResponse.success("hi", rpcRequest.getRequestId());
+            return CompletableFuture.completedFuture(rpcResponse);
+        }, rpcServiceConfig).getProxy(DemoRpcService.class);
+
+        assertEquals("hi", demoRpcService.hello());
+        assertEquals("github.javaguide.DemoRpcServicetest1version1", sent[0].getRpcServiceName());
+        assertEquals("hello", sent[0].getMethodName());
+        String firstRequestId = sent[0].getRequestId();
+        demoRpcService.hello();
+        assertNotEquals(firstRequestId, sent[0].getRequestId());
+
+        // Object methods are not sent to the server
+        sent[0] = null;
+        assertNotNull(demoRpcService.toString());
+        assertEquals(demoRpcService, demoRpcService);
+        assertNull(sent[0]);
+    }
+
+    @Test
+    void timeoutTest() {
+        CompletableFuture<RpcResponse<Object>> never = new CompletableFuture<>();
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder().timeout(50).build();
+        DemoRpcService demoRpcService = new RpcClientProxy(rpcRequest -> never, rpcServiceConfig)
+                .getProxy(DemoRpcService.class);
+
+        assertThrows(RpcException.class, demoRpcService::hello);
+        // the transport sees the request completed and forgets it
+        assertTrue(never.isCompletedExceptionally());
+    }
+
+    @Test
+    void asyncTest() throws Exception {
+        CompletableFuture<RpcResponse<Object>> response = new CompletableFuture<>();
+        String[] requestId = new String[1];
+        AsyncHelloService asyncHelloService = new RpcClientProxy(rpcRequest -> {
+            requestId[0] = rpcRequest.getRequestId();
+            return response;
+        }).getProxy(AsyncHelloService.class);
+
+        // returns before the response arrives
+        CompletableFuture<String> result = asyncHelloService.hello("rpc");
+        assertFalse(result.isDone());
+        response.complete(RpcResponse.success("hello rpc", requestId[0]));
+        assertEquals("hello rpc", result.get());
+    }
+
+    @Test
+    void cachedTest() throws Exception {
+        List<RpcRequest> sent = new ArrayList<>();
+        List<CompletableFuture<RpcResponse<Object>>> responses = new ArrayList<>();
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder().cachedMethods(new String[]{"hello"}).build();
+        AsyncHelloService asyncHelloService = new RpcClientProxy(rpcRequest -> {
+            sent.add(rpcRequest);
+            CompletableFuture<RpcResponse<Object>> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        }, rpcServiceConfig).getProxy(AsyncHelloService.class);
+
+        // identical concurrent calls share one request
+        CompletableFuture<String> first = asyncHelloService.hello("rpc");
+        CompletableFuture<String> second = asyncHelloService.hello("rpc");
+        assertEquals(1, sent.size());
+        responses.get(0).complete(RpcResponse.success("hello rpc", sent.get(0).getRequestId()));
+        assertEquals("hello rpc", first.get());
+        assertEquals("hello rpc", second.get());
+
+        // answered from the cache
+        assertEquals("hello rpc", asyncHelloService.hello("rpc").get());
+        assertEquals(1, sent.size());
+        asyncHelloService.hello("cache");
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void oneWayTest() {
+        List<RpcRequest> sent = new ArrayList<>();
+        CompletableFuture<RpcResponse<Object>> never = new CompletableFuture<>();
+        NotifyService notifyService = new RpcClientProxy(rpcRequest -> {
+            sent.add(rpcRequest);
+            return never;
+        }).getProxy(NotifyService.class);
+
+        // returns without waiting for a response
+        notifyService.notify("started");
+        assertEquals(1, sent.size());
+        assertEquals("notify", sent.get(0).getMethodName());
+        assertThrows(IllegalArgumentException.class, () -> new RpcClientProxy(rpcRequest -> never).getProxy(BadNotifyService.class));
+    }
+}
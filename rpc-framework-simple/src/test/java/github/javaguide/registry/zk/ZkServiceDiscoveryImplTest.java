@@ -0,0 +1,16 @@
+package github.javaguide.registry.zk;
+
+import github.javaguide.loadbalance.loadbalancer.ConsistentHashLoadBalance;
+import github.javaguide.loadbalance.loadbalancer.LeastRttLoadBalance;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZkServiceDiscoveryImplTest {
+    @Test
+    void loadBalanceTest() {
+        // rpc.client.load-balance is not configured
+        assertTrue(new ZkServiceDiscoveryImpl().getLoadBalance() instanceof ConsistentHashLoadBalance);
+        assertTrue(new ZkServiceDiscoveryImpl("leastRtt").getLoadBalance() instanceof LeastRttLoadBalance);
+    }
+}
@@ -0,0 +1,62 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.DemoRpcServiceImpl;
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.metrics.RpcMetrics;
+import github.javaguide.remoting.dto.RpcRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkheadRegistryTest {
+    @Test
+    void selectTest() {
+        BulkheadRegistry bulkheadRegistry = new BulkheadRegistry();
+        Executor defaultExecutor = Runnable::run;
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
+                .group("test1").version("version1")
+                .bulkhead("demo").bulkheadThreads(2).bulkheadQueueCapacity(10)
+                .isolatedMethods(new String[]{"slow"})
+                .service(new DemoRpcServiceImpl()).build();
+        bulkheadRegistry.register(rpcServiceConfig);
+
+        RpcRequest hello = RpcRequest.builder().interfaceName("github.javaguide.DemoRpcService")
+                .group("test1").version("version1").methodName("hello").build();
+        RpcRequest slow = RpcRequest.builder().interfaceName("github.javaguide.DemoRpcService")
+                .group("test1").version("version1").methodName("slow").build();
+        RpcRequest other = RpcRequest.builder().interfaceName("github.javaguide.OtherService")
+                .group("").version("").methodName("hello").build();
+        assertEquals("demo", ((Bulkhead) bulkheadRegistry.select(hello, defaultExecutor)).getName());
+        assertEquals("demo#slow", ((Bulkhead) bulkheadRegistry.select(slow, defaultExecutor)).getName());
+        assertSame(defaultExecutor, bulkheadRegistry.select(other, defaultExecutor));
+    }
+
+    @Test
+    void rejectTest() throws InterruptedException {
+        Bulkhead bulkhead = new BulkheadRegistry().getOrCreate("reject-test", 1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        bulkhead.execute(blocking);
+        running.await();
+        // one thread busy, one request queued, the third one is rejected
+        bulkhead.execute(blocking);
+        assertThrows(RejectedExecutionException.class, () -> bulkhead.execute(blocking));
+        assertEquals(1L, RpcMetrics.snapshot().get("rpc.server.bulkhead.rejected[reject-test]").longValue());
+        assertEquals(1, RpcMetrics.snapshot().get("rpc.server.bulkhead.queue-depth[reject-test]").intValue());
+        release.countDown();
+    }
+}
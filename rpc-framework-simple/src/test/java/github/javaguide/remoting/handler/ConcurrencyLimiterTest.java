@@ -0,0 +1,76 @@
+package github.javaguide.remoting.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * acquires the whole limit and releases every request with the same latency
+     */
+    private static void saturate(ConcurrencyLimiter limiter, long rttNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rttNanos);
+        }
+    }
+
+    @Test
+    void rejectTest() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 100);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        limiter.cancel();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void adaptTest() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 4, 200);
+        // stable latency under full load: the limit grows
+        for (int i = 0; i < 10; i++) {
+            saturate(limiter, 10 * MILLIS);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20, "limit " + grown);
+
+        // requests start queueing and the latency goes up: the limit shrinks
+        for (int i = 0; i < 10; i++) {
+            saturate(limiter, 100 * MILLIS);
+        }
+        assertTrue(limiter.getLimit() < grown, "limit " + limiter.getLimit());
+
+        // far below the limit the latency does not change it
+        int limit = limiter.getLimit();
+        for (int i = 0; i < ConcurrencyLimiter.SAMPLE_WINDOW; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLIS);
+        }
+        assertEquals(limit, limiter.getLimit());
+    }
+
+    @Test
+    void boundsTest() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 15, 30);
+        for (int i = 0; i < 30; i++) {
+            saturate(limiter, 10 * MILLIS);
+        }
+        assertEquals(30, limiter.getLimit());
+        for (int i = 0; i < 14; i++) {
+            saturate(limiter, 1000 * MILLIS);
+        }
+        assertEquals(15, limiter.getLimit());
+    }
+}
@@ -0,0 +1,61 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.annotation.RpcInline;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InlineWatchdogTest {
+
+    public interface LookupService {
+        String get(String key);
+
+        String load(String key);
+    }
+
+    public static class LookupServiceImpl implements LookupService {
+        @Override
+        @RpcInline(budgetMicros = 100)
+        public String get(String key) {
+            return key;
+        }
+
+        @Override
+        public String load(String key) {
+            return key;
+        }
+    }
+
+    @Test
+    void configureTest() throws Exception {
+        InlineWatchdog inlineWatchdog = new InlineWatchdog();
+        MethodInvoker get = MethodInvoker.of(LookupService.class.getMethod("get", String.class));
+        MethodInvoker load = MethodInvoker.of(LookupService.class.getMethod("load", String.class));
+        inlineWatchdog.configure(get, LookupServiceImpl.class);
+        inlineWatchdog.configure(load, LookupServiceImpl.class);
+        assertTrue(get.isInline());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), get.getInlineBudgetNanos());
+        assertFalse(load.isInline());
+    }
+
+    @Test
+    void demoteTest() throws Exception {
+        InlineWatchdog inlineWatchdog = new InlineWatchdog();
+        MethodInvoker get = MethodInvoker.of(LookupService.class.getMethod("get", String.class));
+        inlineWatchdog.configure(get, LookupServiceImpl.class);
+        inlineWatchdog.record(get, TimeUnit.MICROSECONDS.toNanos(500));
+        inlineWatchdog.record(get, TimeUnit.MICROSECONDS.toNanos(500));
+        // a call within the budget resets the count
+        inlineWatchdog.record(get, TimeUnit.MICROSECONDS.toNanos(50));
+        inlineWatchdog.record(get, TimeUnit.MICROSECONDS.toNanos(500));
+        inlineWatchdog.record(get, TimeUnit.MICROSECONDS.toNanos(500));
+        assertTrue(get.isInline());
+        // the third overrun in a row (rpc.server.inline.max-overruns defaults to 3) moves it back to the bulkhead
+        inlineWatchdog.record(get, TimeUnit.MICROSECONDS.toNanos(500));
+        assertFalse(get.isInline());
+    }
+}
@@ -0,0 +1,39 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.DemoRpcService;
+import github.javaguide.DemoRpcServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MethodInvokerTest {
+    @Test
+    void invokeTest() throws Throwable {
+        MethodInvoker hello = MethodInvoker.of(DemoRpcService.class.getMethod("hello"));
+        assertEquals("hello", hello.invoke(new DemoRpcServiceImpl(), null));
+        assertTrue(hello.matches(null));
+        assertTrue(hello.matches(new Class<?>[0]));
+
+        // primitive parameters are unboxed, primitive results are boxed
+        MethodInvoker get = MethodInvoker.of(List.class.getMethod("get", int.class));
+        assertEquals("b", get.invoke(java.util.Arrays.asList("a", "b"), new Object[]{1}));
+        assertTrue(get.matches(new Class<?>[]{int.class}));
+        assertFalse(get.matches(new Class<?>[]{Integer.class}));
+
+        MethodInvoker clear = MethodInvoker.of(List.class.getMethod("clear"));
+        assertNull(clear.invoke(new java.util.ArrayList<>(), null));
+    }
+
+    @Test
+    void exceptionTest() throws Exception {
+        MethodInvoker get = MethodInvoker.of(List.class.getMethod("get", int.class));
+        // the exception of the target method is thrown as is, not wrapped in InvocationTargetException
+        assertThrows(IndexOutOfBoundsException.class, () -> get.invoke(new java.util.ArrayList<>(), new Object[]{3}));
+    }
+}
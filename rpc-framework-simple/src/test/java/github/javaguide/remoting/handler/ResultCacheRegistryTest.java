@@ -0,0 +1,51 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.annotation.RpcCacheable;
+import github.javaguide.remoting.dto.SerializedResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResultCacheRegistryTest {
+
+    public interface CatalogService {
+        @RpcCacheable(ttlMillis = 60000, maximumSize = 2)
+        List<String> find(String category, int page);
+
+        String save(String item);
+    }
+
+    @Test
+    void configureTest() throws Exception {
+        ResultCacheRegistry resultCacheRegistry = new ResultCacheRegistry();
+        MethodInvoker find = MethodInvoker.of(CatalogService.class.getMethod("find", String.class, int.class));
+        MethodInvoker save = MethodInvoker.of(CatalogService.class.getMethod("save", String.class));
+        resultCacheRegistry.configure("catalog", find, CatalogService.class);
+        resultCacheRegistry.configure("catalog", save, CatalogService.class);
+        assertNotNull(find.getResultCache());
+        assertNull(save.getResultCache());
+    }
+
+    @Test
+    void cacheAndInvalidateTest() throws Exception {
+        ResultCacheRegistry resultCacheRegistry = new ResultCacheRegistry();
+        MethodInvoker find = MethodInvoker.of(CatalogService.class.getMethod("find", String.class, int.class));
+        resultCacheRegistry.configure("catalog", find, CatalogService.class);
+        ResultCache resultCache = find.getResultCache();
+
+        assertNull(resultCache.get(new Object[]{"book", 1}));
+        resultCache.put(new Object[]{"book", 1}, Arrays.asList("a", "b"));
+        SerializedResult cached = resultCache.get(new Object[]{"book", 1});
+        assertNotNull(cached);
+        assertEquals(Arrays.asList("a", "b"), cached.deserialize());
+        assertNull(resultCache.get(new Object[]{"book", 2}));
+
+        resultCacheRegistry.invalidate("catalog", "find", "book", 1);
+        assertNull(resultCache.get(new Object[]{"book", 1}));
+    }
+}
@@ -0,0 +1,89 @@
+package github.javaguide.remoting.handler;
+
+import github.javaguide.annotation.RpcSingleFlight;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    public static class FirstArgumentKey implements SingleFlightKey {
+        @Override
+        public Object of(Object[] args) {
+            return args[0];
+        }
+    }
+
+    public interface UserService {
+        @RpcSingleFlight
+        String find(String id, int version);
+
+        @RpcSingleFlight(key = FirstArgumentKey.class)
+        String load(String id, long traceId);
+
+        String save(String user);
+    }
+
+    private static SingleFlight singleFlight(String methodName, Class<?>... paramTypes) throws Exception {
+        MethodInvoker invoker = MethodInvoker.of(UserService.class.getMethod(methodName, paramTypes));
+        SingleFlight.configure("user", invoker, UserService.class);
+        return invoker.getSingleFlight();
+    }
+
+    @Test
+    void configureTest() throws Exception {
+        assertNotNull(singleFlight("find", String.class, int.class));
+        assertNull(singleFlight("save", String.class));
+    }
+
+    @Test
+    void coalesceTest() throws Exception {
+        SingleFlight singleFlight = singleFlight("find", String.class, int.class);
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        CompletionStage<?> first = singleFlight.execute(new Object[]{"1", 1}, () -> {
+            executions.incrementAndGet();
+            return result;
+        });
+        CompletionStage<?> second = singleFlight.execute(new Object[]{"1", 1}, () -> {
+            executions.incrementAndGet();
+            return result;
+        });
+        singleFlight.execute(new Object[]{"1", 2}, () -> {
+            executions.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        assertEquals(2, executions.get());
+
+        result.complete("user 1");
+        assertEquals("user 1", first.toCompletableFuture().get());
+        assertEquals("user 1", second.toCompletableFuture().get());
+        // completed: the next call runs the method again
+        singleFlight.execute(new Object[]{"1", 1}, () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.completedFuture("user 1");
+        });
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    void keyFunctionAndFailureTest() throws Exception {
+        SingleFlight singleFlight = singleFlight("load", String.class, long.class);
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        CompletionStage<?> first = singleFlight.execute(new Object[]{"1", 100L}, () -> result);
+        // a different trace id is still the same call
+        CompletionStage<?> second = singleFlight.execute(new Object[]{"1", 200L}, () -> {
+            throw new IllegalStateException("not coalesced");
+        });
+        result.completeExceptionally(new IllegalStateException("backend down"));
+        assertTrue(first.toCompletableFuture().isCompletedExceptionally());
+        assertTrue(second.toCompletableFuture().isCompletedExceptionally());
+    }
+}
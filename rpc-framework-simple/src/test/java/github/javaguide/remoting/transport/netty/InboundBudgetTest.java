@@ -0,0 +1,41 @@
+package github.javaguide.remoting.transport.netty;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InboundBudgetTest {
+
+    @Test
+    void pauseAndResumeTest() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        InboundBudget inboundBudget = InboundBudget.of(channel);
+        int half = InboundBudget.CONNECTION_CAPACITY / 2;
+        assertTrue(inboundBudget.tryAcquire(half));
+        assertTrue(inboundBudget.tryAcquire(half));
+        // the connection budget is used up, stop reading
+        assertFalse(inboundBudget.tryAcquire(half));
+        assertFalse(channel.config().isAutoRead());
+
+        inboundBudget.release(half);
+        channel.runPendingTasks();
+        assertTrue(channel.config().isAutoRead());
+        assertTrue(inboundBudget.tryAcquire(half));
+        inboundBudget.release(half);
+        inboundBudget.release(half);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void oversizedFrameTest() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        InboundBudget inboundBudget = InboundBudget.of(channel);
+        // a frame larger than the budget is still admitted when nothing else is using it
+        assertTrue(inboundBudget.tryAcquire(InboundBudget.CONNECTION_CAPACITY + 1));
+        assertFalse(inboundBudget.tryAcquire(1));
+        inboundBudget.release(InboundBudget.CONNECTION_CAPACITY + 1);
+        channel.finishAndReleaseAll();
+    }
+}
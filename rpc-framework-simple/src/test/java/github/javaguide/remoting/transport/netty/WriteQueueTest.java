@@ -0,0 +1,91 @@
+package github.javaguide.remoting.transport.netty;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.channels.ClosedChannelException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteQueueTest {
+
+    /**
+     * counts the flushes that reach the channel
+     */
+    private static class FlushCounter extends ChannelOutboundHandlerAdapter {
+        private int flushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            flushes++;
+            super.flush(ctx);
+        }
+    }
+
+    @Test
+    void drainTest() {
+        FlushCounter flushCounter = new FlushCounter();
+        EmbeddedChannel channel = new EmbeddedChannel(flushCounter);
+        WriteQueue writeQueue = WriteQueue.of(channel);
+        int messages = WriteQueue.MAX_WRITES_BEFORE_FLUSH * 2 + 1;
+        ChannelFuture last = null;
+        for (int i = 0; i < messages; i++) {
+            last = writeQueue.enqueue(i);
+        }
+        // nothing is written until the event loop drains the queue
+        assertNull(channel.readOutbound());
+
+        channel.runPendingTasks();
+        for (int i = 0; i < messages; i++) {
+            assertEquals(Integer.valueOf(i), channel.readOutbound());
+        }
+        assertNull(channel.readOutbound());
+        // one drain, flushed every MAX_WRITES_BEFORE_FLUSH messages and at the end
+        assertEquals(3, flushCounter.flushes);
+        assertTrue(last.isSuccess());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void pauseWhileUnwritableTest() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        WriteQueue writeQueue = WriteQueue.of(channel);
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        ChannelFuture future = writeQueue.enqueue("response");
+        channel.runPendingTasks();
+        // the message stays in the queue while the channel is not writable
+        assertNull(channel.readOutbound());
+        assertFalse(future.isDone());
+
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        writeQueue.resume();
+        channel.runPendingTasks();
+        assertEquals("response", channel.readOutbound());
+        assertTrue(future.isSuccess());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void closeTest() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        WriteQueue writeQueue = WriteQueue.of(channel);
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        ChannelFuture future = writeQueue.enqueue("response");
+        channel.runPendingTasks();
+        assertFalse(future.isDone());
+
+        // the queued message fails once the closed channel is drained
+        channel.close();
+        writeQueue.resume();
+        channel.runPendingTasks();
+        assertTrue(future.isDone());
+        assertTrue(future.cause() instanceof ClosedChannelException);
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,128 @@
+package github.javaguide.remoting.transport.netty.client;
+
+import github.javaguide.exception.RpcException;
+import github.javaguide.remoting.constants.RpcConstants;
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalChannel;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestWindowTest {
+
+    /**
+     * block and queue modes never wait on the event loop of the channel, so they run on a channel of another thread
+     */
+    private static final DefaultEventLoop EVENT_LOOP = new DefaultEventLoop();
+
+    @AfterAll
+    static void shutdown() {
+        EVENT_LOOP.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test
+    void failModeTest() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RequestWindow window = new RequestWindow(channel, RequestWindow.MODE_FAIL, 60_000, 0);
+        AtomicInteger sent = new AtomicInteger();
+        exhaust(window, sent);
+        assertThrows(RpcException.class, () -> window.submit(sent::incrementAndGet));
+
+        window.grant(1);
+        window.submit(sent::incrementAndGet);
+        assertEquals(RpcConstants.INITIAL_REQUEST_WINDOW + 1, sent.get());
+        window.close();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void eventLoopTest() {
+        // the caller is the event loop of the channel, waiting there would never get the credit back
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RequestWindow window = new RequestWindow(channel, RequestWindow.MODE_BLOCK, 60_000, 0);
+        exhaust(window, new AtomicInteger());
+        assertThrows(RpcException.class, () -> window.submit(() -> {
+        }));
+        window.close();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void queueModeTest() {
+        Channel channel = registeredChannel();
+        RequestWindow window = new RequestWindow(channel, RequestWindow.MODE_QUEUE, 60_000, 2);
+        AtomicInteger sent = new AtomicInteger();
+        exhaust(window, sent);
+        window.submit(sent::incrementAndGet);
+        window.submit(sent::incrementAndGet);
+        assertEquals(RpcConstants.INITIAL_REQUEST_WINDOW, sent.get());
+        // the queue is full
+        assertThrows(RpcException.class, () -> window.submit(sent::incrementAndGet));
+
+        // a granted credit sends one queued request
+        window.grant(1);
+        assertEquals(RpcConstants.INITIAL_REQUEST_WINDOW + 1, sent.get());
+        assertEquals(0, window.availableCredits());
+        // the closed window sends the rest, their writes fail on the closed channel
+        window.close();
+        assertEquals(RpcConstants.INITIAL_REQUEST_WINDOW + 2, sent.get());
+        channel.close().syncUninterruptibly();
+    }
+
+    @Test
+    void blockModeTimeoutTest() {
+        Channel channel = registeredChannel();
+        RequestWindow window = new RequestWindow(channel, RequestWindow.MODE_BLOCK, 50, 0);
+        exhaust(window, new AtomicInteger());
+        long start = System.nanoTime();
+        assertThrows(RpcException.class, () -> window.submit(() -> {
+        }));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        window.close();
+        channel.close().syncUninterruptibly();
+    }
+
+    @Test
+    void blockModeTest() throws InterruptedException {
+        Channel channel = registeredChannel();
+        RequestWindow window = new RequestWindow(channel, RequestWindow.MODE_BLOCK, 60_000, 0);
+        AtomicInteger sent = new AtomicInteger();
+        exhaust(window, sent);
+
+        // a granted credit wakes up the blocked caller
+        Thread granted = new Thread(() -> window.submit(sent::incrementAndGet));
+        granted.start();
+        window.grant(1);
+        granted.join(10_000);
+        assertEquals(RpcConstants.INITIAL_REQUEST_WINDOW + 1, sent.get());
+
+        // so does the closed window
+        Thread closed = new Thread(() -> window.submit(sent::incrementAndGet));
+        closed.start();
+        window.close();
+        closed.join(10_000);
+        assertEquals(RpcConstants.INITIAL_REQUEST_WINDOW + 2, sent.get());
+        channel.close().syncUninterruptibly();
+    }
+
+    private static void exhaust(RequestWindow window, AtomicInteger sent) {
+        for (int i = 0; i < RpcConstants.INITIAL_REQUEST_WINDOW; i++) {
+            window.submit(sent::incrementAndGet);
+        }
+        assertEquals(0, window.availableCredits());
+    }
+
+    private static Channel registeredChannel() {
+        Channel channel = new LocalChannel();
+        EVENT_LOOP.register(channel).syncUninterruptibly();
+        return channel;
+    }
+}
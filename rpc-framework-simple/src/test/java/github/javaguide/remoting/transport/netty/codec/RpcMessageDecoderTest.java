@@ -0,0 +1,77 @@
+package github.javaguide.remoting.transport.netty.codec;
+
+import github.javaguide.enums.CompressTypeEnum;
+import github.javaguide.enums.SerializationTypeEnum;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.transport.netty.InboundBudget;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RpcMessageDecoderTest {
+
+    /**
+     * counts the reads requested by the handlers behind it
+     */
+    private static class ReadCounter extends ChannelOutboundHandlerAdapter {
+        private int reads;
+
+        @Override
+        public void read(ChannelHandlerContext ctx) throws Exception {
+            reads++;
+            super.read(ctx);
+        }
+    }
+
+    @Test
+    void pausedConnectionTest() {
+        ReadCounter readCounter = new ReadCounter();
+        EmbeddedChannel channel = new EmbeddedChannel(readCounter, RpcMessageDecoder.withAdmissionControl());
+        InboundBudget inboundBudget = InboundBudget.of(channel);
+        // another request holds the whole connection budget
+        assertTrue(inboundBudget.tryAcquire(InboundBudget.CONNECTION_CAPACITY));
+        ByteBuf frames = Unpooled.buffer();
+        RpcMessageEncoder.encode(request("1"), frames);
+        RpcMessageEncoder.encode(request("2"), frames);
+        int reads = readCounter.reads;
+
+        // the first frame waits for the budget: reading stops and nothing is decoded
+        assertFalse(channel.writeInbound(frames));
+        assertFalse(channel.config().isAutoRead());
+        assertEquals(reads, readCounter.reads);
+
+        // the released budget resumes reading and decodes the buffered frames
+        inboundBudget.release(InboundBudget.CONNECTION_CAPACITY);
+        channel.runPendingTasks();
+        assertTrue(channel.config().isAutoRead());
+        RpcMessage first = channel.readInbound();
+        RpcMessage second = channel.readInbound();
+        assertNull(channel.readInbound());
+        assertEquals("1", ((RpcRequest) first.getData()).getRequestId());
+        assertEquals("2", ((RpcRequest) second.getData()).getRequestId());
+        assertTrue(first.getInboundBytes() > RpcConstants.HEAD_LENGTH);
+
+        inboundBudget.release(first.getInboundBytes());
+        inboundBudget.release(second.getInboundBytes());
+        channel.finishAndReleaseAll();
+    }
+
+    private static RpcMessage request(String requestId) {
+        RpcRequest rpcRequest = new RpcRequest(requestId, "github.javaguide.HelloService", "hello",
+                new Object[]{"hello"}, new Class<?>[]{String.class}, "1", "decoder");
+        return RpcMessage.builder().messageType(RpcConstants.REQUEST_TYPE)
+                .codec(SerializationTypeEnum.HESSIAN.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .data(rpcRequest).build();
+    }
+}
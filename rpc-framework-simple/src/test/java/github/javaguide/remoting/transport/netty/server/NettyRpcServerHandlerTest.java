@@ -0,0 +1,71 @@
+package github.javaguide.remoting.transport.netty.server;
+
+import github.javaguide.config.RpcServiceConfig;
+import github.javaguide.enums.RpcResponseCodeEnum;
+import github.javaguide.factory.SingletonFactory;
+import github.javaguide.provider.impl.ZkServiceProviderImpl;
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NettyRpcServerHandlerTest {
+
+    public interface EchoService {
+        String echo(String message);
+
+        String fail(String message);
+    }
+
+    public static class EchoServiceImpl implements EchoService {
+        @Override
+        public String echo(String message) {
+            return message;
+        }
+
+        @Override
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    @Test
+    void failedInvocationTest() {
+        SingletonFactory.getInstance(ZkServiceProviderImpl.class).addService(RpcServiceConfig.builder()
+                .group("handler").version("1").service(new EchoServiceImpl()).build());
+        // invocations run on the calling thread
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyRpcServerHandler(Runnable::run));
+        channel.writeInbound(request("1", "fail"));
+        channel.writeInbound(request("2", "echo"));
+        channel.runPendingTasks();
+
+        // a failed invocation answers its own request and leaves the connection open
+        assertTrue(channel.isOpen());
+        Map<String, RpcResponse<?>> responses = new HashMap<>();
+        for (Object msg; (msg = channel.readOutbound()) != null; ) {
+            RpcMessage rpcMessage = (RpcMessage) msg;
+            if (rpcMessage.getMessageType() == RpcConstants.RESPONSE_TYPE) {
+                RpcResponse<?> rpcResponse = (RpcResponse<?>) rpcMessage.getData();
+                responses.put(rpcResponse.getRequestId(), rpcResponse);
+            }
+        }
+        assertEquals(RpcResponseCodeEnum.FAIL.getCode(), responses.get("1").getCode());
+        assertEquals(RpcResponseCodeEnum.SUCCESS.getCode(), responses.get("2").getCode());
+        assertEquals("hello", responses.get("2").getData());
+        channel.finishAndReleaseAll();
+    }
+
+    private static RpcMessage request(String requestId, String methodName) {
+        RpcRequest rpcRequest = new RpcRequest(requestId, EchoService.class.getCanonicalName(), methodName,
+                new Object[]{"hello"}, new Class<?>[]{String.class}, "1", "handler");
+        return RpcMessage.builder().messageType(RpcConstants.REQUEST_TYPE).data(rpcRequest).build();
+    }
+}
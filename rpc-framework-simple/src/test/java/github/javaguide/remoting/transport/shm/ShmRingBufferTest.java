@@ -0,0 +1,43 @@
+package github.javaguide.remoting.transport.shm;
+
+import io.netty.util.internal.PlatformDependent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShmRingBufferTest {
+    private final ByteBuffer memory = ByteBuffer.allocateDirect(ShmRingBuffer.HEADER_LENGTH + 64);
+    private final ShmRingBuffer ring = new ShmRingBuffer(PlatformDependent.directBufferAddress(memory), 64);
+
+    @Test
+    void fullTest() {
+        assertTrue(ring.isEmpty());
+        assertNull(ring.poll());
+        // each record takes align(4 + 20) = 24 bytes
+        assertTrue(ring.offer(new byte[20]));
+        assertTrue(ring.offer(new byte[20]));
+        assertFalse(ring.offer(new byte[20]));
+        assertTrue(ring.offer(new byte[12]));
+        assertFalse(ring.offer(new byte[1]));
+        ring.poll();
+        assertTrue(ring.offer(new byte[20]));
+    }
+
+    @Test
+    void wrapAroundTest() {
+        for (int i = 0; i < 100; i++) {
+            byte[] bytes = new byte[i % 30 + 1];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) (i + j);
+            }
+            assertTrue(ring.offer(bytes));
+            assertArrayEquals(bytes, ring.poll());
+            assertTrue(ring.isEmpty());
+        }
+    }
+}
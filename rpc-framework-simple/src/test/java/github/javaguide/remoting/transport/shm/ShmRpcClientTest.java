@@ -0,0 +1,107 @@
+package github.javaguide.remoting.transport.shm;
+
+import github.javaguide.remoting.constants.RpcConstants;
+import github.javaguide.remoting.dto.RpcMessage;
+import github.javaguide.remoting.dto.RpcRequest;
+import github.javaguide.remoting.dto.RpcResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShmRpcClientTest {
+    @TempDir
+    Path directory;
+    private final List<RpcRequest> delegated = new ArrayList<>();
+    private final RpcResponse<Object> delegateResponse = RpcResponse.success("delegate", "1");
+
+    @Test
+    void unpublishedServiceGoesToDelegateTest() throws IOException {
+        startServer("github.javaguide.HelloServicetest1version1");
+        ShmRpcClient shmRpcClient = new ShmRpcClient(directory, this::delegate);
+        RpcRequest rpcRequest = request("github.javaguide.CounterService");
+        assertSame(delegateResponse, shmRpcClient.sendRpcRequest(rpcRequest));
+        assertEquals(Collections.singletonList(rpcRequest), delegated);
+        assertFalse(hasConnectionFile());
+    }
+
+    @Test
+    void publishedServiceGoesToSharedMemoryTest() throws Exception {
+        startServer("github.javaguide.HelloServicetest1version1");
+        ShmRpcClient shmRpcClient = new ShmRpcClient(directory, this::delegate);
+        try {
+            RpcRequest rpcRequest = request("github.javaguide.HelloService");
+            Object result = shmRpcClient.sendRpcRequest(rpcRequest);
+            assertTrue(result instanceof CompletableFuture);
+            assertTrue(delegated.isEmpty());
+            // answer the request the way ShmRpcServer does
+            try (ShmConnection server = ShmConnection.open(connectionFile())) {
+                RpcMessage request = server.pollRequest();
+                assertEquals(rpcRequest.getRequestId(), ((RpcRequest) request.getData()).getRequestId());
+                RpcMessage response = new RpcMessage();
+                response.setCodec(request.getCodec());
+                response.setCompress(request.getCompress());
+                response.setRequestId(request.getRequestId());
+                response.setMessageType(RpcConstants.RESPONSE_TYPE);
+                response.setData(RpcResponse.success("hello", rpcRequest.getRequestId()));
+                server.writeResponse(response, 1000);
+                @SuppressWarnings("unchecked")
+                RpcResponse<Object> rpcResponse = ((CompletableFuture<RpcResponse<Object>>) result).get(5, TimeUnit.SECONDS);
+                assertEquals("hello", rpcResponse.getData());
+            }
+        } finally {
+            shmRpcClient.close();
+        }
+        // the reader has exited and removed its connection file
+        assertFalse(hasConnectionFile());
+    }
+
+    @Test
+    void noServerGoesToDelegateTest() {
+        ShmRpcClient shmRpcClient = new ShmRpcClient(directory, this::delegate);
+        shmRpcClient.sendRpcRequest(request("github.javaguide.HelloService"));
+        assertEquals(1, delegated.size());
+    }
+
+    private Object delegate(RpcRequest rpcRequest) {
+        delegated.add(rpcRequest);
+        return delegateResponse;
+    }
+
+    private void startServer(String... rpcServiceNames) throws IOException {
+        Files.write(directory.resolve(ShmRpcServer.SERVICES_FILE), Arrays.asList(rpcServiceNames), StandardCharsets.UTF_8);
+        Files.write(directory.resolve(ShmRpcServer.SERVER_FILE), ShmRpcServer.pid().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Path connectionFile() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(ShmRpcServer.RING_SUFFIX)).findFirst()
+                    .orElseThrow(() -> new AssertionError("no connection file"));
+        }
+    }
+
+    private boolean hasConnectionFile() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.anyMatch(file -> file.toString().endsWith(ShmRpcServer.RING_SUFFIX));
+        }
+    }
+
+    private static RpcRequest request(String interfaceName) {
+        return new RpcRequest("1", interfaceName, "hello", new Object[0], new Class<?>[0], "version1", "test1");
+    }
+}